@@ -1,5 +1,6 @@
 package com.example.dsd;
 
+import com.example.dsd.service.CsvImportResult;
 import com.example.dsd.service.CsvImportService;
 import com.example.dsd.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,9 +70,10 @@ public class DsdApplication implements CommandLineRunner { // 实现 CommandLine
                  FileCopyUtils.copy(inputStream, outputStream);
              }
 
-             // 调用服务执行导入
-             csvImportService.importUsersFromCsv(tempCsvFile.getAbsolutePath());
-             System.out.println("CSV 导入演示完成。");
+             // 调用服务执行导入 (批量模式，按批次提交)
+             CsvImportResult result = csvImportService.importUsersFromCsvBatched(tempCsvFile.getAbsolutePath());
+             System.out.println("CSV 导入演示" + (result.isAborted() ? "中止 (" + result.getAbortReason() + ")" : "完成")
+                     + "，导入 " + result.getImportedRows() + " 行，拒绝 " + result.getRejectedRows() + " 行。");
 
         } catch (Exception e) {
             System.err.println("处理或导入 CSV 文件时出错: " + e.getMessage());
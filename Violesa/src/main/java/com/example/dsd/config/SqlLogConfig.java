@@ -0,0 +1,46 @@
+package com.example.dsd.config;
+
+import com.example.dsd.metrics.SqlBudgetFilter;
+import com.example.sqlmetrics.MeteredDataSource;
+import com.example.sqlmetrics.SqlRequestBudget;
+import com.example.sqlmetrics.SqlStatementLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * SQL日志配置，代替 show-sql 和 Hibernate 的 SQL/参数日志
+ * 数据源包装为 {@link MeteredDataSource} 记录逐条SQL的耗时 (jdbc.query) 和慢SQL，
+ * {@link SqlBudgetFilter} 统计每个请求的SQL条数；与 demo 共用 sql-metrics 中的实现和 app.sql-log 配置项
+ */
+@Configuration
+public class SqlLogConfig {
+
+    @Bean
+    public static BeanPostProcessor meteredDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> registry,
+            @Value("${app.sql-log.slow-threshold-ms:200}") long slowThresholdMillis,
+            @Value("${app.sql-log.sample-rate:0.01}") double sampleRate) {
+        SqlStatementLog statementLog = new SqlStatementLog(slowThresholdMillis, sampleRate);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof MeteredDataSource)) {
+                    return new MeteredDataSource((DataSource) bean, registry::getObject, statementLog);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlBudgetFilter sqlBudgetFilter(MeterRegistry registry,
+                                           @Value("${app.sql-log.request-budget:50}") int budget) {
+        return new SqlBudgetFilter(new SqlRequestBudget(registry, budget));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dsd.metrics;
+
+import com.example.sqlmetrics.SqlRequestBudget;
+import com.example.sqlmetrics.SqlStatementLog;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 统计每个HTTP请求执行的SQL条数，记录和超出预算的告警见 {@link SqlRequestBudget}
+ * 只统计请求线程上执行的语句。
+ */
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private final SqlRequestBudget budget;
+
+    public SqlBudgetFilter(SqlRequestBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementLog.RequestStats stats = SqlStatementLog.beginRequest();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatementLog.endRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            budget.record(request.getMethod(), request.getRequestURI(), pattern != null ? pattern.toString() : null, stats);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.dsd.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件记录 (RawData / Format / Report) 的元数据投影
+ * 只查询 hash_PK、time、username、file_size 四列，不读取 MEDIUMTEXT 的 file 列。
+ * 当前没有启用 Hibernate 字节码增强，实体上的 @Basic(fetch = LAZY) 不会生效，
+ * 列表类查询应使用此投影，需要文件内容时再单独查询。
+ */
+public interface FileMetadata {
+
+    String getHashPk();
+
+    LocalDateTime getTime();
+
+    String getUsername();
+
+    Integer getFileSize();
+}
@@ -1,9 +1,28 @@
 package com.example.dsd.repository;
 
+import com.example.dsd.model.FileMetadata;
 import com.example.dsd.model.RawData;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface RawDataRepository extends JpaRepository<RawData, String> { // 主键是 hashPk (String)
+    // 以下查询只返回元数据投影，不读取 file 列
+
+    List<FileMetadata> findByUsernameOrderByTimeDesc(String username);
+
+    Page<FileMetadata> findAllBy(Pageable pageable);
+
+    Optional<FileMetadata> findMetadataByHashPk(String hashPk);
+
+    // 需要文件内容时单独查询
+    @Query("select r.file from RawData r where r.hashPk = :hashPk")
+    Optional<String> findFileByHashPk(@Param("hashPk") String hashPk);
 }
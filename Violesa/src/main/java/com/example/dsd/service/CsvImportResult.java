@@ -0,0 +1,32 @@
+package com.example.dsd.service;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量导入的统计结果
+ */
+@Data
+@NoArgsConstructor
+public class CsvImportResult {
+
+    private long totalRows;      // 读取到的总行数
+    private long importedRows;   // 成功写入的行数
+    private long rejectedRows;   // 被拒绝的行数 (格式错误、重复用户名、其他约束错误或所在批次写入失败)
+    private long duplicateRows;  // 其中因用户名已存在而被拒绝的行数
+    private int committedChunks; // 成功提交的批次数
+    private int failedChunks;    // 回滚的批次数
+    private long elapsedMillis;  // 总耗时
+    private boolean aborted;     // 读取或解析文件中途失败，文件中剩余的行没有导入
+    private String abortReason;  // 中途失败的原因
+
+    /**
+     * 每秒导入行数
+     */
+    public double getRowsPerSecond() {
+        if (elapsedMillis <= 0) {
+            return importedRows;
+        }
+        return importedRows * 1000.0 / elapsedMillis;
+    }
+}
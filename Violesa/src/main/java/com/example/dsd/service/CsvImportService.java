@@ -3,13 +3,33 @@ package com.example.dsd.service;
 import com.example.dsd.model.User;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets; // 确保文件编码正确
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 处理 CSV 文件导入的服务
@@ -17,9 +37,36 @@ import java.nio.charset.StandardCharsets; // 确保文件编码正确
 @Service
 public class CsvImportService {
 
+    private static final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+
+    // 批量导入使用的 SQL：写入前已排除重复用户名；仍然冲突时 (并发导入或排序规则差异) 整批回滚后逐行写入
+    private static final String INSERT_SQL = "INSERT INTO `user` (username, password) VALUES (?, ?)";
+
+    // 与 User 实体的列长度保持一致
+    private static final int MAX_USERNAME_LENGTH = 255;
+    private static final int MAX_PASSWORD_LENGTH = 20;
+
     @Autowired
     private UserService userService; // 注入 UserService 以保存用户
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // 批量模式直接走 JDBC，绕过 JPA 的 select-then-insert
+
+    @Autowired
+    private TransactionTemplate transactionTemplate; // 按批次提交事务
+
+    @Value("${dsd.import.batch-size:1000}")
+    private int defaultBatchSize; // 每个批次 (事务) 包含的行数
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong lastRowsPerSecond = new AtomicLong(); // 最近一次批量导入的吞吐量
+
+    @Autowired
+    public CsvImportService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("csv.import.rows.per.second", lastRowsPerSecond);
+    }
+
     /**
      * 从指定的 CSV 文件路径导入用户数据
      * 假设 CSV 文件格式为: username,password (无表头)
@@ -31,7 +78,7 @@ public class CsvImportService {
         // 使用 try-with-resources 确保 CSVReader 被正确关闭
         try (CSVReader reader = new CSVReader(new FileReader(csvFilePath, StandardCharsets.UTF_8))) { // 指定 UTF-8 编码
             String[] nextLine;
-            System.out.println("开始从 " + csvFilePath + " 导入用户...");
+            log.info("开始从 {} 导入用户...", csvFilePath);
 
             // 逐行读取 CSV
             while ((nextLine = reader.readNext()) != null) {
@@ -46,23 +93,221 @@ public class CsvImportService {
                     // 注意：这里没有做重复用户检查，如果需要，可以在保存前查询用户是否存在
                     userService.saveUser(newUser);
                     count++;
-                    System.out.println("已导入用户: " + username);
+                    log.debug("已导入用户: {}", username);
                 } else {
-                    System.err.println("警告：跳过格式不正确的行: " + String.join(",", nextLine));
+                    log.warn("跳过格式不正确的行: {}", String.join(",", nextLine));
                 }
             }
-            System.out.println("CSV 用户导入完成，共导入 " + count + " 个用户。");
+            log.info("CSV 用户导入完成，共导入 {} 个用户。", count);
 
         } catch (IOException e) {
-            System.err.println("读取 CSV 文件时出错: " + csvFilePath);
-            e.printStackTrace(); // 打印详细错误信息
+            log.error("读取 CSV 文件时出错: {}", csvFilePath, e);
             // 可以在这里抛出自定义异常或进行其他错误处理
         } catch (CsvValidationException e) {
-            System.err.println("CSV 文件验证失败: " + csvFilePath);
-            e.printStackTrace();
+            log.error("CSV 文件验证失败: {}", csvFilePath, e);
         } catch (Exception e) { // 捕获其他潜在异常
-            System.err.println("导入过程中发生未知错误: ");
-            e.printStackTrace();
+            log.error("导入过程中发生未知错误", e);
+        }
+    }
+
+    /**
+     * 批量模式导入用户数据，使用默认批次大小
+     * @param csvFilePath CSV 文件路径
+     * @return 导入统计结果
+     */
+    public CsvImportResult importUsersFromCsvBatched(String csvFilePath) {
+        return importUsersFromCsvBatched(csvFilePath, defaultBatchSize);
+    }
+
+    /**
+     * 批量模式导入用户数据
+     * 每 batchSize 行通过一次 JDBC batch insert 写入，并在独立事务中提交，
+     * 某一批次失败只回滚该批次，不影响已提交的数据。
+     * 不逐行打印日志，结束后输出一次统计信息。
+     * 假设 CSV 文件格式为: username,password (无表头)
+     * @param csvFilePath CSV 文件路径
+     * @param batchSize 每批次行数
+     * @return 导入统计结果；读取或解析文件中途失败时 aborted 为 true，出错前读取的行仍会写入
+     */
+    public CsvImportResult importUsersFromCsvBatched(String csvFilePath, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于 0: " + batchSize);
+        }
+        CsvImportResult result = new CsvImportResult();
+        long start = System.nanoTime();
+        List<Object[]> chunk = new ArrayList<>(batchSize);
+
+        try (CSVReader reader = new CSVReader(new FileReader(csvFilePath, StandardCharsets.UTF_8))) {
+            log.info("开始批量导入 {}，批次大小: {}", csvFilePath, batchSize);
+            String[] nextLine;
+            while ((nextLine = reader.readNext()) != null) {
+                result.setTotalRows(result.getTotalRows() + 1);
+                Object[] row = toUserRow(nextLine);
+                if (row == null) {
+                    result.setRejectedRows(result.getRejectedRows() + 1);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= batchSize) {
+                    flushChunk(chunk, result);
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取 CSV 文件时出错，导入中止: {}", csvFilePath, e);
+            abort(result, "读取 CSV 文件失败: " + e.getMessage());
+        } catch (CsvValidationException e) {
+            log.error("CSV 文件验证失败，导入中止: {}", csvFilePath, e);
+            abort(result, "CSV 文件验证失败: " + e.getMessage());
+        } finally {
+            // 出错前已读取的行照常写入，中止的导入也能从统计中看出哪些行已写入
+            flushChunk(chunk, result);
+        }
+
+        result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        log.info(String.format("CSV 批量导入%s: 读取 %d 行, 导入 %d 行, 拒绝 %d 行 (其中重复用户名 %d 行), 提交 %d 批, 失败 %d 批, 耗时 %d ms (%.0f 行/秒)",
+                result.isAborted() ? "中止" : "完成", result.getTotalRows(), result.getImportedRows(), result.getRejectedRows(), result.getDuplicateRows(),
+                result.getCommittedChunks(), result.getFailedChunks(),
+                result.getElapsedMillis(), result.getRowsPerSecond()));
+        recordMetrics(result);
+        return result;
+    }
+
+    private static void abort(CsvImportResult result, String reason) {
+        result.setAborted(true);
+        result.setAbortReason(reason);
+    }
+
+    /**
+     * 记录导入的行数、批次数、耗时和吞吐量指标
+     */
+    private void recordMetrics(CsvImportResult result) {
+        meterRegistry.counter("csv.import.rows", "result", "imported").increment(result.getImportedRows());
+        meterRegistry.counter("csv.import.rows", "result", "rejected").increment(result.getRejectedRows() - result.getDuplicateRows());
+        meterRegistry.counter("csv.import.rows", "result", "duplicate").increment(result.getDuplicateRows());
+        meterRegistry.counter("csv.import.chunks", "result", "committed").increment(result.getCommittedChunks());
+        meterRegistry.counter("csv.import.chunks", "result", "failed").increment(result.getFailedChunks());
+        if (result.isAborted()) {
+            meterRegistry.counter("csv.import.aborted").increment();
+        }
+        Timer.builder("csv.import.duration")
+                .description("一次批量导入的总耗时")
+                .register(meterRegistry)
+                .record(result.getElapsedMillis(), TimeUnit.MILLISECONDS);
+        lastRowsPerSecond.set(Math.round(result.getRowsPerSecond()));
+    }
+
+    /**
+     * 校验并转换一行 CSV，格式不正确时返回 null
+     */
+    private Object[] toUserRow(String[] line) {
+        if (line.length < 2) {
+            return null;
+        }
+        String username = line[0].trim();
+        String password = line[1].trim();
+        if (username.isEmpty() || username.length() > MAX_USERNAME_LENGTH || password.length() > MAX_PASSWORD_LENGTH) {
+            return null;
+        }
+        return new Object[]{username, password};
+    }
+
+    /**
+     * 在独立事务中写入一个批次并清空缓冲
+     * 先查询批次中已存在的用户名，只写入新用户，重复的计为拒绝。
+     * 开启 rewriteBatchedStatements 后驱动对每行只返回 SUCCESS_NO_INFO，无法靠返回值区分重复行，
+     * 因此批量写入不忽略冲突：出现唯一键冲突时整批回滚，再在新事务中逐行写入以统计实际的重复行
+     */
+    private void flushChunk(List<Object[]> chunk, CsvImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            ChunkCounts counts;
+            try {
+                counts = transactionTemplate.execute(status -> {
+                    List<Object[]> fresh = excludeExisting(chunk);
+                    if (!fresh.isEmpty()) {
+                        jdbcTemplate.batchUpdate(INSERT_SQL, fresh);
+                    }
+                    return new ChunkCounts(fresh.size(), chunk.size() - fresh.size(), 0);
+                });
+            } catch (DataIntegrityViolationException e) {
+                log.debug("批次中有 {} 行冲突，改为逐行写入: {}", chunk.size(), e.getMessage());
+                counts = transactionTemplate.execute(status -> insertRowByRow(chunk));
+            }
+            result.setImportedRows(result.getImportedRows() + counts.imported);
+            result.setRejectedRows(result.getRejectedRows() + counts.duplicates + counts.invalid);
+            result.setDuplicateRows(result.getDuplicateRows() + counts.duplicates);
+            result.setCommittedChunks(result.getCommittedChunks() + 1);
+        } catch (DataAccessException e) {
+            log.warn("批次写入失败，已回滚 {} 行: {}", chunk.size(), e.getMessage());
+            result.setRejectedRows(result.getRejectedRows() + chunk.size());
+            result.setFailedChunks(result.getFailedChunks() + 1);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * 逐行写入一个批次，唯一键冲突的行计为重复，其他约束错误的行计为拒绝
+     * InnoDB 只回滚出错的那条语句，事务中已写入的行不受影响
+     */
+    private ChunkCounts insertRowByRow(List<Object[]> chunk) {
+        List<Object[]> fresh = excludeExisting(chunk);
+        long imported = 0;
+        long duplicates = chunk.size() - fresh.size();
+        long invalid = 0;
+        for (Object[] row : fresh) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, row);
+                imported++;
+            } catch (DuplicateKeyException e) {
+                duplicates++;
+            } catch (DataIntegrityViolationException e) {
+                invalid++;
+            }
+        }
+        return new ChunkCounts(imported, duplicates, invalid);
+    }
+
+    /**
+     * 去掉数据库中已存在的用户名，以及批次内重复出现的用户名 (只保留第一次出现)
+     * user 表使用 utf8mb4_0900_ai_ci，比较时既不区分大小写也不区分重音 (josé 与 jose 冲突)，
+     * 这里用 PRIMARY 强度的 Collator 近似；仍有遗漏的冲突由 flushChunk 逐行写入兜底
+     */
+    private List<Object[]> excludeExisting(List<Object[]> chunk) {
+        String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+        Object[] usernames = new Object[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            usernames[i] = chunk.get(i)[0];
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT); // Collator 不是线程安全的，每个批次单独创建
+        collator.setStrength(Collator.PRIMARY);
+        Set<CollationKey> seen = new HashSet<>();
+        for (String existing : jdbcTemplate.queryForList(
+                "SELECT username FROM `user` WHERE username IN (" + placeholders + ")", String.class, usernames)) {
+            seen.add(collator.getCollationKey(existing));
+        }
+        List<Object[]> fresh = new ArrayList<>(chunk.size());
+        for (Object[] row : chunk) {
+            if (seen.add(collator.getCollationKey((String) row[0]))) {
+                fresh.add(row);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * 一个批次的写入结果
+     */
+    private static final class ChunkCounts {
+        final long imported;   // 写入的行数
+        final long duplicates; // 用户名已存在的行数
+        final long invalid;    // 其他约束错误的行数
+
+        ChunkCounts(long imported, long duplicates, long invalid) {
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.invalid = invalid;
         }
     }
-}
\ No newline at end of file
+}
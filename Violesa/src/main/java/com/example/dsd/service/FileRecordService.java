@@ -0,0 +1,110 @@
+package com.example.dsd.service;
+
+import com.example.dsd.model.FileMetadata;
+import com.example.dsd.repository.FormatRepository;
+import com.example.dsd.repository.RawDataRepository;
+import com.example.dsd.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件记录 (rawdata / format / report) 的查询服务
+ * 列表和元数据查询只读取元数据列，文件内容按需单独读取
+ * 本服务不做访问控制，通过 HTTP 暴露前调用方须先完成身份和归属校验
+ */
+@Service
+@Transactional(readOnly = true)
+public class FileRecordService {
+
+    /**
+     * 文件记录类型，对应三张结构相同的表
+     */
+    public enum RecordType {
+        RAWDATA, FORMAT, REPORT;
+
+        /**
+         * 按表名解析类型 (不区分大小写)，无法识别时返回 null
+         */
+        public static RecordType fromName(String name) {
+            for (RecordType type : values()) {
+                if (type.name().equalsIgnoreCase(name)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private RawDataRepository rawDataRepository;
+
+    @Autowired
+    private FormatRepository formatRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    /**
+     * 某用户的全部记录元数据，按时间倒序
+     */
+    public List<FileMetadata> listByUsername(RecordType type, String username) {
+        switch (type) {
+            case RAWDATA:
+                return rawDataRepository.findByUsernameOrderByTimeDesc(username);
+            case FORMAT:
+                return formatRepository.findByUsernameOrderByTimeDesc(username);
+            default:
+                return reportRepository.findByUsernameOrderByTimeDesc(username);
+        }
+    }
+
+    /**
+     * 分页查询全部记录元数据，按时间倒序
+     */
+    public Page<FileMetadata> page(RecordType type, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "time"));
+        switch (type) {
+            case RAWDATA:
+                return rawDataRepository.findAllBy(pageable);
+            case FORMAT:
+                return formatRepository.findAllBy(pageable);
+            default:
+                return reportRepository.findAllBy(pageable);
+        }
+    }
+
+    /**
+     * 单条记录的元数据
+     */
+    public Optional<FileMetadata> getMetadata(RecordType type, String hashPk) {
+        switch (type) {
+            case RAWDATA:
+                return rawDataRepository.findMetadataByHashPk(hashPk);
+            case FORMAT:
+                return formatRepository.findMetadataByHashPk(hashPk);
+            default:
+                return reportRepository.findMetadataByHashPk(hashPk);
+        }
+    }
+
+    /**
+     * 单条记录的文件内容，只有在确实需要时才调用
+     */
+    public Optional<String> getFile(RecordType type, String hashPk) {
+        switch (type) {
+            case RAWDATA:
+                return rawDataRepository.findFileByHashPk(hashPk);
+            case FORMAT:
+                return formatRepository.findFileByHashPk(hashPk);
+            default:
+                return reportRepository.findFileByHashPk(hashPk);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.dsd.config;
+
+import com.example.sqlmetrics.MeteredDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * sql-metrics 按 Spring 5 / Micrometer 1.9 编译，这里在 Violesa 的 Spring 6 / Micrometer 1.12 上运行它
+ */
+class SqlLogConfigTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dataSourceIsWrappedAndStatementsAreTimed() throws SQLException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(registry);
+        BeanPostProcessor postProcessor = SqlLogConfig.meteredDataSourcePostProcessor(provider, -1, 0);
+
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+
+        Object wrapped = postProcessor.postProcessAfterInitialization(target, "dataSource");
+        assertInstanceOf(MeteredDataSource.class, wrapped);
+        assertSame(wrapped, postProcessor.postProcessAfterInitialization(wrapped, "dataSource"));
+
+        try (Connection c = ((DataSource) wrapped).getConnection()) {
+            c.prepareStatement("SELECT hash_PK, time FROM rawdata WHERE username = ?").executeQuery();
+        }
+        assertEquals(1, registry.get(MeteredDataSource.METRIC_NAME)
+                .tag("operation", "select").tag("table", "rawdata").timer().count());
+    }
+}
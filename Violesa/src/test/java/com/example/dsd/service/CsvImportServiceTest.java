@@ -0,0 +1,219 @@
+package com.example.dsd.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 批量导入的行数统计：重复用户名 (含大小写和重音变体)、并发冲突后的逐行写入、格式错误、失败批次和中途读取失败
+ */
+class CsvImportServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private FakeUserTable users;
+    private CsvImportService service;
+
+    @BeforeEach
+    void setUp() {
+        users = new FakeUserTable();
+        service = new CsvImportService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "jdbcTemplate", users);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "defaultBatchSize", 1000);
+    }
+
+    @Test
+    void caseAndAccentVariantsOfExistingNamesAreDuplicates() throws IOException {
+        users.rows.put("josé", "pw");
+        CsvImportResult result = service.importUsersFromCsvBatched(csv(
+                "jose,1", "JOSE,2", "alice,3", "Alice,4", "bob,5"));
+
+        assertEquals(5, result.getTotalRows());
+        assertEquals(2, result.getImportedRows());
+        assertEquals(3, result.getDuplicateRows());
+        assertEquals(3, result.getRejectedRows());
+        assertEquals(Arrays.asList("josé", "alice", "bob"), new ArrayList<>(users.rows.keySet()));
+        assertEquals(1, users.batches);
+    }
+
+    @Test
+    void conflictAfterQueryFallsBackToRowByRow() throws IOException {
+        users.insertedConcurrently = "dave";
+        CsvImportResult result = service.importUsersFromCsvBatched(csv("carol,1", "dave,2", "erin,3"));
+
+        assertEquals(2, result.getImportedRows());
+        assertEquals(1, result.getDuplicateRows());
+        assertEquals(1, result.getRejectedRows());
+        assertEquals(1, result.getCommittedChunks());
+        assertEquals(0, result.getFailedChunks());
+        assertEquals("other", users.rows.get("dave"));
+        assertEquals(2, users.singleInserts);
+    }
+
+    @Test
+    void malformedRowsAreRejectedAcrossChunks() throws IOException {
+        CsvImportResult result = service.importUsersFromCsvBatched(csv(
+                "a,1", "b,2", "lonely", "c,3", "d,123456789012345678901", " ,5"), 2);
+
+        assertEquals(6, result.getTotalRows());
+        assertEquals(3, result.getImportedRows());
+        assertEquals(3, result.getRejectedRows());
+        assertEquals(0, result.getDuplicateRows());
+        assertEquals(2, result.getCommittedChunks());
+        assertEquals(3, users.rows.size());
+    }
+
+    @Test
+    void failedChunkIsRolledBackAlone() throws IOException {
+        users.failOnBatch = 2;
+        CsvImportResult result = service.importUsersFromCsvBatched(csv("a,1", "b,2", "c,3", "d,4", "e,5"), 2);
+
+        assertEquals(3, result.getImportedRows());
+        assertEquals(2, result.getRejectedRows());
+        assertEquals(2, result.getCommittedChunks());
+        assertEquals(1, result.getFailedChunks());
+        assertEquals(Arrays.asList("a", "b", "e"), new ArrayList<>(users.rows.keySet()));
+    }
+
+    @Test
+    void readFailurePartwayFlushesPendingRowsAndMarksAborted() throws IOException {
+        // 最后一行的引号没有闭合，解析到文件末尾时失败
+        CsvImportResult result = service.importUsersFromCsvBatched(csv("a,1", "b,2", "c,3", "\"d,4"), 2);
+
+        assertTrue(result.isAborted());
+        assertNotNull(result.getAbortReason());
+        assertEquals(3, result.getTotalRows());
+        assertEquals(3, result.getImportedRows());
+        assertEquals(2, result.getCommittedChunks());
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(users.rows.keySet()));
+    }
+
+    @Test
+    void missingFileIsAborted() {
+        CsvImportResult result = service.importUsersFromCsvBatched(directory.resolve("missing.csv").toString());
+
+        assertTrue(result.isAborted());
+        assertEquals(0, result.getTotalRows());
+        assertEquals(0, result.getCommittedChunks());
+    }
+
+    @Test
+    void completeImportIsNotAborted() throws IOException {
+        CsvImportResult result = service.importUsersFromCsvBatched(csv("a,1", "b,2"));
+
+        assertFalse(result.isAborted());
+        assertNull(result.getAbortReason());
+    }
+
+    private String csv(String... lines) throws IOException {
+        Path file = directory.resolve("users.csv");
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file.toString();
+    }
+
+    /**
+     * 内存中的 user 表：username 唯一键按 utf8mb4_0900_ai_ci 比较 (不区分大小写和重音)，
+     * 批量写入中任一行冲突时整批失败
+     */
+    private static class FakeUserTable extends JdbcTemplate {
+
+        final Map<String, String> rows = new LinkedHashMap<>();
+        String insertedConcurrently; // 第一次查询之后由另一个导入写入的用户名
+        int failOnBatch;             // 第几次批量写入时连接失败，0 表示不失败
+        int batches;
+        int singleInserts;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            List<T> existing = new ArrayList<>();
+            for (Object username : args) {
+                for (String row : rows.keySet()) {
+                    if (key(row).equals(key((String) username))) {
+                        existing.add((T) row);
+                    }
+                }
+            }
+            if (insertedConcurrently != null) {
+                rows.put(insertedConcurrently, "other");
+                insertedConcurrently = null;
+            }
+            return existing;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (++batches == failOnBatch) {
+                throw new DataAccessResourceFailureException("connection lost");
+            }
+            Set<String> keys = new HashSet<>();
+            for (Object[] row : batchArgs) {
+                if (conflicts((String) row[0]) || !keys.add(key((String) row[0]))) {
+                    throw new DuplicateKeyException("Duplicate entry '" + row[0] + "'");
+                }
+            }
+            for (Object[] row : batchArgs) {
+                rows.put((String) row[0], (String) row[1]);
+            }
+            int[] counts = new int[batchArgs.size()];
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            return counts;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            singleInserts++;
+            if (conflicts((String) args[0])) {
+                throw new DuplicateKeyException("Duplicate entry '" + args[0] + "'");
+            }
+            rows.put((String) args[0], (String) args[1]);
+            return 1;
+        }
+
+        private boolean conflicts(String username) {
+            for (String row : rows.keySet()) {
+                if (key(row).equals(key(username))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String key(String username) {
+            return Normalizer.normalize(username, Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT);
+        }
+    }
+}
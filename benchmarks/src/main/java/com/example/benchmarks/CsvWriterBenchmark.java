@@ -0,0 +1,74 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.util.CsvWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getSentimentDataCsv 的CSV生成: 逐行写出到UTF-8输出流
+ * 输出流丢弃数据，只统计字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvWriterBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private List<Map<String, Object>> data;
+
+    @Setup
+    public void setup() {
+        data = SampleData.reportRows(rows);
+    }
+
+    @Benchmark
+    public long writeCsv() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csv = new CsvWriter(writer);
+        csv.row("date", "type", "summary", "运动幅度", "得分");
+        for (Map<String, Object> row : data) {
+            csv.row(row.get("date"), row.get("type"), row.get("summary"), row.get("运动幅度"), row.get("得分"));
+        }
+        csv.flush();
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
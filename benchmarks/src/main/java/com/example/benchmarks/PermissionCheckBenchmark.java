@@ -0,0 +1,82 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.PermissionCodeTable;
+import com.example.factorial.src.PermissionLeaf;
+import com.example.factorial.src.PermissionNode;
+import com.example.factorial.src.PermissionSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限检查: 权限树递归检查 (PermissionNode.check) 与编译后的位图检查
+ * 权限树为 depth 层，每层 width 个叶子并挂一个子节点，被检查的权限位于最深一层 (最坏情况)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int width;
+
+    @Param({"2", "4"})
+    public int depth;
+
+    private PermissionNode root;
+    private PermissionSet compiled;
+    private String deepest;
+    private String missing;
+    private int deepestIndex;
+
+    @Setup
+    public void setup() {
+        root = new PermissionNode();
+        PermissionNode node = root;
+        for (int d = 0; d < depth; d++) {
+            for (int w = 0; w < width; w++) {
+                node.add(new PermissionLeaf("bench-" + width + "-" + depth + "-" + d + "-" + w));
+            }
+            PermissionNode child = new PermissionNode();
+            node.add(child);
+            node = child;
+        }
+        deepest = "bench-" + width + "-" + depth + "-" + (depth - 1) + "-" + (width - 1);
+        missing = "bench-missing";
+        compiled = PermissionSet.Compile(root);
+        deepestIndex = PermissionCodeTable.GetSingleton().IndexOf(deepest);
+    }
+
+    @Benchmark
+    public boolean treeCheckDeepest() {
+        return root.check(deepest);
+    }
+
+    @Benchmark
+    public boolean treeCheckMissing() {
+        return root.check(missing);
+    }
+
+    @Benchmark
+    public boolean compiledCheckByName() {
+        return compiled.check(deepest);
+    }
+
+    @Benchmark
+    public boolean compiledCheckByIndex() {
+        return compiled.check(deepestIndex);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.service.PatientReportCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getPatientReports 的报告整形: 把每行的运动幅度和得分放入 data 对象并序列化为JSON
+ * 数据库查询由返回固定行的 JdbcTemplate 代替，只读事务由不访问数据库的事务管理器代替；
+ * uncached 每次都重新整形，cached 为缓存命中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportShapingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rows;
+
+    private PatientReportCache uncached;
+    private PatientReportCache cached;
+
+    @Setup
+    public void setup() {
+        JdbcTemplate jdbcTemplate = new FixedRowsJdbcTemplate(SampleData.reportRows(rows));
+        ObjectMapper objectMapper = new ObjectMapper();
+        NoopTransactionManager transactionManager = new NoopTransactionManager();
+        uncached = new PatientReportCache(jdbcTemplate, objectMapper, new SimpleMeterRegistry(), transactionManager, 1, 0, 1000, 1000);
+        cached = new PatientReportCache(jdbcTemplate, objectMapper, new SimpleMeterRegistry(), transactionManager, 1000, 3600, 1000, 1000);
+    }
+
+    @Benchmark
+    public byte[] shapeAndSerialize() {
+        return uncached.getReportsJson("1000001");
+    }
+
+    @Benchmark
+    public byte[] cacheHit() {
+        return cached.getReportsJson("1000001");
+    }
+
+    /**
+     * 每次查询返回一份新的行 (与JDBC驱动一样，整形会修改返回的行)
+     */
+    private static final class FixedRowsJdbcTemplate extends JdbcTemplate {
+        private final List<Map<String, Object>> rows;
+
+        FixedRowsJdbcTemplate(List<Map<String, Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            List<Map<String, Object>> copy = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                copy.add(new HashMap<>(row));
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * 只保留事务同步的开销
+     */
+    private static final class NoopTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
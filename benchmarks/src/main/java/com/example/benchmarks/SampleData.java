@@ -0,0 +1,82 @@
+package com.example.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试使用的固定随机种子的测试数据，格式与前端导出和数据库返回的一致
+ */
+final class SampleData {
+
+    static final int DEVICES = 6;
+    private static final long START_MILLIS = 1714000000000L;
+
+    private SampleData() {
+    }
+
+    /**
+     * 蓝牙采集导出的CSV (BlueTooth.vue 格式，带BOM)，六个设备轮流采样，每个设备100Hz
+     */
+    static byte[] sensorCsv(int rows) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(rows * 110 + 128);
+        sb.append('\uFEFF');
+        sb.append("时间戳,设备ID,设备名称,AccX(g),AccY(g),AccZ(g),GyroX(°/s),GyroY(°/s),GyroZ(°/s),Roll(°),Pitch(°),Yaw(°)\n");
+        for (int i = 0; i < rows; i++) {
+            int device = i % DEVICES;
+            long time = START_MILLIS + (i / DEVICES) * 10L;
+            double phase = 2 * Math.PI * (i / DEVICES) / 110.0;
+            sb.append('"').append(Instant.ofEpochMilli(time)).append('"').append(',');
+            sb.append("dev").append(device).append(',').append("WT901BLE").append(device).append(',');
+            for (int c = 0; c < 3; c++) {
+                sb.append(String.format(Locale.ROOT, "%.4f", random.nextGaussian() * 0.3)).append(',');
+            }
+            for (int c = 0; c < 3; c++) {
+                sb.append(String.format(Locale.ROOT, "%.2f", random.nextGaussian() * 50)).append(',');
+            }
+            sb.append(String.format(Locale.ROOT, "%.2f", 10 * Math.sin(phase) + random.nextGaussian())).append(',');
+            sb.append(String.format(Locale.ROOT, "%.2f", (30 + device * 5) * Math.sin(phase) + random.nextGaussian())).append(',');
+            sb.append(String.format(Locale.ROOT, "%.2f", random.nextGaussian() * 5)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Violesa 导入的用户CSV: username,password
+     */
+    static String userCsv(int rows) {
+        StringBuilder sb = new StringBuilder(rows * 24);
+        for (int i = 0; i < rows; i++) {
+            if (i % 10 == 0) {
+                sb.append("DOC").append(i);
+            } else {
+                sb.append(1000000 + i);
+            }
+            sb.append(',').append("pw").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * patient_reports 查询返回的行 (列别名与 getPatientReports 一致)
+     */
+    static List<Map<String, Object>> reportRows(int rows) {
+        List<Map<String, Object>> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("date", new java.sql.Timestamp(START_MILLIS - i * 86400000L));
+            row.put("type", "步态分析");
+            row.put("summary", "蓝牙测量数据上传");
+            row.put("运动幅度", "[85.2, 78.4, 92.1, 70.3, 88.8, 76.5, 81.0, 90.2, 73.9, 84.4, 79.6, 87.7]");
+            row.put("得分", "[9, 8, 10, 7, 9, 8, 8, 10, 7, 9, 8, 9]");
+            result.add(row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.sensor.ColumnarSensorCodec;
+import com.example.factorial.src.sensor.GorillaSensorCodec;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传数据的二进制存储格式: 列式编码与时间序列压缩编码的编码、解码耗时
+ * 编码后的大小在 setup 时打印
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorCodecBenchmark {
+
+    @Param({"60000", "360000"})
+    public int rows;
+
+    private SensorSession session;
+    private byte[] columnar;
+    private byte[] gorilla;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] csv = SampleData.sensorCsv(rows);
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        new SensorCsvParser(builder).parse(new ByteArrayInputStream(csv));
+        session = builder.build();
+        columnar = ColumnarSensorCodec.encode(session);
+        gorilla = GorillaSensorCodec.encode(session);
+        System.out.printf("%ncsv %d B, columnar %d B (%.1fx), gorilla %d B (%.1fx)%n",
+                csv.length, columnar.length, (double) csv.length / columnar.length,
+                gorilla.length, (double) csv.length / gorilla.length);
+    }
+
+    @Benchmark
+    public byte[] encodeColumnar() {
+        return ColumnarSensorCodec.encode(session);
+    }
+
+    @Benchmark
+    public byte[] encodeGorilla() {
+        return GorillaSensorCodec.encode(session);
+    }
+
+    @Benchmark
+    public SensorSession decodeColumnar() throws IOException {
+        return ColumnarSensorCodec.decode(columnar);
+    }
+
+    @Benchmark
+    public SensorSession decodeGorilla() throws IOException {
+        return GorillaSensorCodec.decode(gorilla);
+    }
+
+    /** 逐个采样回调，不生成采样数组 */
+    @Benchmark
+    public double streamGorilla() throws IOException {
+        double[] sum = {0};
+        GorillaSensorCodec.decode(new ByteArrayInputStream(gorilla), (timestamp, device, values) -> sum[0] += values[7]);
+        return sum[0];
+    }
+}
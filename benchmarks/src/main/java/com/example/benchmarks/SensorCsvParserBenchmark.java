@@ -0,0 +1,75 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import com.example.factorial.src.util.HexUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * uploadCsvFile 的读取阶段: 解析上传的传感器CSV
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorCsvParserBenchmark {
+
+    @Param({"1000", "60000", "360000"})
+    public int rows;
+
+    private byte[] csv;
+
+    @Setup
+    public void setup() {
+        csv = SampleData.sensorCsv(rows);
+    }
+
+    /** 只解析和计数，不保留采样 */
+    @Benchmark
+    public long parseOnly() throws IOException {
+        SensorCsvParser parser = new SensorCsvParser(null);
+        parser.parse(new ByteArrayInputStream(csv));
+        return parser.getRowCount();
+    }
+
+    /** 解析到列式数组，即上传时分析使用的数据 */
+    @Benchmark
+    public SensorSession parseToSession() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        new SensorCsvParser(builder).parse(new ByteArrayInputStream(csv));
+        return builder.build();
+    }
+
+    /** 上传接口实际的一次读取: 同时计算SHA-256并解析到列式数组 */
+    @Benchmark
+    public String hashAndParse() throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        try (InputStream in = new DigestInputStream(new ByteArrayInputStream(csv), digest)) {
+            new SensorCsvParser(builder).parse(in);
+        }
+        builder.build();
+        return HexUtils.toHex(digest.digest());
+    }
+}
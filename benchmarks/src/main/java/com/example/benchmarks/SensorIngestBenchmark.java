@@ -0,0 +1,73 @@
+package com.example.benchmarks;
+
+import com.example.factorial.src.LeftSensor1;
+import com.example.factorial.src.SwitchState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传感器采样写入: LeftSensor1.addData (环形缓冲区 + 在线统计量)
+ * 每次调用写入一批采样，结果按单个采样计时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorIngestBenchmark {
+
+    private static final int BATCH = 6000;
+
+    // 预先写入的采样数: 空缓冲区、刚好写满窗口、窗口已循环多次
+    @Param({"0", "6000", "600000"})
+    public int preloaded;
+
+    private SwitchState switchState;
+    private LeftSensor1 sensor;
+    private double[] samples;
+    private long timestamp;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        switchState = new SwitchState();
+        sensor = new LeftSensor1(switchState);
+        Random random = new Random(42);
+        samples = new double[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            samples[i] = 40 * Math.sin(2 * Math.PI * i / 110.0) + random.nextGaussian();
+        }
+        for (int i = 0; i < preloaded; i++) {
+            sensor.addData(timestamp += 10, samples[i % BATCH]);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        switchState.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double addData() {
+        for (int i = 0; i < BATCH; i++) {
+            sensor.addData(timestamp += 10, samples[i]);
+        }
+        return sensor.getWindowMax();
+    }
+}
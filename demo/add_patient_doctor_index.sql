@@ -0,0 +1,3 @@
+-- 患者列表按 id_card 游标分页；不按医生过滤时直接使用主键 id_card 的范围扫描，
+-- 按医生过滤时需要 (doctor_username, id_card) 索引，否则每一页都要扫描全表再排序，越往后翻越慢
+ALTER TABLE dsd.patient ADD INDEX idx_patient_doctor (doctor_username, id_card);
@@ -0,0 +1,6 @@
+-- 为用户表增加角色列，登录时按该列签发令牌
+ALTER TABLE dsd.users ADD COLUMN role VARCHAR(20) NOT NULL DEFAULT 'Patient';
+
+-- 按原有的账号命名规则补全已有用户的角色，之后新增用户时直接写入角色
+UPDATE dsd.users SET role = 'Admin' WHERE username = 'Admin';
+UPDATE dsd.users SET role = 'Doctor' WHERE username REGEXP '^DOC[0-9]+$';
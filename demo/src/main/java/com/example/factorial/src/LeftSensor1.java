@@ -1,52 +1,102 @@
 package com.example.factorial.src;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+
+import com.example.factorial.src.analysis.OnlineGaitStats;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class LeftSensor1 extends Observer{
-    
-    private ArrayList<Double> a;
+
+    //窗口容量：100Hz采样下约一分钟的数据
+    public static final int DEFAULT_CAPACITY = 6000;
+
+    //缓冲区和映射不是线程安全的，写入 (观察者的处理任务或调用addData的线程) 与查询 (请求线程) 都在本对象的锁内进行
+    private final SampleRingBuffer a;
+    private final OnlineGaitStats stats;  //整次采集的在线统计量，不受窗口容量限制
     private HashMap<String, Double> map;
-    
+
     @Autowired
     public LeftSensor1(SwitchState s){
         super(s);
-        this.a = new ArrayList<>();
+        this.a = new SampleRingBuffer(DEFAULT_CAPACITY);
+        this.stats = new OnlineGaitStats();
+        this.map = new HashMap<>();
+    }
+
+    //不订阅SwitchState，由调用方在自己的线程中直接调用addData
+    public LeftSensor1(){
+        super();
+        this.a = new SampleRingBuffer(DEFAULT_CAPACITY);
+        this.stats = new OnlineGaitStats();
         this.map = new HashMap<>();
     }
 
     // 初始化方法
-    public void init() {
+    public synchronized void init() {
         a.add(0.0);
         map.put("初始值", 0.0);
     }
-    
-    // 添加数据方法
-    public void addData(Double value) {
+
+    // 添加数据方法，写入环形缓冲区，不装箱；以当前时间作为采样时间
+    public void addData(double value) {
+        addData(System.currentTimeMillis(), value);
+    }
+
+    // 添加带采样时间的数据，同时O(1)更新在线统计量
+    public synchronized void addData(long timestampMillis, double value) {
         a.add(value);
+        stats.add(timestampMillis, value);
     }
-    
-    // 获取数据
-    public ArrayList<Double> getData() {
-        return a;
+
+    // 由SwitchState发布的采样在线程池的处理任务中回调，使用发布时带的采样时间
+    @Override
+    protected void OnData(long timestampMillis, double value) {
+        addData(timestampMillis, value);
+    }
+
+    // 获取数据，按时间顺序返回窗口内采样的副本
+    public synchronized double[] getData() {
+        return a.toArray();
+    }
+
+    // 窗口内的最大值，窗口为空时为NaN
+    public synchronized double getWindowMax() {
+        return a.isEmpty() ? Double.NaN : a.max();
     }
-    
-    // 获取映射
-    public HashMap<String, Double> getMap() {
-        return map;
+
+    // 窗口内的最小值，窗口为空时为NaN
+    public synchronized double getWindowMin() {
+        return a.isEmpty() ? Double.NaN : a.min();
     }
 
-    /*public void fun_c(ArrayList<Float> data){
-        a.add(fun_v(data));
+    // 窗口内的均值，窗口为空时为NaN
+    public synchronized double getWindowMean() {
+        return a.isEmpty() ? Double.NaN : a.mean();
     }
-    public HashMap<String,Double> fun_s(){
 
-        Double a_max = a.max();
-        map.put("前屈",a_max);
+    // 获取在线统计量，采集过程中随时可查询
+    public OnlineGaitStats getStats() {
+        return stats;
+    }
 
-        return map;
-    }*/
+    // 获取映射的副本
+    public synchronized HashMap<String, Double> getMap() {
+        return new HashMap<>(map);
+    }
+
+    //窗口内的最大值作为前屈角度，其余为整次采集的在线统计量
+    public synchronized HashMap<String,Double> fun_s(){
+        if(!a.isEmpty()){
+            map.put("前屈", a.max());
+        }
+        if(stats.getCount() > 0){
+            map.put("均值", stats.getMean());
+            map.put("标准差", stats.getStdDev());
+            map.put("运动幅度", stats.getRangeOfMotion());
+            map.put("步频", stats.getCadence());
+        }
+        return new HashMap<>(map);
+    }
 }
@@ -1,36 +1,146 @@
 package com.example.factorial.src;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import javax.annotation.PostConstruct;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Observer {
+    //每个Observer待处理采样的默认上限
+    public static final int DEFAULT_INBOX_CAPACITY = 1024;
+
     private SwitchState obj;
-    private boolean State;
-    
+    private volatile boolean State;
+
+    //待处理采样及其采样时间，基本类型环形队列，由lock保护
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double[] inbox;
+    private final long[] inboxTimes;
+    private int inboxHead;
+    private int inboxSize;
+    private final double[] batch;   //fun()中复用的批量缓冲
+    private final long[] batchTimes;
+    //已有处理任务在排队或执行，保证同一个Observer同一时刻最多占用一个线程
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
     protected Observer() {
         // 默认无参构造函数，用于Spring依赖注入
         this.State = false;
+        this.inbox = new double[DEFAULT_INBOX_CAPACITY];
+        this.inboxTimes = new long[DEFAULT_INBOX_CAPACITY];
+        this.batch = new double[DEFAULT_INBOX_CAPACITY];
+        this.batchTimes = new long[DEFAULT_INBOX_CAPACITY];
     }
-    
+
+    //构造时不注册，子类字段初始化完成后再调用Register()，避免回调时访问未初始化的字段
     public Observer(SwitchState s){
+        this.inbox = new double[DEFAULT_INBOX_CAPACITY];
+        this.inboxTimes = new long[DEFAULT_INBOX_CAPACITY];
+        this.batch = new double[DEFAULT_INBOX_CAPACITY];
+        this.batchTimes = new long[DEFAULT_INBOX_CAPACITY];
         obj = s;
         State = obj.GetState();
-        s.ObjAdd(this);
     }
-    
+
+    //注册到SwitchState，开始接收状态变化和采样；作为Spring Bean时在构造完成后自动调用
+    @PostConstruct
+    public void Register(){
+        if(obj != null){
+            obj.ObjAdd(this);
+        }
+    }
+
+    //由SwitchState通知状态变化
     public void SetState(){
+        if(obj == null){
+            return;
+        }
         State = obj.GetState();
     }
-    
+
     public boolean GetState(){
         return State;
     }
-    
+
+    //投递一个采样，队列已满时返回false，由发布方决定如何处理
+    public boolean Offer(long timestampMillis, double value){
+        lock.lock();
+        try{
+            if(inboxSize == inbox.length){
+                return false;
+            }
+            int tail = (inboxHead + inboxSize) % inbox.length;
+            inbox[tail] = value;
+            inboxTimes[tail] = timestampMillis;
+            inboxSize++;
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    //当前待处理的采样数
+    public int Pending(){
+        lock.lock();
+        try{
+            return inboxSize;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    //有待处理的采样且还没有处理任务时，向executor提交一个处理任务；没有数据时不占用任何线程
+    void Schedule(Executor executor){
+        if(Pending() > 0 && scheduled.compareAndSet(false, true)){
+            executor.execute(() -> Drain(executor));
+        }
+    }
+
+    //处理一批采样后释放线程，还有剩余时重新排队，让同一线程池中的其他Observer也能得到处理
+    private void Drain(Executor executor){
+        try{
+            fun();
+        }
+        finally {
+            scheduled.set(false);
+        }
+        Schedule(executor);
+    }
+
+    //是否有处理任务在排队或执行
+    public boolean IsRunning(){
+        return scheduled.get();
+    }
+
+    //处理单个采样，timestampMillis为采样时间 (不是处理时间)，子类重写以实现具体算法
+    protected void OnData(long timestampMillis, double value){
+
+    }
+
     //算法组实际承担职能
     //需求沟通后，需要六个Observer类
     //fun()方法支持自命名重构
+    //取出当前已收到的采样逐个处理后返回，不等待新数据；停止采集前已收到的采样同样会被处理
     public void fun() {
-        while(State){
-            System.out.println("1");
+        int n;
+        lock.lock();
+        try{
+            n = inboxSize;
+            for(int i = 0; i < n; i++){
+                int index = (inboxHead + i) % inbox.length;
+                batch[i] = inbox[index];
+                batchTimes[i] = inboxTimes[index];
+            }
+            inboxHead = (inboxHead + n) % inbox.length;
+            inboxSize = 0;
+        }
+        finally {
+            lock.unlock();
+        }
+        for(int i = 0; i < n; i++){
+            OnData(batchTimes[i], batch[i]);
         }
     }
 }
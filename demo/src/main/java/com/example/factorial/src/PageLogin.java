@@ -1,5 +1,6 @@
 package com.example.factorial.src;
 
+import com.example.factorial.src.session.SessionTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -8,6 +9,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api")
 public class PageLogin extends Facade {
@@ -15,6 +20,9 @@ public class PageLogin extends Facade {
     @Autowired
     private JdbcTemplate jdbcTemplate;
     
+    @Autowired
+    private SessionTokenService sessionTokenService;
+    
     //初始化，为每一个页面实例添加权限用户
     //此页面作为初始界面，不需要赋予权限
     @Override
@@ -22,24 +30,35 @@ public class PageLogin extends Facade {
         this.user = user;
     }
     //登录方法
+    //登录成功后签发会话令牌，之后的/api请求凭令牌鉴权，不再查询数据库
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestBody LoginRequest request) {
+    public ResponseEntity<Map<String, Object>> login(@RequestBody LoginRequest request) {
         String username = request.getUsername();
         String password = request.getPassword();
+        Map<String, Object> response = new HashMap<>();
         
         try {
-            // 从数据库中查询用户信息
-            String sql = "SELECT COUNT(*) FROM dsd.users WHERE username = ? AND password = ?";
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, username, password);
+            // 从数据库中查询用户信息，角色以 dsd.users.role 为准
+            String sql = "SELECT role FROM dsd.users WHERE username = ? AND password = ?";
+            List<String> roles = jdbcTemplate.queryForList(sql, String.class, username, password);
             
-            if (count != null && count > 0) {
-                return ResponseEntity.ok("登录成功");
+            if (!roles.isEmpty()) {
+                String role = sessionTokenService.normalizeRole(roles.get(0));
+                response.put("code", 200);
+                response.put("message", "登录成功");
+                response.put("token", sessionTokenService.issue(username, role));
+                response.put("role", role);
+                return ResponseEntity.ok(response);
             } else {
-                return ResponseEntity.status(401).body("用户名或密码错误");
+                response.put("code", 401);
+                response.put("message", "用户名或密码错误");
+                return ResponseEntity.status(401).body(response);
             }
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(500).body("服务器错误: " + e.getMessage());
+            response.put("code", 500);
+            response.put("message", "服务器错误: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
         }
     }
     @PostMapping("/Signup")
@@ -1,5 +1,7 @@
 package com.example.factorial.src;
 
+import java.util.BitSet;
+
 public abstract class PermissionBase {
 
 
@@ -8,4 +10,7 @@ public abstract class PermissionBase {
     abstract boolean check(String per);
 
     abstract void remove(PermissionBase leaf);
+
+    //收集该节点拥有的全部权限码下标，用于编译PermissionSet
+    abstract void collect(BitSet bits);
 }
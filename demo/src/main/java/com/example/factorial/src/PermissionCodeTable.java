@@ -0,0 +1,50 @@
+package com.example.factorial.src;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+* 权限码表
+* 每个权限字符串驻留为唯一的整数下标，编译后的权限集合按下标检查
+* */
+public class PermissionCodeTable {
+    private PermissionCodeTable(){
+
+    }
+    static final PermissionCodeTable Instance = new PermissionCodeTable();
+    static public PermissionCodeTable GetSingleton(){
+        return Instance;
+    }
+
+    private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<String, Integer>();
+    private final ArrayList<String> codes = new ArrayList<String>();
+
+    //注册权限码，已存在时返回原下标
+    public synchronized int Register(String code){
+        Integer i = index.get(code);
+        if(i != null){
+            return i;
+        }
+        int next = codes.size();
+        codes.add(code);
+        index.put(code, next);
+        return next;
+    }
+
+    //查询权限码下标，未注册返回-1
+    public int IndexOf(String code){
+        if(code == null){
+            return -1;
+        }
+        Integer i = index.get(code);
+        return i == null ? -1 : i;
+    }
+
+    public synchronized String CodeAt(int i){
+        return codes.get(i);
+    }
+
+    public synchronized int Size(){
+        return codes.size();
+    }
+}
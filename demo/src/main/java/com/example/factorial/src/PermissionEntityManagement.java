@@ -1,5 +1,9 @@
 package com.example.factorial.src;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 public class PermissionEntityManagement {
     private PermissionEntityManagement(){
 
@@ -23,6 +27,22 @@ public class PermissionEntityManagement {
     public PermissionNode GetAll(){
         return all;
     }
+    public PermissionSet GetDocSet(){
+        return Compiled(Doctor);
+    }
+    public PermissionSet GetPatSet(){
+        return Compiled(patinent);
+    }
+    public PermissionSet GetAdmSet(){
+        return Compiled(Admin);
+    }
+    public PermissionSet GetAllSet(){
+        return Compiled(all);
+    }
+    //查询某个角色节点编译后的权限集合，未编译时返回null
+    public PermissionSet Compiled(PermissionBase role){
+        return compiled.get(role);
+    }
 
 
     PermissionNode Doctor = new PermissionNode();
@@ -38,7 +58,15 @@ public class PermissionEntityManagement {
     PermissionBase p4 = new PermissionLeaf("患者管理");
     PermissionBase p5 = new PermissionLeaf("选择患者");
     PermissionBase p6 = new PermissionLeaf("数据采集");
-    public void INTI(){
+    //各角色编译后的权限集合，INTI时生成
+    private volatile Map<PermissionBase, PermissionSet> compiled = Collections.emptyMap();
+    private boolean initialized = false;
+    //重复调用时不会重复添加节点
+    public synchronized void INTI(){
+        if(initialized){
+            return;
+        }
+        initialized = true;
         patinent.add(p2);
         Admin.add(p1);
         Doctor.add(p3);
@@ -49,6 +77,14 @@ public class PermissionEntityManagement {
         Doctor.add(patinent);
         all.add(Doctor);
         all.add(Admin);
+
+        //权限树在此之后不再修改，一次性编译为位图
+        Map<PermissionBase, PermissionSet> m = new IdentityHashMap<PermissionBase, PermissionSet>();
+        m.put(Doctor, PermissionSet.Compile(Doctor));
+        m.put(patinent, PermissionSet.Compile(patinent));
+        m.put(Admin, PermissionSet.Compile(Admin));
+        m.put(all, PermissionSet.Compile(all));
+        compiled = Collections.unmodifiableMap(m);
     }
 
 }
@@ -1,5 +1,7 @@
 package com.example.factorial.src;
 
+import java.util.BitSet;
+
 /*
 * 权限树的权限实体节点
 * 用String描述权限
@@ -7,8 +9,10 @@ package com.example.factorial.src;
 * */
 public class PermissionLeaf extends PermissionBase {
     private String pCode;
+    private final int index;    //在PermissionCodeTable中的下标
     public PermissionLeaf(String p){
         pCode = p;
+        index = PermissionCodeTable.GetSingleton().Register(p);
     }
 
     public String getpCode() {
@@ -23,11 +27,16 @@ public class PermissionLeaf extends PermissionBase {
 
     @Override
     public boolean check(String per) {
-        return pCode == per;
+        return pCode.equals(per);
     }
 
     @Override
     void remove(PermissionBase leaf) {
 
     }
+
+    @Override
+    void collect(BitSet bits) {
+        bits.set(index);
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.factorial.src;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 /*
 * 权限的用户实体
 * 组合了若干叶节点或用户节点
@@ -29,4 +30,11 @@ public class PermissionNode extends PermissionBase{
     public void remove(PermissionBase leaf) {
         pList.remove(leaf);
     }
+
+    @Override
+    void collect(BitSet bits) {
+        for (PermissionBase permissionBase : pList) {
+            permissionBase.collect(bits);
+        }
+    }
 }
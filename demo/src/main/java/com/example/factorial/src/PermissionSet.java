@@ -0,0 +1,44 @@
+package com.example.factorial.src;
+
+import java.util.BitSet;
+
+/*
+* 编译后的不可变权限集合
+* 由权限树一次性展开为位图，检查时不再递归遍历
+* */
+public final class PermissionSet {
+    private final long[] words;
+
+    private PermissionSet(long[] words){
+        this.words = words;
+    }
+
+    //展开权限树，收集所有叶节点的权限码
+    public static PermissionSet Compile(PermissionBase root){
+        BitSet bits = new BitSet();
+        root.collect(bits);
+        //多留一个字，保证任意已注册下标的检查都不越界
+        long[] words = new long[(PermissionCodeTable.GetSingleton().Size() >>> 6) + 1];
+        long[] set = bits.toLongArray();
+        System.arraycopy(set, 0, words, 0, set.length);
+        return new PermissionSet(words);
+    }
+
+    //空权限集合
+    public static PermissionSet Empty(){
+        return new PermissionSet(new long[1]);
+    }
+
+    //按权限码下标检查，未注册的下标(-1)返回false
+    public boolean check(int code){
+        int w = code >>> 6;
+        if(w >= words.length){
+            return false;
+        }
+        return ((words[w] >>> code) & 1L) != 0;
+    }
+
+    public boolean check(String per){
+        return check(PermissionCodeTable.GetSingleton().IndexOf(per));
+    }
+}
@@ -14,19 +14,37 @@ import org.springframework.stereotype.Component;
 public class SafeProxy{
     private final DataBase dataBase;
     private String permission;
+    private int permissionIndex;    //permission在PermissionCodeTable中的下标，未设置时为-1 (没有任何权限)
     
     @Autowired
     public SafeProxy(DataBase dataBase){
         this.dataBase = dataBase;
         this.permission = "default";
+        this.permissionIndex = -1;
     }
     
+    //只接受权限树叶节点中已有的权限码，未知的权限码不会加入全局码表
     public void setPermission(String permission) {
+        PermissionEntityManagement.GetSingleton();  //创建权限树时叶节点注册各自的权限码
+        int index = PermissionCodeTable.GetSingleton().IndexOf(permission);
+        if(index < 0){
+            throw new IllegalArgumentException("未知的权限码: " + permission);
+        }
         this.permission = permission;
+        this.permissionIndex = index;
+    }
+    
+    //优先使用编译后的权限集合，未编译的节点退回到递归检查
+    public boolean Check(PermissionBase p){
+        PermissionSet set = PermissionEntityManagement.GetSingleton().Compiled(p);
+        if(set != null){
+            return set.check(permissionIndex);
+        }
+        return p.check(permission);
     }
     
     public int GET(PermissionBase p){
-        if(p.check(permission)){
+        if(Check(p)){
             System.out.println("当前权限可以访问");
             return dataBase.GETDATE();
         }
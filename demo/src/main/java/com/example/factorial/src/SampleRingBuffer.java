@@ -0,0 +1,160 @@
+package com.example.factorial.src;
+
+/*
+* 固定容量的传感器采样环形缓冲区
+* 使用基本类型double[]存储，写入时不装箱、不分配内存
+* 窗口为最近capacity个采样，O(1)查询窗口内的最大/最小/均值/方差
+* 六个Observer传感器都可以复用
+* */
+public class SampleRingBuffer {
+    private final double[] data;
+    private final int capacity;
+    private long count;       //累计写入的采样数，同时作为下一个采样的序号
+
+    //单调队列，保存采样序号，用于滑动窗口最大值/最小值
+    private final long[] maxQueue;
+    private int maxHead;
+    private int maxSize;
+    private final long[] minQueue;
+    private int minHead;
+    private int minSize;
+
+    //滑动窗口Welford统计量
+    private double mean;
+    private double m2;
+
+    public SampleRingBuffer(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.data = new double[capacity];
+        this.maxQueue = new long[capacity];
+        this.minQueue = new long[capacity];
+    }
+
+    //写入一个采样，缓冲区满时覆盖最旧的采样
+    public void add(double value){
+        int size = size();
+        int slot = (int) (count % capacity);
+        if(size == capacity){
+            double evicted = data[slot];
+            double oldMean = mean;
+            mean += (value - evicted) / capacity;
+            m2 += (value - evicted) * (value - mean + evicted - oldMean);
+            if(m2 < 0){
+                m2 = 0;
+            }
+        }
+        else{
+            double delta = value - mean;
+            mean += delta / (size + 1);
+            m2 += delta * (value - mean);
+        }
+        data[slot] = value;
+
+        long seq = count++;
+        long oldest = count - capacity;
+        //最大值队列：队尾比新值小的采样不可能再成为最大值
+        while(maxSize > 0 && data[slotOf(maxQueue[(maxHead + maxSize - 1) % capacity])] <= value){
+            maxSize--;
+        }
+        if(maxSize > 0 && maxQueue[maxHead] < oldest){
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize) % capacity] = seq;
+        maxSize++;
+        //最小值队列
+        while(minSize > 0 && data[slotOf(minQueue[(minHead + minSize - 1) % capacity])] >= value){
+            minSize--;
+        }
+        if(minSize > 0 && minQueue[minHead] < oldest){
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        minQueue[(minHead + minSize) % capacity] = seq;
+        minSize++;
+    }
+
+    private int slotOf(long seq){
+        return (int) (seq % capacity);
+    }
+
+    public int size(){
+        return (int) Math.min(count, capacity);
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public boolean isEmpty(){
+        return count == 0;
+    }
+
+    //累计写入的采样数 (包括已被覆盖的)
+    public long totalCount(){
+        return count;
+    }
+
+    //按时间顺序取第i个采样，0为窗口内最旧的采样
+    public double get(int i){
+        int size = size();
+        if(i < 0 || i >= size){
+            throw new IndexOutOfBoundsException("index: " + i + ", size: " + size);
+        }
+        return data[slotOf(count - size + i)];
+    }
+
+    //最新的采样
+    public double last(){
+        checkNotEmpty();
+        return data[slotOf(count - 1)];
+    }
+
+    public double max(){
+        checkNotEmpty();
+        return data[slotOf(maxQueue[maxHead])];
+    }
+
+    public double min(){
+        checkNotEmpty();
+        return data[slotOf(minQueue[minHead])];
+    }
+
+    public double mean(){
+        checkNotEmpty();
+        return mean;
+    }
+
+    //总体方差
+    public double variance(){
+        checkNotEmpty();
+        return m2 / size();
+    }
+
+    //按时间顺序复制窗口内的采样
+    public double[] toArray(){
+        int size = size();
+        double[] out = new double[size];
+        for(int i = 0; i < size; i++){
+            out[i] = data[slotOf(count - size + i)];
+        }
+        return out;
+    }
+
+    public void clear(){
+        count = 0;
+        maxHead = maxSize = 0;
+        minHead = minSize = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    private void checkNotEmpty(){
+        if(count == 0){
+            throw new IllegalStateException("缓冲区为空");
+        }
+    }
+}
@@ -1,15 +1,46 @@
 package com.example.factorial.src;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
 import org.springframework.stereotype.Component;
 
+/*
+* 采集开关，Observer模式的被观察者
+* 状态切换通知每个Observer；新数据放入Observer的队列后，在共享线程池中提交一个短小的处理任务，
+* 处理完已收到的数据即释放线程。没有数据的Observer不占用线程，Observer再多也只使用固定数量的线程
+* */
 @Component
 public class SwitchState {
-    private boolean state=false;
-    private ArrayList<Observer> List = new ArrayList<Observer>();
+    private volatile boolean state=false;
+    //订阅者列表，通知时遍历快照，注册/注销不会与通知互相干扰
+    private final List<Observer> List = new CopyOnWriteArrayList<Observer>();
+    //执行Observer处理任务的线程池，由本对象创建时在shutdown()中关闭
+    private final Executor dispatcher;
+    private final ExecutorService ownedDispatcher;
+
+    public SwitchState(){
+        this.ownedDispatcher = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), new ObserverThreadFactory());
+        this.dispatcher = ownedDispatcher;
+    }
+
+    //使用调用方的线程池，例如与实时采集连接共用工作线程；线程池由调用方关闭
+    public SwitchState(Executor dispatcher){
+        this.dispatcher = dispatcher;
+        this.ownedDispatcher = null;
+    }
 
     public void ObjAdd(Observer o){
         List.add(o);
+        if(state){
+            Notify(o);
+        }
     }
     public void remove(Observer o){
         List.remove(o);
@@ -17,7 +48,7 @@ public class SwitchState {
     public boolean GetState(){
         return state;
     }
-    public void Switch(){
+    public synchronized void Switch(){
         this.state= !this.state;
         for(Observer o : List){
             Notify(o);
@@ -25,5 +56,46 @@ public class SwitchState {
     }
     public void Notify(Observer b){
         b.SetState();
+        b.Schedule(dispatcher);
+    }
+    //向所有Observer发布一个以当前时间为采样时间的采样
+    public int Publish(double value){
+        return Publish(System.currentTimeMillis(), value);
+    }
+    //向所有Observer发布一个采样，返回接收该采样的Observer数量，未开始采集时忽略
+    public int Publish(long timestampMillis, double value){
+        if(!state){
+            return 0;
+        }
+        int accepted = 0;
+        for(Observer o : List){
+            if(o.Offer(timestampMillis, value)){
+                accepted++;
+                o.Schedule(dispatcher);
+            }
+        }
+        return accepted;
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        state = false;
+        for(Observer o : List){
+            o.SetState();
+        }
+        if(ownedDispatcher != null){
+            ownedDispatcher.shutdown();
+        }
+    }
+
+    private static class ObserverThreadFactory implements ThreadFactory {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "observer-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
     }
 }
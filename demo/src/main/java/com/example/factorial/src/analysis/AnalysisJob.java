@@ -0,0 +1,113 @@
+package com.example.factorial.src.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次上传对应的异步步态分析任务
+ * 状态由工作线程更新，查询线程通过 {@link #toMap()} 读取
+ */
+public class AnalysisJob {
+
+    public enum Status {
+        QUEUED,   // 排队中
+        RUNNING,  // 分析中
+        DONE,     // 已完成，报告已写入
+        FAILED    // 失败
+    }
+
+    private final String id;
+    private final String patientId;
+    private final long recordId;
+    private final long submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile GaitMetrics metrics;
+    private volatile String error;
+
+    public AnalysisJob(String id, String patientId, long recordId) {
+        this.id = id;
+        this.patientId = patientId;
+        this.recordId = recordId;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public long getRecordId() {
+        return recordId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public GaitMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** 失败原因，未失败时为null */
+    public String getError() {
+        return error;
+    }
+
+    public void markRunning() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void markDone(GaitMetrics metrics) {
+        this.metrics = metrics;
+        finishedAt = System.currentTimeMillis();
+        status = Status.DONE;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        Status s = status;
+        return s == Status.DONE || s == Status.FAILED;
+    }
+
+    /**
+     * 任务状态和结果，用于接口返回
+     */
+    public Map<String, Object> toMap() {
+        Status s = status;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("status", s.name());
+        map.put("patientId", patientId);
+        map.put("recordId", recordId);
+        map.put("submittedAt", submittedAt);
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+        }
+        if (s == Status.DONE) {
+            map.put("finishedAt", finishedAt);
+            map.put("labels", metrics.getLabels());
+            map.put("motionRange", metrics.getMotionRange());
+            map.put("score", metrics.getScore());
+            map.put("cycles", metrics.getCycles());
+        } else if (s == Status.FAILED) {
+            map.put("finishedAt", finishedAt);
+            map.put("error", error);
+        }
+        return map;
+    }
+}
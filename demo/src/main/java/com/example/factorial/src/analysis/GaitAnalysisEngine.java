@@ -0,0 +1,294 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 步态指标计算
+ * <p>
+ * 每个传感器按 Pitch 角检测步态周期 (去均值后带回差的上穿零点)，
+ * 再对每个 设备 × 角度通道 (Roll、Pitch) 计算每个周期内的角度范围：
+ * 运动幅度取各周期范围的中位数，得分由各周期范围的变异系数换算为 0-10 分。
+ * 设备之间、通道之间和周期之间都在 fork/join 线程池上并行计算。
+ */
+@Service
+public class GaitAnalysisEngine {
+
+    private static final int ROLL = indexOf("Roll");
+    private static final int PITCH = indexOf("Pitch");
+    static final int[] ANGLE_CHANNELS = {ROLL, PITCH};
+
+    static final long MIN_CYCLE_MILLIS = 300;   // 短于此的周期视为噪声
+    static final long MAX_CYCLE_MILLIS = 4000;  // 长于此的周期视为停顿
+    private static final int CYCLES_PER_TASK = 64;      // 周期数超过此值时拆分任务
+
+    private final ForkJoinPool pool;
+
+    public GaitAnalysisEngine(@Value("${app.analysis.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 分析一次采集的全部采样
+     */
+    public GaitMetrics analyze(SensorSession session) {
+        String[] devices = session.getDevices();
+        Integer[] order = new Integer[devices.length];
+        for (int d = 0; d < devices.length; d++) {
+            order[d] = d;
+        }
+        // 按设备ID排序，保证结果顺序稳定
+        Arrays.sort(order, (a, b) -> String.valueOf(devices[a]).compareTo(String.valueOf(devices[b])));
+
+        int entries = devices.length * ANGLE_CHANNELS.length;
+        String[] labels = new String[entries];
+        double[] motionRange = new double[entries];
+        int[] score = new int[entries];
+        int[] cycles = new int[entries];
+        List<DeviceTask> tasks = new ArrayList<>(devices.length);
+        for (int i = 0; i < order.length; i++) {
+            tasks.add(new DeviceTask(session, order[i], i * ANGLE_CHANNELS.length, labels, motionRange, score, cycles));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        return new GaitMetrics(labels, motionRange, score, cycles);
+    }
+
+    /**
+     * 单个设备：抽取该设备的采样，检测步态周期，再并行计算各角度通道
+     */
+    private static final class DeviceTask extends RecursiveAction {
+        private final SensorSession session;
+        private final int device;
+        private final int offset;
+        private final String[] labels;
+        private final double[] motionRange;
+        private final int[] score;
+        private final int[] cycles;
+
+        DeviceTask(SensorSession session, int device, int offset, String[] labels,
+                   double[] motionRange, int[] score, int[] cycles) {
+            this.session = session;
+            this.device = device;
+            this.offset = offset;
+            this.labels = labels;
+            this.motionRange = motionRange;
+            this.score = score;
+            this.cycles = cycles;
+        }
+
+        @Override
+        protected void compute() {
+            int[] deviceIndexes = session.getDeviceIndexes();
+            int n = 0;
+            for (int i = 0; i < session.size(); i++) {
+                if (deviceIndexes[i] == device) {
+                    n++;
+                }
+            }
+            int[] rows = new int[n];
+            for (int i = 0, k = 0; i < session.size(); i++) {
+                if (deviceIndexes[i] == device) {
+                    rows[k++] = i;
+                }
+            }
+            long[] timestamps = new long[n];
+            for (int k = 0; k < n; k++) {
+                timestamps[k] = session.getTimestamps()[rows[k]];
+            }
+            double[][] angles = new double[ANGLE_CHANNELS.length][n];
+            for (int c = 0; c < ANGLE_CHANNELS.length; c++) {
+                double[] column = session.getChannel(ANGLE_CHANNELS[c]);
+                for (int k = 0; k < n; k++) {
+                    angles[c][k] = column[rows[k]];
+                }
+            }
+
+            int[] boundaries = detectCycles(angles[1], timestamps);
+            List<ChannelTask> channelTasks = new ArrayList<>(ANGLE_CHANNELS.length);
+            for (int c = 0; c < ANGLE_CHANNELS.length; c++) {
+                labels[offset + c] = session.getDevices()[device] + "/" + SensorCsvParser.CHANNELS[ANGLE_CHANNELS[c]];
+                channelTasks.add(new ChannelTask(angles[c], boundaries, offset + c, motionRange, score, cycles));
+            }
+            invokeAll(channelTasks);
+        }
+    }
+
+    /**
+     * 单个角度通道：并行计算各周期的角度范围，再汇总为运动幅度和得分
+     */
+    private static final class ChannelTask extends RecursiveAction {
+        private final double[] signal;
+        private final int[] boundaries;
+        private final int entry;
+        private final double[] motionRange;
+        private final int[] score;
+        private final int[] cycles;
+
+        ChannelTask(double[] signal, int[] boundaries, int entry, double[] motionRange, int[] score, int[] cycles) {
+            this.signal = signal;
+            this.boundaries = boundaries;
+            this.entry = entry;
+            this.motionRange = motionRange;
+            this.score = score;
+            this.cycles = cycles;
+        }
+
+        @Override
+        protected void compute() {
+            int count = boundaries.length / 2;
+            cycles[entry] = count;
+            if (count <= 0) {
+                return;
+            }
+            double[] ranges = new double[count];
+            new CycleRangeTask(signal, boundaries, ranges, 0, count).compute();
+
+            double[] sorted = ranges.clone();
+            Arrays.sort(sorted);
+            double median = count % 2 == 1 ? sorted[count / 2] : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+            double mean = 0;
+            for (double r : ranges) {
+                mean += r;
+            }
+            mean /= count;
+            double variance = 0;
+            for (double r : ranges) {
+                variance += (r - mean) * (r - mean);
+            }
+            motionRange[entry] = median;
+            score[entry] = score(mean, Math.sqrt(variance / count));
+        }
+    }
+
+    /**
+     * 计算第 [from, to) 个周期各自的角度范围 (最大值 - 最小值)
+     */
+    private static final class CycleRangeTask extends RecursiveAction {
+        private final double[] signal;
+        private final int[] boundaries;
+        private final double[] ranges;
+        private final int from;
+        private final int to;
+
+        CycleRangeTask(double[] signal, int[] boundaries, double[] ranges, int from, int to) {
+            this.signal = signal;
+            this.boundaries = boundaries;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CYCLES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CycleRangeTask(signal, boundaries, ranges, from, mid),
+                        new CycleRangeTask(signal, boundaries, ranges, mid, to));
+                return;
+            }
+            for (int c = from; c < to; c++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = boundaries[2 * c]; i < boundaries[2 * c + 1]; i++) {
+                    double v = signal[i];
+                    if (v < min) {
+                        min = v;
+                    }
+                    if (v > max) {
+                        max = v;
+                    }
+                }
+                ranges[c] = max - min;
+            }
+        }
+    }
+
+    /**
+     * 检测步态周期，返回 [起点0, 终点0, 起点1, 终点1, ...] (终点不含)
+     * 检测不到完整周期时把整段数据当作一个周期
+     */
+    static int[] detectCycles(double[] signal, long[] timestamps) {
+        int n = signal.length;
+        if (n < 2) {
+            return n == 0 ? new int[0] : new int[]{0, n};
+        }
+        double mean = 0;
+        for (double v : signal) {
+            mean += v;
+        }
+        mean /= n;
+        double variance = 0;
+        for (double v : signal) {
+            variance += (v - mean) * (v - mean);
+        }
+        double hysteresis = 0.1 * Math.sqrt(variance / n);
+
+        int[] crossings = new int[16];
+        int count = 0;
+        boolean below = signal[0] - mean < -hysteresis;
+        for (int i = 1; i < n; i++) {
+            double v = signal[i] - mean;
+            if (below && v > hysteresis) {
+                below = false;
+                if (count == 0 || timestamps[i] - timestamps[crossings[count - 1]] >= MIN_CYCLE_MILLIS) {
+                    if (count == crossings.length) {
+                        crossings = Arrays.copyOf(crossings, count * 2);
+                    }
+                    crossings[count++] = i;
+                }
+            } else if (v < -hysteresis) {
+                below = true;
+            }
+        }
+
+        // 相邻两个上穿点构成一个周期，过长的间隔 (停顿) 不计入
+        int[] cycles = new int[Math.max(0, count - 1) * 2];
+        int c = 0;
+        for (int k = 0; k + 1 < count; k++) {
+            if (timestamps[crossings[k + 1]] - timestamps[crossings[k]] <= MAX_CYCLE_MILLIS) {
+                cycles[c++] = crossings[k];
+                cycles[c++] = crossings[k + 1];
+            }
+        }
+        if (c == 0) {
+            return new int[]{0, n};
+        }
+        return Arrays.copyOf(cycles, c);
+    }
+
+    /**
+     * 由各周期角度范围的均值和标准差计算得分 (0-10)：变异系数越小得分越高
+     */
+    static int score(double rangeMean, double rangeStdDev) {
+        double cv = rangeMean > 0 ? rangeStdDev / rangeMean : 1;
+        return (int) Math.max(0, Math.min(10, Math.round(10 - 20 * cv)));
+    }
+
+    private static int indexOf(String channel) {
+        for (int i = 0; i < SensorCsvParser.CHANNELS.length; i++) {
+            if (SensorCsvParser.CHANNELS[i].equals(channel)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("未知通道: " + channel);
+    }
+}
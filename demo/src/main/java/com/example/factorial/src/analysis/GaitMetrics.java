@@ -0,0 +1,69 @@
+package com.example.factorial.src.analysis;
+
+/**
+ * 一次采集的步态分析结果
+ * motionRange[i] 和 score[i] 对应 labels[i] 描述的 设备/角度 组合，
+ * 与 patient_reports 的 motion_range (运动幅度) 和 score (得分) 列一一对应
+ */
+public class GaitMetrics {
+
+    private final String[] labels;
+    private final double[] motionRange;
+    private final int[] score;
+    private final int[] cycles;
+
+    public GaitMetrics(String[] labels, double[] motionRange, int[] score, int[] cycles) {
+        this.labels = labels;
+        this.motionRange = motionRange;
+        this.score = score;
+        this.cycles = cycles;
+    }
+
+    /** 每一项的描述，如 "dev1/Pitch" */
+    public String[] getLabels() {
+        return labels;
+    }
+
+    /** 每一项的运动幅度 (度)，为各步态周期内角度范围的中位数 */
+    public double[] getMotionRange() {
+        return motionRange;
+    }
+
+    /** 每一项的得分 (0-10)，由各步态周期运动幅度的一致性计算 */
+    public int[] getScore() {
+        return score;
+    }
+
+    /** 每一项检测到的步态周期数 */
+    public int[] getCycles() {
+        return cycles;
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    /** 运动幅度的 JSON 数组文本，保留一位小数 */
+    public String motionRangeJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < motionRange.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Math.round(motionRange[i] * 10) / 10.0);
+        }
+        return sb.append(']').toString();
+    }
+
+    /** 得分的 JSON 数组文本 */
+    public String scoreJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < score.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(score[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSampleHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按设备维护各角度通道 (Roll、Pitch) 的 {@link OnlineGaitStats}
+ * 可以直接作为解析器或实时采集的采样回调，采集过程中随时调用 {@link #snapshot()} 查看当前指标
+ */
+public class GaitStatsTracker implements SensorSampleHandler {
+
+    private final Map<String, OnlineGaitStats[]> devices = new ConcurrentHashMap<>();
+
+    @Override
+    public void onSample(long timestampMillis, String deviceId, double[] values) {
+        OnlineGaitStats[] stats = devices.get(deviceId);
+        if (stats == null) {
+            stats = devices.computeIfAbsent(deviceId, k -> newStats());
+        }
+        for (int c = 0; c < stats.length; c++) {
+            stats[c].add(timestampMillis, values[GaitAnalysisEngine.ANGLE_CHANNELS[c]]);
+        }
+    }
+
+    private static OnlineGaitStats[] newStats() {
+        OnlineGaitStats[] stats = new OnlineGaitStats[GaitAnalysisEngine.ANGLE_CHANNELS.length];
+        for (int c = 0; c < stats.length; c++) {
+            stats[c] = new OnlineGaitStats();
+        }
+        return stats;
+    }
+
+    /**
+     * 某个设备某个通道的统计量，没有该设备的采样时返回null
+     * @param channel 通道名，如 "Pitch"
+     */
+    public OnlineGaitStats get(String deviceId, String channel) {
+        OnlineGaitStats[] stats = devices.get(deviceId);
+        if (stats == null) {
+            return null;
+        }
+        for (int c = 0; c < stats.length; c++) {
+            if (SensorCsvParser.CHANNELS[GaitAnalysisEngine.ANGLE_CHANNELS[c]].equals(channel)) {
+                return stats[c];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前各 设备/通道 的指标，按设备ID排序，键的格式与 {@link GaitMetrics#getLabels()} 一致
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        List<String> ids = new ArrayList<>(devices.keySet());
+        Collections.sort(ids);
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            OnlineGaitStats[] stats = devices.get(id);
+            for (int c = 0; c < stats.length; c++) {
+                OnlineGaitStats s = stats[c];
+                Map<String, Object> entry = new LinkedHashMap<>();
+                synchronized (s) {
+                    entry.put("samples", s.getCount());
+                    entry.put("mean", s.getMean());
+                    entry.put("stdDev", s.getStdDev());
+                    entry.put("min", s.getMin());
+                    entry.put("max", s.getMax());
+                    entry.put("rangeOfMotion", s.getRangeOfMotion());
+                    entry.put("cycles", s.getCycles());
+                    entry.put("cadence", s.getCadence());
+                    entry.put("score", s.getScore());
+                }
+                result.put(id + "/" + SensorCsvParser.CHANNELS[GaitAnalysisEngine.ANGLE_CHANNELS[c]], entry);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        devices.clear();
+    }
+}
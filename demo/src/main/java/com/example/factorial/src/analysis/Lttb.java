@@ -0,0 +1,87 @@
+package com.example.factorial.src.analysis;
+
+/**
+ * Largest-Triangle-Three-Buckets 降采样
+ * <p>
+ * 首尾两点保留，其余点均分到 threshold - 2 个桶中，每个桶选出与
+ * 上一个选中点、下一个桶均值点构成三角形面积最大的点。折线的峰谷形状能被保留，
+ * 适合把很长的序列缩减为图表实际能显示的点数。
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * 选出降采样后保留的点
+     * @param x 横坐标，必须非递减；为null时以下标为横坐标
+     * @param y 纵坐标
+     * @param size 序列长度 (x、y可以比它长)
+     * @param threshold 目标点数
+     * @return 保留点的下标，递增；threshold不小于size或小于3时返回全部下标
+     */
+    public static int[] select(long[] x, double[] y, int size, int threshold) {
+        if (threshold >= size || threshold < 3) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        // 横坐标换算为相对首点的偏移，避免大的时间戳转为double时损失精度
+        long x0 = x == null ? 0 : x[0];
+        int[] selected = new int[threshold];
+        double every = (double) (size - 2) / (threshold - 2);
+        int a = 0;
+        selected[0] = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // 下一个桶的均值点
+            int avgStart = (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) ((i + 2) * every) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x == null ? j : x[j] - x0;
+                avgY += y[j];
+            }
+            int avgCount = avgEnd - avgStart;
+            avgX /= avgCount;
+            avgY /= avgCount;
+
+            // 当前桶中与上一个选中点、下一个桶均值点构成三角形面积最大的点
+            int rangeStart = (int) (i * every) + 1;
+            int rangeEnd = (int) ((i + 1) * every) + 1;
+            double ax = x == null ? a : x[a] - x0;
+            double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double bx = x == null ? j : x[j] - x0;
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - bx) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            selected[i + 1] = next;
+            a = next;
+        }
+        selected[threshold - 1] = size - 1;
+        return selected;
+    }
+
+    /**
+     * 以下标为横坐标降采样
+     */
+    public static double[] downsample(double[] y, int threshold) {
+        if (threshold >= y.length || threshold < 3) {
+            return y;
+        }
+        int[] selected = select(null, y, y.length, threshold);
+        double[] result = new double[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            result[i] = y[selected[i]];
+        }
+        return result;
+    }
+}
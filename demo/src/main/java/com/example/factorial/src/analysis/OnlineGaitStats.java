@@ -0,0 +1,152 @@
+package com.example.factorial.src.analysis;
+
+/**
+ * 单个角度信号的在线步态统计量
+ * <p>
+ * 每个采样 O(1) 更新，不保存历史数据，随时可以查询：
+ * 均值/方差 (Welford)、极值、运动幅度 (最大值 - 最小值)、步态周期数、步频，
+ * 以及各周期角度范围的均值和一致性得分。
+ * 周期检测与 {@link GaitAnalysisEngine} 相同：相对当前均值带回差的上穿点，
+ * 只是均值和标准差使用到目前为止的在线估计。
+ * <p>
+ * 方法都是同步的，采集线程写入的同时可以从其他线程查询。
+ */
+public class OnlineGaitStats {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // 周期检测状态
+    private boolean below;
+    private long lastCrossing = -1;
+    private double cycleMin = Double.POSITIVE_INFINITY;
+    private double cycleMax = Double.NEGATIVE_INFINITY;
+
+    // 已完成周期的统计
+    private long cycles;
+    private long cycleMillis;
+    private double rangeMean;
+    private double rangeM2;
+
+    /**
+     * 加入一个采样
+     * @param timestampMillis 采样时间 (毫秒)，应单调不减
+     */
+    public synchronized void add(long timestampMillis, double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+
+        double hysteresis = 0.1 * Math.sqrt(m2 / count);
+        double centered = value - mean;
+        if (below && centered > hysteresis) {
+            below = false;
+            onUpwardCrossing(timestampMillis);
+        } else if (centered < -hysteresis) {
+            below = true;
+        }
+        if (value < cycleMin) {
+            cycleMin = value;
+        }
+        if (value > cycleMax) {
+            cycleMax = value;
+        }
+    }
+
+    private void onUpwardCrossing(long timestampMillis) {
+        if (lastCrossing >= 0) {
+            long duration = timestampMillis - lastCrossing;
+            if (duration < GaitAnalysisEngine.MIN_CYCLE_MILLIS) {
+                return;  // 噪声，继续当前周期
+            }
+            if (duration <= GaitAnalysisEngine.MAX_CYCLE_MILLIS) {
+                cycles++;
+                cycleMillis += duration;
+                double range = cycleMax - cycleMin;
+                double d = range - rangeMean;
+                rangeMean += d / cycles;
+                rangeM2 += d * (range - rangeMean);
+            }
+            // 过长的间隔视为停顿，不计入周期
+        }
+        lastCrossing = timestampMillis;
+        cycleMin = Double.POSITIVE_INFINITY;
+        cycleMax = Double.NEGATIVE_INFINITY;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /** 总体方差 */
+    public synchronized double getVariance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    public synchronized double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public synchronized double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public synchronized double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /** 运动幅度：到目前为止的最大值 - 最小值 */
+    public synchronized double getRangeOfMotion() {
+        return count == 0 ? 0 : max - min;
+    }
+
+    /** 已完成的步态周期数 */
+    public synchronized long getCycles() {
+        return cycles;
+    }
+
+    /** 步频 (周期/分钟)，按已完成周期的平均时长计算，不含停顿 */
+    public synchronized double getCadence() {
+        return cycleMillis == 0 ? 0 : cycles * 60000.0 / cycleMillis;
+    }
+
+    /** 各周期角度范围的均值 */
+    public synchronized double getCycleRangeMean() {
+        return rangeMean;
+    }
+
+    /** 得分 (0-10)，由各周期角度范围的变异系数换算，与批量分析一致 */
+    public synchronized int getScore() {
+        return cycles == 0 ? 0 : GaitAnalysisEngine.score(rangeMean, Math.sqrt(rangeM2 / cycles));
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        below = false;
+        lastCrossing = -1;
+        cycleMin = Double.POSITIVE_INFINITY;
+        cycleMax = Double.NEGATIVE_INFINITY;
+        cycles = 0;
+        cycleMillis = 0;
+        rangeMean = 0;
+        rangeM2 = 0;
+    }
+}
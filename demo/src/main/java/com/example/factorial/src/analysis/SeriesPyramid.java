@@ -0,0 +1,195 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorSession;
+
+/**
+ * 一次采集的多分辨率降采样序列，供前端绘图
+ * <p>
+ * 分析时为每个 设备 × 通道 预先用 {@link Lttb} 计算若干档分辨率 (默认 2048、512、128 点)，
+ * 请求任意点数时取不少于该点数的最小一档再降采样，计算量与原始序列长度无关；
+ * 请求的点数超过最高一档时返回null，由调用方从原始数据计算。
+ */
+public class SeriesPyramid {
+
+    public static final int[] DEFAULT_LEVELS = {2048, 512, 128};
+
+    private final String[] devices;
+    private final int[] sourceSizes;
+    private final Series[][][] levels; // [设备][通道][档位]，档位按点数从多到少
+
+    private SeriesPyramid(String[] devices, int[] sourceSizes, Series[][][] levels) {
+        this.devices = devices;
+        this.sourceSizes = sourceSizes;
+        this.levels = levels;
+    }
+
+    public static SeriesPyramid build(SensorSession session) {
+        return build(session, DEFAULT_LEVELS);
+    }
+
+    /**
+     * @param levelSizes 各档的点数，从多到少
+     */
+    public static SeriesPyramid build(SensorSession session, int[] levelSizes) {
+        String[] devices = session.getDevices();
+        int channels = session.getChannels().length;
+        int[] sourceSizes = new int[devices.length];
+        Series[][][] levels = new Series[devices.length][channels][];
+        for (int d = 0; d < devices.length; d++) {
+            DeviceSeries source = DeviceSeries.extract(session, d);
+            sourceSizes[d] = source.size;
+            for (int c = 0; c < channels; c++) {
+                levels[d][c] = new Series[levelSizes.length];
+                for (int l = 0; l < levelSizes.length; l++) {
+                    levels[d][c][l] = source.downsample(c, levelSizes[l]);
+                }
+            }
+        }
+        return new SeriesPyramid(devices, sourceSizes, levels);
+    }
+
+    public String[] getDevices() {
+        return devices;
+    }
+
+    /**
+     * 设备的原始采样数，设备不存在时返回-1
+     */
+    public int getSourceSize(String device) {
+        int d = indexOf(devices, device);
+        return d < 0 ? -1 : sourceSizes[d];
+    }
+
+    /**
+     * 取不超过points点的降采样序列
+     * @return 设备不存在，或points超过最高一档且少于原始采样数时返回null
+     */
+    public Series get(String device, int channel, int points) {
+        int d = indexOf(devices, device);
+        if (d < 0) {
+            return null;
+        }
+        Series[] series = levels[d][channel];
+        // 从点数最少的一档往上找
+        for (int l = series.length - 1; l >= 0; l--) {
+            Series level = series[l];
+            if (level.size() >= points || level.size() == sourceSizes[d]) {
+                return level.downsample(points);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 直接从原始数据降采样
+     * @return 设备不存在时返回null
+     */
+    public static Series downsample(SensorSession session, String device, int channel, int points) {
+        int d = indexOf(session.getDevices(), device);
+        return d < 0 ? null : DeviceSeries.extract(session, d).downsample(channel, points);
+    }
+
+    private static int indexOf(String[] devices, String device) {
+        for (int d = 0; d < devices.length; d++) {
+            if (devices[d] != null && devices[d].equals(device)) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 一条降采样后的序列，数值以float保存 (传感器原始精度约0.005)
+     */
+    public static final class Series {
+        private final long[] timestamps;
+        private final float[] values;
+
+        Series(long[] timestamps, float[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public int size() {
+            return timestamps.length;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public float[] getValues() {
+            return values;
+        }
+
+        Series downsample(int points) {
+            if (points >= timestamps.length) {
+                return this;
+            }
+            double[] y = new double[values.length];
+            for (int i = 0; i < y.length; i++) {
+                y[i] = values[i];
+            }
+            int[] selected = Lttb.select(timestamps, y, timestamps.length, points);
+            long[] t = new long[selected.length];
+            float[] v = new float[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                t[i] = timestamps[selected[i]];
+                v[i] = values[selected[i]];
+            }
+            return new Series(t, v);
+        }
+    }
+
+    /**
+     * 单个设备的全部采样，从会话中按设备拆出
+     */
+    private static final class DeviceSeries {
+        final int size;
+        final long[] timestamps;
+        final double[][] channels;
+
+        private DeviceSeries(int size, long[] timestamps, double[][] channels) {
+            this.size = size;
+            this.timestamps = timestamps;
+            this.channels = channels;
+        }
+
+        static DeviceSeries extract(SensorSession session, int device) {
+            int[] deviceIndexes = session.getDeviceIndexes();
+            int count = 0;
+            for (int i = 0; i < session.size(); i++) {
+                if (deviceIndexes[i] == device) {
+                    count++;
+                }
+            }
+            long[] sessionTimestamps = session.getTimestamps();
+            double[][] sessionChannels = session.getChannels();
+            long[] timestamps = new long[count];
+            double[][] channels = new double[sessionChannels.length][count];
+            int n = 0;
+            for (int i = 0; i < session.size(); i++) {
+                if (deviceIndexes[i] != device) {
+                    continue;
+                }
+                timestamps[n] = sessionTimestamps[i];
+                for (int c = 0; c < channels.length; c++) {
+                    channels[c][n] = sessionChannels[c][i];
+                }
+                n++;
+            }
+            return new DeviceSeries(count, timestamps, channels);
+        }
+
+        Series downsample(int channel, int points) {
+            int[] selected = Lttb.select(timestamps, channels[channel], size, points);
+            long[] t = new long[selected.length];
+            float[] v = new float[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                t[i] = timestamps[selected[i]];
+                v[i] = (float) channels[channel][selected[i]];
+            }
+            return new Series(t, v);
+        }
+    }
+}
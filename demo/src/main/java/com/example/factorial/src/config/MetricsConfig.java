@@ -0,0 +1,46 @@
+package com.example.factorial.src.config;
+
+import com.example.factorial.src.metrics.SqlBudgetFilter;
+import com.example.sqlmetrics.MeteredDataSource;
+import com.example.sqlmetrics.SqlRequestBudget;
+import com.example.sqlmetrics.SqlStatementLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 指标配置
+ * HTTP接口的耗时由 Spring Boot Actuator 自动记录 (http.server.requests)，
+ * 这里为数据源加上逐条SQL的计时 (jdbc.query)、慢SQL日志，以及按请求的SQL条数统计
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor meteredDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> registry,
+            @Value("${app.sql-log.slow-threshold-ms:200}") long slowThresholdMillis,
+            @Value("${app.sql-log.sample-rate:0.01}") double sampleRate) {
+        SqlStatementLog statementLog = new SqlStatementLog(slowThresholdMillis, sampleRate);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof MeteredDataSource)) {
+                    return new MeteredDataSource((DataSource) bean, registry::getObject, statementLog);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlBudgetFilter sqlBudgetFilter(MeterRegistry registry,
+                                           @Value("${app.sql-log.request-budget:50}") int budget) {
+        return new SqlBudgetFilter(new SqlRequestBudget(registry, budget));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.factorial.src.config;
+
+import com.example.factorial.src.datasource.ReadWriteRoutingDataSource;
+import com.example.factorial.src.datasource.ReplicationLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离配置，设置了 app.datasource.replica.urls 时启用
+ * <p>
+ * 主库使用 spring.datasource.* 的配置，副本默认沿用主库的驱动、用户名、密码和连接池参数。
+ * 写操作和普通查询使用主库，只读事务中的查询分给复制延迟在允许范围内的副本。
+ */
+@Configuration
+@Conditional(ReadReplicaConfig.ReplicasConfigured.class)
+public class ReadReplicaConfig {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReadWriteRoutingDataSource routing;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 @Value("${app.datasource.replica.urls}") String urls,
+                                 @Value("${app.datasource.replica.username:}") String username,
+                                 @Value("${app.datasource.replica.password:}") String password,
+                                 @Value("${app.datasource.replica.max-lag-ms:1000}") long maxLagMillis,
+                                 @Value("${app.datasource.replica.check-interval-ms:1000}") long checkIntervalMillis) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = createPool(properties, binder, properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword(), "primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String raw : urls.split(",")) {
+            String url = raw.trim();
+            if (url.isEmpty()) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource replica = createPool(properties, binder, url,
+                    username.isEmpty() ? properties.determineUsername() : username,
+                    username.isEmpty() ? properties.determinePassword() : password,
+                    name);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+
+        ReplicationLagMonitor monitor = new ReplicationLagMonitor(primary, replicas, maxLagMillis, checkIntervalMillis);
+        monitor.start();
+        routing = new ReadWriteRoutingDataSource(primary, replicas, monitor);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * 读写分离的指标
+     * 数据源的创建可能早于指标注册表，因此不在创建数据源时注册，而是在注册表创建后绑定
+     */
+    @Bean
+    @DependsOn("dataSource")
+    public MeterBinder readReplicaMetrics() {
+        return registry -> {
+            for (String target : new String[]{"primary", "replica", "fallback"}) {
+                FunctionCounter.builder("datasource.routing", routing, r -> routeCount(r, target))
+                        .description("按读写分离规则分配的数据库连接数，fallback为只读事务没有可用副本改用主库")
+                        .tag("target", target)
+                        .register(registry);
+            }
+            ReplicationLagMonitor monitor = routing.getMonitor();
+            for (String name : monitor.getReplicaNames()) {
+                Gauge.builder("datasource.replica.lag", monitor, m -> m.getLagMillis(name))
+                        .description("副本的复制延迟，-1表示副本不可用")
+                        .baseUnit("milliseconds")
+                        .tag("replica", name)
+                        .register(registry);
+            }
+            Gauge.builder("datasource.replica.healthy", monitor, m -> m.getHealthyReplicas().size())
+                    .description("当前接收读请求的副本数")
+                    .register(registry);
+        };
+    }
+
+    private static double routeCount(ReadWriteRoutingDataSource routing, String target) {
+        switch (target) {
+            case "replica":
+                return routing.getReplicaRoutes();
+            case "fallback":
+                return routing.getFallbackRoutes();
+            default:
+                return routing.getPrimaryRoutes();
+        }
+    }
+
+    // 连接池参数取自 spring.datasource.hikari.*，与 Spring Boot 自动配置的主库一致
+    private HikariDataSource createPool(DataSourceProperties properties, Binder binder,
+                                        String url, String username, String password, String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        pools.add(pool);
+        return pool;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (routing != null) {
+            routing.getMonitor().stop();
+        }
+        for (HikariDataSource pool : pools) {
+            pool.close();
+        }
+        pools.clear();
+    }
+
+    // 副本地址中可能含有引号等字符，不用SpEL表达式判断
+    static class ReplicasConfigured implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            String urls = context.getEnvironment().getProperty("app.datasource.replica.urls", "");
+            return !urls.trim().isEmpty();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.factorial.src.config;
+
+import com.example.factorial.src.session.SessionInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private SessionInterceptor sessionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 登录和注册接口不需要令牌
+        registry.addInterceptor(sessionInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/login", "/api/Signup");
+    }
+}
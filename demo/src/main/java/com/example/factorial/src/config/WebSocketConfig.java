@@ -0,0 +1,43 @@
+package com.example.factorial.src.config;
+
+import com.example.factorial.src.live.LiveHandshakeInterceptor;
+import com.example.factorial.src.live.LiveIngestHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private LiveIngestHandler liveIngestHandler;
+
+    @Autowired
+    private LiveHandshakeInterceptor liveHandshakeInterceptor;
+
+    // 单条二进制消息的上限 (字节)
+    @Value("${app.live.max-message-bytes:65536}")
+    private int maxMessageBytes;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // 实时采集: wss://host/ws/live?patientId=...&token=...
+        registry.addHandler(liveIngestHandler, "/ws/live")
+                .addInterceptors(liveHandshakeInterceptor)
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
+        container.setMaxTextMessageBufferSize(8192);
+        return container;
+    }
+}
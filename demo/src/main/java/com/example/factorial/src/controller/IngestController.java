@@ -0,0 +1,54 @@
+package com.example.factorial.src.controller;
+
+import com.example.factorial.src.ingest.DirectoryIngestService;
+import com.example.factorial.src.ingest.IngestFile;
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.RequiresPermission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class IngestController {
+
+    @Autowired(required = false)
+    private DirectoryIngestService directoryIngestService;
+
+    /**
+     * 获取目录导入的进度: 各状态的文件数，以及最近处理的文件
+     * status 可选 QUEUED、PARSING、ANALYZING、DONE、DUPLICATE、FAILED
+     */
+    @GetMapping("/ingest/status")
+    @RequiresPermission(AccessPolicy.DATA_MANAGEMENT)
+    public ResponseEntity<Map<String, Object>> getIngestStatus(
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        if (directoryIngestService == null) {
+            response.put("code", 503);
+            response.put("message", "目录导入未启用");
+            return ResponseEntity.status(503).body(response);
+        }
+        IngestFile.Status filter = null;
+        if (status != null && !status.isEmpty()) {
+            try {
+                filter = IngestFile.Status.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                response.put("code", 400);
+                response.put("message", "未知的状态: " + status);
+                return ResponseEntity.status(400).body(response);
+            }
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("summary", directoryIngestService.summary());
+        data.put("files", directoryIngestService.list(filter, Math.max(1, Math.min(limit, 1000))));
+        response.put("code", 200);
+        response.put("message", "获取导入进度成功");
+        response.put("data", data);
+        return ResponseEntity.ok(response);
+    }
+}
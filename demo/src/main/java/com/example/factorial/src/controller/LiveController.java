@@ -0,0 +1,36 @@
+package com.example.factorial.src.controller;
+
+import com.example.factorial.src.live.LiveIngestHandler;
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.RequiresPermission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class LiveController {
+
+    @Autowired
+    private LiveIngestHandler liveIngestHandler;
+
+    /**
+     * 获取患者正在进行的实时采集的统计和步态指标
+     * 每个连接一项，没有进行中的采集时data为空列表
+     */
+    @GetMapping("/live/{patientId}/stats")
+    @RequiresPermission({AccessPolicy.DATA_COLLECTION, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<Map<String, Object>> getLiveStats(@PathVariable String patientId) {
+        Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> stats = liveIngestHandler.statsOf(patientId);
+        response.put("code", 200);
+        response.put("message", "获取实时采集数据成功");
+        response.put("data", stats);
+        response.put("connections", liveIngestHandler.getConnectionCount());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,52 +1,161 @@
 package com.example.factorial.src.controller;
 
+import com.example.factorial.src.analysis.AnalysisJob;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import com.example.factorial.src.service.AnalysisJobService;
+import com.example.factorial.src.service.PatientReportCache;
+import com.example.factorial.src.service.SensorDataStore;
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.RequiresPermission;
+import com.example.factorial.src.session.SessionPrincipal;
+import com.example.factorial.src.util.CsvWriter;
+import com.example.factorial.src.util.HexUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
 public class PatientController {
 
+    // 患者列表分页大小
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    // 非MySQL数据库导出CSV时每批读取的行数
+    private static final int CSV_FETCH_SIZE = 1000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SensorDataStore sensorDataStore;
+
+    @Autowired
+    private AnalysisJobService analysisJobService;
+
+    @Autowired
+    private PatientReportCache patientReportCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 按 result 缓存的上传大小分布，避免每次上传都构建并查找一次
+    private final ConcurrentMap<String, DistributionSummary> uploadBytes = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AccessPolicy accessPolicy;
+
+    // 上传数据的存储格式: csv (原始文本)、columnar (二进制列式编码) 或 gorilla (时间序列压缩编码)
+    @Value("${app.upload.storage-format:csv}")
+    private String storageFormat;
+
+    // 只读事务，启用读写分离时其中的查询走副本
+    private TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * 获取患者列表
      * 如果指定了doctorUsername参数，则返回该医生关联的患者
-     * 否则返回所有患者
+     * 否则返回所有患者；没有数据管理权限的医生只能查询自己的患者
+     * 按id_card做游标(keyset)分页：每页最多size条，nextCursor为下一页的游标，
+     * 没有更多数据时nextCursor为null；includeTotal=true时额外返回总数。
+     * 不过滤时按主键范围扫描，按医生过滤时依赖 (doctor_username, id_card) 索引 (add_patient_doctor_index.sql)
      */
     @GetMapping("/patients")
-    public ResponseEntity<Map<String, Object>> getPatients(@RequestParam(required = false) String doctorUsername) {
+    @Transactional(readOnly = true)
+    @RequiresPermission({AccessPolicy.SELECT_PATIENT, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<Map<String, Object>> getPatients(
+            @RequestAttribute(name = SessionPrincipal.REQUEST_ATTRIBUTE, required = false) SessionPrincipal principal,
+            @RequestParam(required = false) String doctorUsername,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            String sql;
+            if (principal != null && !principal.hasPermission(AccessPolicy.DATA_MANAGEMENT)) {
+                doctorUsername = principal.getUsername();
+            }
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            String afterId = cursor == null || cursor.isEmpty() ? "" : decodeCursor(cursor);
+            boolean byDoctor = doctorUsername != null && !doctorUsername.trim().isEmpty();
             List<Map<String, Object>> patients;
             
-            if (doctorUsername != null && !doctorUsername.trim().isEmpty()) {
+            // 多取一条用于判断是否还有下一页
+            if (byDoctor) {
                 // 查询指定医生的患者
-                sql = "SELECT id_card as id, name, birth_date, gender, phone, address FROM dsd.patient WHERE doctor_username = ?";
-                patients = jdbcTemplate.queryForList(sql, doctorUsername);
+                String sql = "SELECT id_card as id, name, birth_date, gender, phone, address FROM dsd.patient " +
+                             "WHERE doctor_username = ? AND id_card > ? ORDER BY id_card LIMIT ?";
+                patients = jdbcTemplate.queryForList(sql, doctorUsername, afterId, pageSize + 1);
             } else {
                 // 查询所有患者
-                sql = "SELECT id_card as id, name, birth_date, gender, phone, address FROM dsd.patient";
-                patients = jdbcTemplate.queryForList(sql);
+                String sql = "SELECT id_card as id, name, birth_date, gender, phone, address FROM dsd.patient " +
+                             "WHERE id_card > ? ORDER BY id_card LIMIT ?";
+                patients = jdbcTemplate.queryForList(sql, afterId, pageSize + 1);
+            }
+            
+            String nextCursor = null;
+            if (patients.size() > pageSize) {
+                patients = patients.subList(0, pageSize);
+                nextCursor = encodeCursor(String.valueOf(patients.get(pageSize - 1).get("id")));
             }
             
             response.put("code", 200);
             response.put("message", "获取患者列表成功");
             response.put("data", patients);
+            response.put("nextCursor", nextCursor);
+            response.put("hasMore", nextCursor != null);
+            
+            if (includeTotal) {
+                Integer total = byDoctor
+                        ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dsd.patient WHERE doctor_username = ?", Integer.class, doctorUsername)
+                        : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dsd.patient", Integer.class);
+                response.put("total", total);
+            }
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("code", 400);
+            response.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("code", 500);
@@ -55,10 +164,21 @@ public class PatientController {
         }
     }
 
+    // 游标对客户端不透明，内容为上一页最后一条记录的id_card
+    private static String encodeCursor(String idCard) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(idCard.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
     /**
      * 获取指定患者的详细信息
      */
     @GetMapping("/patient/{patientId}")
+    @Transactional(readOnly = true)
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
     public ResponseEntity<Map<String, Object>> getPatientById(@PathVariable String patientId) {
         Map<String, Object> response = new HashMap<>();
         
@@ -87,103 +207,96 @@ public class PatientController {
 
     /**
      * 获取患者报告列表
+     * 指定points时运动幅度和得分数组用LTTB降采样，点数取不小于points的一档 (100/200/500/1000/2000)；
+     * 被降采样的数组在data.indices中给出每个保留点在原数组中的下标，data.totalPoints中给出原数组长度
      */
     @GetMapping("/patient/{patientId}/reports")
-    public ResponseEntity<List<Map<String, Object>>> getPatientReports(@PathVariable String patientId) {
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<byte[]> getPatientReports(@PathVariable String patientId,
+                                                    @RequestParam(defaultValue = "0") int points) {
         try {
-            // 从数据库中查询患者报告
-            String sql = "SELECT report_date as date, report_type as type, summary, " +
-                         "motion_range as '运动幅度', score as '得分' " +
-                         "FROM dsd.patient_reports WHERE patient_id = ? " +
-                         "ORDER BY report_date DESC";
-            
-            List<Map<String, Object>> reports = jdbcTemplate.queryForList(sql, patientId);
-            
-            // 如果没有找到报告，返回空列表而不是错误
-            if (reports.isEmpty()) {
-                return ResponseEntity.ok(new ArrayList<>());
-            }
-            
-            // 处理数据格式，确保JSON字符串被正确处理
-            for (Map<String, Object> report : reports) {
-                // 创建data对象存储运动幅度和得分
-                Map<String, Object> data = new HashMap<>();
-                data.put("运动幅度", report.get("运动幅度"));
-                data.put("得分", report.get("得分"));
-                
-                // 从report中移除单独的运动幅度和得分字段
-                report.remove("运动幅度");
-                report.remove("得分");
-                
-                // 添加data对象
-                report.put("data", data);
-            }
-            
-            return ResponseEntity.ok(reports);
+            // 报告列表按患者缓存序列化后的JSON，没有报告时为空列表
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(patientReportCache.getReportsJson(patientId, points));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body(null);
         }
     }
+
+    /**
+     * 报告列表缓存的命中、未命中和淘汰统计
+     */
+    @GetMapping("/reports/cache/stats")
+    @RequiresPermission(AccessPolicy.DATA_MANAGEMENT)
+    public ResponseEntity<Map<String, Object>> getReportCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取缓存统计成功");
+        response.put("data", patientReportCache.stats());
+        return ResponseEntity.ok(response);
+    }
     
     /**
      * 获取CSV格式的情感分析数据
+     * 以流的方式输出：JDBC游标每取到一行就写入响应，内存占用与数据量无关
      */
     @GetMapping("/sentiment_data.csv")
-    public ResponseEntity<String> getSentimentDataCsv() {
-        try {
-            // 查询情感数据
-            String sql = "SELECT date, type, summary, motion_range as '运动幅度', score as '得分' FROM dsd.sentiment_data ORDER BY date";
-            List<Map<String, Object>> data = jdbcTemplate.queryForList(sql);
-            
-            // 如果数据库中没有数据，返回一些静态数据
-            if (data.isEmpty()) {
-                // 添加一些静态测试数据
-                StringBuilder csvContent = new StringBuilder();
-                csvContent.append("date,type,summary,运动幅度,得分\n");
-                csvContent.append("2023-01-15,步态分析,正常步态,\"[75, 82, 90, 88, 79, 85, 78, 81, 87, 84, 80, 83]\",\"[8, 9, 10, 9, 8, 9, 8, 9, 10, 9, 8, 9]\"\n");
-                csvContent.append("2023-02-10,步态分析,轻度异常,\"[70, 75, 82, 80, 72, 78, 74, 76, 81, 79, 73, 77]\",\"[7, 8, 9, 8, 7, 8, 7, 8, 9, 8, 7, 8]\"\n");
-                csvContent.append("2023-03-20,步态分析,略有改善,\"[78, 85, 92, 90, 82, 88, 80, 84, 89, 86, 83, 85]\",\"[8, 9, 10, 10, 9, 9, 8, 9, 10, 9, 9, 9]\"\n");
-                csvContent.append("2023-04-05,步态分析,显著进步,\"[82, 88, 95, 92, 86, 90, 84, 87, 93, 89, 85, 88]\",\"[9, 10, 10, 10, 9, 10, 9, 9, 10, 10, 9, 9]\"\n");
-                
-                return ResponseEntity.ok()
-                        .header("Content-Type", "text/csv;charset=UTF-8")
-                        .header("Content-Disposition", "attachment; filename=\"sentiment_data.csv\"")
-                        .body(csvContent.toString());
-            }
-            
-            // 构建CSV内容
-            StringBuilder csvContent = new StringBuilder();
-            
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<StreamingResponseBody> getSentimentDataCsv() {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            CsvWriter csv = new CsvWriter(writer);
+
             // 添加CSV头
-            csvContent.append("date,type,summary,运动幅度,得分\n");
-            
-            // 添加数据行 - 正确处理CSV格式，对包含逗号的字段加引号
-            for (Map<String, Object> row : data) {
-                csvContent.append(row.get("date")).append(",")
-                         .append(row.get("type")).append(",")
-                         .append(row.get("summary")).append(",")
-                         .append("\"").append(row.get("运动幅度")).append("\",")
-                         .append("\"").append(row.get("得分")).append("\"\n");
+            csv.row("date", "type", "summary", "运动幅度", "得分");
+
+            // 查询情感数据，逐行写出
+            String sql = "SELECT date, type, summary, motion_range, score FROM dsd.sentiment_data ORDER BY date";
+            long[] rowCount = {0};
+            try {
+                // 在异步线程中执行，不在请求的事务内，单独开启只读事务
+                readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    // MySQL驱动只有 Integer.MIN_VALUE 才逐行流式读取，不缓存整个结果集；
+                    // 其他驱动 (如本地调试用的H2) 不接受负数，按正常的批量大小分批读取
+                    boolean mysql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+                    ps.setFetchSize(mysql ? Integer.MIN_VALUE : CSV_FETCH_SIZE);
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    try {
+                        csv.row(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rowCount[0]++;
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // 客户端断开连接
             }
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "text/csv;charset=UTF-8")
-                    .header("Content-Disposition", "attachment; filename=\"sentiment_data.csv\"")
-                    .body(csvContent.toString());
-        } catch (Exception e) {
-            e.printStackTrace();
-            // 返回一个友好的错误消息
-            return ResponseEntity.status(500)
-                    .header("Content-Type", "text/plain;charset=UTF-8")
-                    .body("Error generating CSV: " + e.getMessage());
-        }
+
+            // 如果数据库中没有数据，返回一些静态数据
+            if (rowCount[0] == 0) {
+                csv.row("2023-01-15", "步态分析", "正常步态", "[75, 82, 90, 88, 79, 85, 78, 81, 87, 84, 80, 83]", "[8, 9, 10, 9, 8, 9, 8, 9, 10, 9, 8, 9]");
+                csv.row("2023-02-10", "步态分析", "轻度异常", "[70, 75, 82, 80, 72, 78, 74, 76, 81, 79, 73, 77]", "[7, 8, 9, 8, 7, 8, 7, 8, 9, 8, 7, 8]");
+                csv.row("2023-03-20", "步态分析", "略有改善", "[78, 85, 92, 90, 82, 88, 80, 84, 89, 86, 83, 85]", "[8, 9, 10, 10, 9, 9, 8, 9, 10, 9, 9, 9]");
+                csv.row("2023-04-05", "步态分析", "显著进步", "[82, 88, 95, 92, 86, 90, 84, 87, 93, 89, 85, 88]", "[9, 10, 10, 10, 9, 10, 9, 9, 10, 10, 9, 9]");
+            }
+            csv.flush();
+        };
+
+        return ResponseEntity.ok()
+                .header("Content-Type", "text/csv;charset=UTF-8")
+                .header("Content-Disposition", "attachment; filename=\"sentiment_data.csv\"")
+                .body(body);
     }
 
     /**
      * 处理CSV文件上传，与患者关联
      */
     @PostMapping("/upload/csv")
+    @RequiresPermission({AccessPolicy.DATA_COLLECTION, AccessPolicy.DATA_MANAGEMENT})
     public ResponseEntity<Map<String, Object>> uploadCsvFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam("patientId") String patientId) {
@@ -207,57 +320,101 @@ public class PatientController {
                 return ResponseEntity.status(404).body(response);
             }
             
-            // 读取CSV文件内容
-            String csvContent = new String(file.getBytes(), StandardCharsets.UTF_8);
+            // 1. 读取上传流：同时计算内容哈希 (SHA-256) 并逐行解析校验、统计数据点；
+            //    只有需要编码保存 (columnar、gorilla) 时才把采样收集到数组中，csv格式不保留采样
+            boolean encoded = SensorDataStore.ENCODING_COLUMNAR.equals(storageFormat)
+                    || SensorDataStore.ENCODING_GORILLA.equals(storageFormat);
+            SensorSessionBuilder builder = encoded ? new SensorSessionBuilder() : null;
+            SensorCsvParser parser = new SensorCsvParser(builder != null ? builder : (t, d, v) -> { });
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream content = new DigestInputStream(file.getInputStream(), digest)) {
+                parser.parse(content);
+            }
+            String contentHash = HexUtils.toHex(digest.digest());
             
-            // 1. 检查是否存在patient_csv_data表，如果不存在则创建
-            try {
-                String createTableSql = 
-                    "CREATE TABLE IF NOT EXISTS dsd.patient_csv_data (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "patient_id VARCHAR(50) NOT NULL, " +
-                    "file_name VARCHAR(255) NOT NULL, " + 
-                    "upload_time DATETIME NOT NULL, " +
-                    "file_content MEDIUMTEXT NOT NULL, " +  // 使用MEDIUMTEXT存储CSV内容，最大16MB
-                    "file_size INT NOT NULL, " +
-                    "INDEX (patient_id) " +  // 添加索引以加快查询
-                    ")";
-                jdbcTemplate.execute(createTableSql);
-            } catch (Exception e) {
-                System.err.println("创建表失败: " + e.getMessage());
-                // 继续执行，因为表可能已经存在
+            // 2. 同一患者已上传过相同内容 (客户端重试) 时跳过写入
+            boolean reanalyze = false;
+            Long existingId = sensorDataStore.findByContentHash(patientId, contentHash);
+            long recordId = 0;
+            if (existingId == null) {
+                SensorSession session = encoded ? builder.build() : null;
+                try {
+                    // csv格式下从上传的临时文件流式写入file_content；columnar和gorilla格式保存编码后的二进制
+                    if (SensorDataStore.ENCODING_COLUMNAR.equals(storageFormat)) {
+                        recordId = sensorDataStore.saveColumnar(patientId, file.getOriginalFilename(), session, file.getSize(), contentHash);
+                    } else if (SensorDataStore.ENCODING_GORILLA.equals(storageFormat)) {
+                        recordId = sensorDataStore.saveGorilla(patientId, file.getOriginalFilename(), session, file.getSize(), contentHash);
+                    } else {
+                        try (InputStream content = file.getInputStream()) {
+                            recordId = sensorDataStore.saveCsv(patientId, file.getOriginalFilename(), content, file.getSize(), contentHash);
+                        }
+                    }
+                } catch (DuplicateKeyException e) {
+                    // 并发的重复上传已先写入
+                    existingId = sensorDataStore.findByContentHash(patientId, contentHash);
+                }
+            }
+            if (existingId != null) {
+                // 已有记录完成了分析，或者分析任务仍在进行时才去重；上次分析失败、
+                // 或任务随服务重启丢失而没有生成报告时，为已有记录重新提交分析
+                boolean analyzed = sensorDataStore.isAnalyzed(existingId);
+                AnalysisJob active = analyzed ? null : analysisJobService.findActive(existingId);
+                if (analyzed || active != null) {
+                    recordUpload("deduplicated", file.getSize());
+                    response.put("code", 200);
+                    response.put("message", "文件已存在，已去重");
+                    response.put("deduplicated", true);
+                    response.put("recordId", existingId);
+                    response.put("contentHash", contentHash);
+                    response.put("fileName", file.getOriginalFilename());
+                    response.put("fileSize", file.getSize());
+                    response.put("dataPoints", parser.getRowCount());
+                    if (active != null) {
+                        response.put("jobId", active.getId());
+                        response.put("status", active.getStatus().name());
+                    }
+                    return ResponseEntity.ok(response);
+                }
+                recordId = existingId;
+                reanalyze = true;
             }
             
-            // 2. 保存文件内容到数据库
-            String insertFileSql = 
-                "INSERT INTO dsd.patient_csv_data (patient_id, file_name, upload_time, file_content, file_size) " +
-                "VALUES (?, ?, NOW(), ?, ?)";
-            jdbcTemplate.update(insertFileSql, 
-                    patientId, 
-                    file.getOriginalFilename(), 
-                    csvContent, 
-                    file.getSize());
+            // 3. 提交异步分析任务，任务执行时按记录id重新读取采样，分析结果写入报告；
+            //    队列已满时撤销本次写入 (重新分析的已有记录保留)，客户端稍后重试
+            AnalysisJob job;
+            try {
+                job = analysisJobService.submit(patientId, recordId);
+            } catch (RejectedExecutionException e) {
+                if (!reanalyze) {
+                    sensorDataStore.delete(recordId);
+                }
+                recordUpload("rejected", file.getSize());
+                response.put("code", 503);
+                response.put("message", "分析任务繁忙，请稍后重试");
+                return ResponseEntity.status(503).body(response);
+            }
             
-            // 3. 记录上传日志
+            // 4. 记录上传日志
             String logSql = "INSERT INTO dsd.data_upload_log (patient_id, file_name, upload_time, status) VALUES (?, ?, NOW(), 'SUCCESS')";
             jdbcTemplate.update(logSql, patientId, file.getOriginalFilename());
             
-            // 4. 添加简单的报告记录
-            String reportSql = "INSERT INTO dsd.patient_reports (patient_id, report_date, report_type, summary, motion_range, score) VALUES (?, NOW(), '步态分析', '蓝牙测量数据上传', '[]', '[]')";
-            jdbcTemplate.update(reportSql, patientId);
-            
-            // 5. 提取CSV数据进行简单分析
-            // 这里只是一个示例，实际项目中需要更复杂的分析
-            String[] csvLines = csvContent.split("\\n");
-            int dataPoints = csvLines.length > 1 ? csvLines.length - 1 : 0; // 减去表头
+            // 5. 数据点数量由解析器在读取时统计
+            long dataPoints = parser.getRowCount();
             
-            response.put("code", 200);
-            response.put("message", "文件上传成功");
+            response.put("code", 202);
+            response.put("message", reanalyze ? "文件已存在，重新分析" : "文件上传成功，正在分析");
             response.put("fileName", file.getOriginalFilename());
             response.put("fileSize", file.getSize());
             response.put("dataPoints", dataPoints);
+            response.put("invalidRows", parser.getInvalidRows());
+            response.put("deduplicated", reanalyze);
+            response.put("contentHash", contentHash);
+            response.put("recordId", recordId);
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus().name());
             
-            return ResponseEntity.ok(response);
+            recordUpload(reanalyze ? "reanalyzed" : "stored", file.getSize());
+            return ResponseEntity.status(202).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("code", 500);
@@ -265,4 +422,39 @@ public class PatientController {
             return ResponseEntity.status(500).body(response);
         }
     }
-} 
\ No newline at end of file
+
+    // 上传字节数和文件数，result为 stored / deduplicated / rejected
+    private void recordUpload(String result, long bytes) {
+        uploadBytes.computeIfAbsent(result, key -> DistributionSummary.builder("upload.bytes")
+                .description("上传的传感器文件大小")
+                .baseUnit("bytes")
+                .tag("result", key)
+                .register(meterRegistry))
+                .record(bytes);
+    }
+
+    /**
+     * 查询上传后的分析任务状态，完成后返回运动幅度和得分
+     * 无权访问任务所属患者时按任务不存在处理
+     */
+    @GetMapping("/analysis/jobs/{jobId}")
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<Map<String, Object>> getAnalysisJob(
+            @RequestAttribute(name = SessionPrincipal.REQUEST_ATTRIBUTE, required = false) SessionPrincipal principal,
+            @PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        AnalysisJob job = analysisJobService.get(jobId);
+        if (job != null && principal != null && !accessPolicy.canAccessPatient(principal, job.getPatientId())) {
+            job = null;
+        }
+        if (job == null) {
+            response.put("code", 404);
+            response.put("message", "分析任务不存在或已过期");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("code", 200);
+        response.put("message", "获取分析任务成功");
+        response.put("data", job.toMap());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.factorial.src.controller;
+
+import com.example.factorial.src.analysis.SeriesPyramid;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.service.SensorDataStore;
+import com.example.factorial.src.service.SeriesPyramidCache;
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.RequiresPermission;
+import com.example.factorial.src.storage.SegmentStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上传记录的原始采样数据，记录以上传时返回的内容哈希 (contentHash) 标识
+ */
+@RestController
+@RequestMapping("/api")
+public class RecordingController {
+
+    // 绘图序列的默认点数和上限
+    private static final int DEFAULT_POINTS = 1000;
+    private static final int MAX_POINTS = 100000;
+
+    // Tomcat 的 sendfile 请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private SensorDataStore sensorDataStore;
+
+    @Autowired
+    private SeriesPyramidCache seriesPyramidCache;
+
+    @Autowired(required = false)
+    private SegmentStore segmentStore;
+
+    /**
+     * 下载上传时保存的文件内容: csv 格式为原始CSV，其余格式为编码后的二进制 (X-Recording-Encoding 标明格式)
+     * 支持单个区间的 Range 请求，前端可以只取需要的部分
+     * <p>
+     * 内容在分段存储中时不经过堆内存: 连接器支持 sendfile (HTTP) 时交给 Tomcat 直接从文件发送，
+     * 否则 (如 HTTPS) 用 FileChannel.transferTo 写入响应；内容在数据库中的旧记录从读出的内容中截取
+     */
+    @GetMapping("/patient/{patientId}/recordings/{hash}")
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<Map<String, Object>> downloadRecording(
+            @PathVariable String patientId,
+            @PathVariable String hash,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        Map<String, Object> body = new HashMap<>();
+        try {
+            SensorDataStore.StoredFile file = sensorDataStore.findStoredFile(patientId, hash);
+            if (file == null) {
+                body.put("code", 404);
+                body.put("message", "未找到该采集记录");
+                return ResponseEntity.status(404).body(body);
+            }
+            if (file.isInSegmentStore() && segmentStore == null) {
+                body.put("code", 503);
+                body.put("message", "记录保存在分段存储中，但分段存储未启用");
+                return ResponseEntity.status(503).body(body);
+            }
+
+            // 解析 Range (RFC 7233)；格式错误、不支持的单位或多个区间时忽略 Range 返回完整内容，
+            // If-Range 与当前内容不符时同样忽略；只有单个区间且起点超出内容长度时返回 416
+            long length = file.getLength();
+            long start = 0;
+            long end = length - 1;
+            boolean partial = false;
+            String etag = etagOf(file, hash);
+            String range = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            List<HttpRange> ranges = range == null || (ifRange != null && !ifRange.equals(etag))
+                    ? null : parseRanges(range);
+            if (ranges != null && ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                if (start >= length) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    body.put("code", 416);
+                    body.put("message", "请求的范围超出内容长度: " + range);
+                    return ResponseEntity.status(416).body(body);
+                }
+                end = ranges.get(0).getRangeEnd(length);
+                partial = true;
+            }
+            long count = end - start + 1;
+
+            response.setStatus(partial ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK);
+            response.setContentType(SensorDataStore.ENCODING_CSV.equals(file.getEncoding())
+                    ? "text/csv;charset=UTF-8" : "application/octet-stream");
+            response.setHeader("X-Recording-Encoding", file.getEncoding());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(file.getFileName(), StandardCharsets.UTF_8).build().toString());
+            if (partial) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            response.setContentLengthLong(count);
+            if ("HEAD".equals(request.getMethod()) || count == 0) {
+                return null;
+            }
+
+            if (!file.isInSegmentStore()) {
+                response.getOutputStream().write(file.getContent(), (int) start, (int) count);
+            } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                SegmentStore.Location location = segmentStore.locate(file.getSegmentOffset(), length);
+                request.setAttribute(SENDFILE_FILENAME, location.getFile().toString());
+                request.setAttribute(SENDFILE_START, location.getPosition() + start);
+                request.setAttribute(SENDFILE_END, location.getPosition() + end + 1);
+            } else {
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                segmentStore.transferTo(file.getSegmentOffset(), length, start, count, target);
+            }
+            return null;  // 响应已直接写出
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                return null;  // 已开始发送，多为客户端中途断开连接
+            }
+            e.printStackTrace();
+            response.reset();
+            body.put("code", 500);
+            body.put("message", "下载采集数据失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(body);
+        }
+    }
+
+    /**
+     * 下载内容的 ETag
+     * contentHash 是原始CSV的哈希，只有 csv 格式下载的才是原始CSV；
+     * 编码后的二进制与原始CSV是不同的表示，加上编码格式和长度区分
+     */
+    private static String etagOf(SensorDataStore.StoredFile file, String hash) {
+        if (SensorDataStore.ENCODING_CSV.equals(file.getEncoding())) {
+            return "\"" + hash + "\"";
+        }
+        return "\"" + hash + "-" + file.getEncoding() + "-" + file.getLength() + "\"";
+    }
+
+    /**
+     * 解析 Range 请求头，格式错误或单位不是 bytes 时返回 null
+     */
+    private static List<HttpRange> parseRanges(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取一次采集中某通道的绘图序列
+     * 原始采样超过points个时用LTTB降采样到points个点；不指定device时返回所有设备
+     */
+    @GetMapping("/patient/{patientId}/recordings/{hash}/series")
+    @RequiresPermission({AccessPolicy.VIEW_HISTORY, AccessPolicy.DATA_MANAGEMENT})
+    public ResponseEntity<Map<String, Object>> getSeries(
+            @PathVariable String patientId,
+            @PathVariable String hash,
+            @RequestParam(defaultValue = "Pitch") String channel,
+            @RequestParam(required = false) String device,
+            @RequestParam(defaultValue = "" + DEFAULT_POINTS) int points) {
+        Map<String, Object> response = new HashMap<>();
+
+        int channelIndex = Arrays.asList(SensorCsvParser.CHANNELS).indexOf(channel);
+        if (channelIndex < 0) {
+            response.put("code", 400);
+            response.put("message", "未知的数据通道: " + channel + "，可选: " + String.join(", ", SensorCsvParser.CHANNELS));
+            return ResponseEntity.status(400).body(response);
+        }
+        int target = Math.max(3, Math.min(points, MAX_POINTS));
+
+        try {
+            Long recordId = sensorDataStore.findByContentHash(patientId, hash);
+            SeriesPyramid pyramid = recordId == null ? null : seriesPyramidCache.getPyramid(recordId);
+            if (pyramid == null) {
+                response.put("code", 404);
+                response.put("message", "未找到该采集记录");
+                return ResponseEntity.status(404).body(response);
+            }
+
+            String[] devices = device == null || device.isEmpty()
+                    ? pyramid.getDevices().clone() : new String[]{device};
+            Arrays.sort(devices);
+            List<Map<String, Object>> series = new ArrayList<>();
+            for (String d : devices) {
+                SeriesPyramid.Series s = seriesPyramidCache.getSeries(recordId, d, channelIndex, target);
+                if (s == null) {
+                    continue;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("device", d);
+                item.put("totalPoints", pyramid.getSourceSize(d));
+                item.put("points", s.size());
+                item.put("timestamps", s.getTimestamps());
+                item.put("values", s.getValues());
+                series.add(item);
+            }
+            if (series.isEmpty()) {
+                response.put("code", 404);
+                response.put("message", "未找到该设备的数据: " + device);
+                return ResponseEntity.status(404).body(response);
+            }
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("channel", channel);
+            data.put("series", series);
+            response.put("code", 200);
+            response.put("message", "获取采集数据成功");
+            response.put("data", data);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("code", 500);
+            response.put("message", "获取采集数据失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.factorial.src.controller;
 
 import com.example.factorial.src.User;
 import com.example.factorial.src.service.UserService;
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.RequiresPermission;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +14,7 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/users")
+@RequiresPermission(AccessPolicy.DATA_MANAGEMENT)
 public class UserController {
 
     private final UserService userService;
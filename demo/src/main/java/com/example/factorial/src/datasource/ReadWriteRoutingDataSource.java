@@ -0,0 +1,70 @@
+package com.example.factorial.src.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离的数据源
+ * <p>
+ * 只读事务 (@Transactional(readOnly = true) 或只读的 TransactionTemplate) 中的连接
+ * 轮流取自复制延迟在允许范围内的副本，没有可用副本时使用主库；其余连接一律使用主库。
+ * <p>
+ * 取连接时事务的只读标记必须已经确定，因此要用
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} 包装后再使用，
+ * 否则事务管理器在开始事务时就会取到主库连接。
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicationLagMonitor monitor;
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder fallbackRoutes = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReplicationLagMonitor monitor) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        this.monitor = monitor;
+    }
+
+    public ReplicationLagMonitor getMonitor() {
+        return monitor;
+    }
+
+    // 分配到主库、副本的连接数，以及只读事务因没有可用副本改用主库的次数
+    public long getPrimaryRoutes() {
+        return primaryRoutes.sum();
+    }
+
+    public long getReplicaRoutes() {
+        return replicaRoutes.sum();
+    }
+
+    public long getFallbackRoutes() {
+        return fallbackRoutes.sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        String replica = monitor.nextReplica();
+        if (replica == null) {
+            fallbackRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return replica;
+    }
+}
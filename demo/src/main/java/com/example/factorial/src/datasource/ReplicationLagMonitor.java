@@ -0,0 +1,176 @@
+package com.example.factorial.src.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 检测只读副本的复制延迟
+ * <p>
+ * 定时向主库的心跳表写入当前时间，下一次检测时先从每个副本读回心跳，再写入新的心跳。
+ * 副本已复制到上一次写入的心跳时延迟为0；否则副本还没有复制的第一个心跳大约在
+ * 副本心跳之后一个检测间隔写入，延迟按 当前时间 - 副本心跳 - 检测间隔 计算。
+ * 写入后立即读取会把检测间隔本身算作延迟，因此读取必须在写入之前。
+ * 延迟超过 maxLagMillis 或查询失败时，该副本暂时不接收读请求，直到追上为止。
+ * maxLagMillis 小于0时不检测延迟，只检查副本连接是否可用 (用于副本间没有复制关系的本地调试)。
+ */
+public class ReplicationLagMonitor {
+
+    static final String HEARTBEAT_TABLE = "dsd.replication_heartbeat";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final long maxLagMillis;
+    private final long intervalMillis;
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    // 最近一次成功写入主库的心跳，还没有写入过时为-1
+    private volatile long lastHeartbeat = -1;
+    private volatile List<String> healthy = Collections.emptyList();
+    private ScheduledExecutorService scheduler;
+
+    public ReplicationLagMonitor(DataSource primary, Map<String, DataSource> replicas, long maxLagMillis, long intervalMillis) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * 创建心跳表并立即检测一次，之后按固定间隔检测
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        if (maxLagMillis >= 0) {
+            ensureHeartbeatTable();
+        }
+        check();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replication-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 轮流选择一个可用的副本
+     * @return 没有可用副本时返回null，由调用方改用主库
+     */
+    public String nextReplica() {
+        List<String> current = healthy;
+        if (current.isEmpty()) {
+            return null;
+        }
+        return current.get(Math.floorMod(next.getAndIncrement(), current.size()));
+    }
+
+    public List<String> getReplicaNames() {
+        return new ArrayList<>(replicas.keySet());
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthy;
+    }
+
+    /**
+     * 最近一次检测到的复制延迟 (毫秒)，检测失败时为-1
+     */
+    public long getLagMillis(String replica) {
+        Long lag = lagMillis.get(replica);
+        return lag == null ? -1 : lag;
+    }
+
+    void check() {
+        check(System.currentTimeMillis());
+    }
+
+    void check(long now) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+            long lag = measureLag(entry.getValue(), now);
+            lagMillis.put(entry.getKey(), lag);
+            if (lag >= 0 && (maxLagMillis < 0 || lag <= maxLagMillis)) {
+                result.add(entry.getKey());
+            }
+        }
+        healthy = Collections.unmodifiableList(result);
+        if (maxLagMillis >= 0) {
+            try {
+                writeHeartbeat(now);
+                lastHeartbeat = now;
+            } catch (SQLException e) {
+                // 主库不可用时心跳不再前进，已复制到最后一次心跳的副本仍视为没有延迟
+                System.err.println("写入复制心跳失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private long measureLag(DataSource replica, long now) {
+        try (Connection con = replica.getConnection()) {
+            if (maxLagMillis < 0) {
+                return con.isValid(1) ? 0 : -1;
+            }
+            try (Statement stmt = con.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT updated_at FROM " + HEARTBEAT_TABLE + " WHERE id = 1")) {
+                // 副本还没有复制到心跳行，视为延迟无限大
+                if (!rs.next()) {
+                    return Long.MAX_VALUE;
+                }
+                long heartbeat = rs.getLong(1);
+                // 启动后第一次检测时还没有写入过心跳，按副本心跳的时间计算 (保守地视为可能落后)
+                long written = lastHeartbeat;
+                if (written >= 0 && heartbeat >= written) {
+                    return 0;
+                }
+                return Math.max(0, now - heartbeat - intervalMillis);
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    private void writeHeartbeat(long now) throws SQLException {
+        try (Connection con = primary.getConnection();
+             PreparedStatement ps = con.prepareStatement("UPDATE " + HEARTBEAT_TABLE + " SET updated_at = ? WHERE id = 1")) {
+            ps.setLong(1, now);
+            if (ps.executeUpdate() == 0) {
+                try (PreparedStatement insert = con.prepareStatement("INSERT INTO " + HEARTBEAT_TABLE + " (id, updated_at) VALUES (1, ?)")) {
+                    insert.setLong(1, now);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void ensureHeartbeatTable() {
+        try (Connection con = primary.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE + " (id INT PRIMARY KEY, updated_at BIGINT NOT NULL)");
+        } catch (SQLException e) {
+            System.err.println("创建复制心跳表失败: " + e.getMessage());
+        }
+    }
+}
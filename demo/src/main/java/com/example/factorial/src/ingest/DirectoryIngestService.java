@@ -0,0 +1,433 @@
+package com.example.factorial.src.ingest;
+
+import com.example.factorial.src.analysis.AnalysisJob;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import com.example.factorial.src.service.AnalysisJobService;
+import com.example.factorial.src.service.SensorDataStore;
+import com.example.factorial.src.util.HexUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 监视导入目录，批量导入诊所导出的传感器CSV
+ * <p>
+ * 文件名格式为 患者ID_名称.csv。文件大小和修改时间在 settle-ms 内不再变化 (复制完成) 后
+ * 交给固定大小的工作线程池处理: 解析、按内容哈希去重、按 app.upload.storage-format 保存、
+ * 在工作线程中直接分析并写入报告，处理完成后移到 done/，失败的移到 failed/。
+ * 启动时目录中已有的文件同样会被导入。
+ * <p>
+ * 工作线程的等待队列有上限，队列满时文件留在目录中等待下一轮，
+ * 一次放入上千个文件也不会占用过多内存。每个文件的进度见 {@link #list}。
+ * 移到 done/ 或 failed/ 时已有同名文件的，在文件名后加序号，不覆盖之前导入的文件。
+ * 需要设置 app.ingest.enabled=true 才会启用。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "enabled", havingValue = "true")
+public class DirectoryIngestService {
+
+    private static final String SUFFIX = ".csv";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorDataStore sensorDataStore;
+    private final AnalysisJobService analysisJobService;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private final String storageFormat;
+    private final long settleMillis;
+    private final long retentionMillis;
+    private final ThreadPoolExecutor workers;
+
+    // 等待写入完成的文件，只由监视线程修改
+    private final Map<Path, Observation> settling = new ConcurrentHashMap<>();
+    // 已交给工作线程、尚未移走的文件
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // 按导入编号保存进度，同名文件多次放入时各自一条
+    private final Map<Long, IngestFile> files = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private WatchService watchService;
+    private Thread watcher;
+    private volatile boolean running;
+
+    public DirectoryIngestService(JdbcTemplate jdbcTemplate,
+                                  SensorDataStore sensorDataStore,
+                                  AnalysisJobService analysisJobService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.ingest.dir:data/SmartStride}") String directory,
+                                  @Value("${app.ingest.workers:0}") int workers,
+                                  @Value("${app.ingest.queue-capacity:100}") int queueCapacity,
+                                  @Value("${app.ingest.settle-ms:2000}") long settleMillis,
+                                  @Value("${app.ingest.retention-minutes:1440}") long retentionMinutes,
+                                  @Value("${app.upload.storage-format:csv}") String storageFormat) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sensorDataStore = sensorDataStore;
+        this.analysisJobService = analysisJobService;
+        this.meterRegistry = meterRegistry;
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.doneDirectory = this.directory.resolve("done");
+        this.failedDirectory = this.directory.resolve("failed");
+        this.storageFormat = storageFormat;
+        this.settleMillis = settleMillis;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 只在队列有空位时提交，不会被拒绝
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "ingest-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        Gauge.builder("ingest.files.pending", this, s -> s.settling.size() + s.inFlight.size())
+                .description("导入目录中等待处理和处理中的文件数")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(doneDirectory);
+        Files.createDirectories(failedDirectory);
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        watcher = new Thread(this::watch, "ingest-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // 关闭时忽略
+        }
+        watcher.interrupt();
+        workers.shutdown();
+    }
+
+    private void watch() {
+        // 先导入启动前已放入的文件
+        scan();
+        long pollMillis = Math.max(100, Math.min(settleMillis, 1000));
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();  // 事件丢失，重新扫描整个目录
+                        } else {
+                            track(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                submitSettled();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void scan() {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                track(file);
+            }
+        } catch (IOException e) {
+            System.err.println("扫描导入目录失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void track(Path file) {
+        String name = file.getFileName().toString();
+        if (name.toLowerCase().endsWith(SUFFIX) && !inFlight.contains(file) && Files.isRegularFile(file)) {
+            settling.putIfAbsent(file, new Observation());
+        }
+    }
+
+    /**
+     * 把大小和修改时间已稳定的文件交给工作线程，队列满时留到下一轮
+     */
+    private void submitSettled() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Observation>> it = settling.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Observation> entry = it.next();
+            Path file = entry.getKey();
+            Observation observation = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                it.remove();  // 文件已被移走
+                continue;
+            }
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != observation.size || modified != observation.modified) {
+                observation.size = size;
+                observation.modified = modified;
+                observation.changedAt = now;
+                continue;
+            }
+            if (now - observation.changedAt < settleMillis || workers.getQueue().remainingCapacity() == 0) {
+                continue;
+            }
+            it.remove();
+            purgeFinished();
+            IngestFile status = new IngestFile(nextId.incrementAndGet(), file.getFileName().toString(), size);
+            files.put(status.getId(), status);
+            inFlight.add(file);
+            workers.execute(() -> process(file, status));
+        }
+    }
+
+    private void process(Path file, IngestFile status) {
+        String fileName = file.getFileName().toString();
+        Path target = failedDirectory;
+        String result = "failed";
+        try {
+            int separator = fileName.indexOf('_');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("文件名应为 患者ID_名称.csv");
+            }
+            String patientId = fileName.substring(0, separator);
+            status.markParsing(patientId);
+            Integer patientCount = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM dsd.patient WHERE id_card = ?", Integer.class, patientId);
+            if (patientCount == null || patientCount == 0) {
+                throw new IllegalArgumentException("患者不存在，ID: " + patientId);
+            }
+
+            // 读取文件：同时计算内容哈希 (SHA-256) 并逐行解析校验；只有编码保存时才收集采样
+            boolean encoded = SensorDataStore.ENCODING_COLUMNAR.equals(storageFormat)
+                    || SensorDataStore.ENCODING_GORILLA.equals(storageFormat);
+            SensorSessionBuilder builder = encoded ? new SensorSessionBuilder() : null;
+            SensorCsvParser parser = new SensorCsvParser(builder != null ? builder : (t, d, v) -> { });
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream content = new DigestInputStream(new ProgressInputStream(Files.newInputStream(file), status), digest)) {
+                parser.parse(content);
+            }
+            String contentHash = HexUtils.toHex(digest.digest());
+
+            // 同一患者已上传过相同内容、且已完成分析或分析仍在进行时跳过
+            Long existingId = sensorDataStore.findByContentHash(patientId, contentHash);
+            long recordId = 0;
+            if (existingId == null) {
+                SensorSession session = encoded ? builder.build() : null;
+                try {
+                    recordId = store(patientId, file, session, contentHash);
+                } catch (DuplicateKeyException e) {
+                    existingId = sensorDataStore.findByContentHash(patientId, contentHash);
+                }
+            }
+            target = doneDirectory;
+            if (existingId != null) {
+                if (sensorDataStore.isAnalyzed(existingId) || analysisJobService.findActive(existingId) != null) {
+                    status.markDuplicate(existingId, parser.getRowCount());
+                    result = "duplicate";
+                    return;
+                }
+                // 已有记录没有生成报告 (上次分析失败或任务丢失)，重新分析已有记录
+                recordId = existingId;
+            }
+
+            // 在工作线程中直接分析，批量导入不占用上传接口的分析队列
+            status.markAnalyzing(recordId, parser.getRowCount());
+            AnalysisJob job = analysisJobService.runNow(patientId, recordId);
+            if (job.getStatus() != AnalysisJob.Status.DONE) {
+                // 数据已保存，分析失败；文件移到 failed/，修复后重新放入会重新分析已有记录
+                target = failedDirectory;
+                status.markFailed("分析失败: " + job.getError());
+                return;
+            }
+            jdbcTemplate.update("INSERT INTO dsd.data_upload_log (patient_id, file_name, upload_time, status) VALUES (?, ?, NOW(), 'SUCCESS')",
+                    patientId, fileName);
+            status.markDone(job.getId());
+            result = existingId == null ? "stored" : "reanalyzed";
+        } catch (Exception e) {
+            System.err.println("导入文件失败: " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            status.markFailed(e.getMessage());
+        } finally {
+            try {
+                moveUnique(file, target);
+            } catch (IOException e) {
+                System.err.println("移动已导入的文件失败: " + fileName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            inFlight.remove(file);
+            meterRegistry.counter("ingest.files", "result", result).increment();
+        }
+    }
+
+    /**
+     * 把文件移到目标目录，已有同名文件时改名为 名称-1.csv、名称-2.csv ...
+     * 不覆盖已有文件，多个工作线程同时移动同名文件时也不会互相覆盖
+     */
+    private static Path moveUnique(Path file, Path targetDirectory) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int n = 0; ; n++) {
+            Path target = targetDirectory.resolve(n == 0 ? fileName : base + "-" + n + extension);
+            try {
+                return Files.move(file, target);
+            } catch (FileAlreadyExistsException e) {
+                // 换下一个序号
+            }
+        }
+    }
+
+    private long store(String patientId, Path file, SensorSession session, String contentHash) throws IOException {
+        String fileName = file.getFileName().toString();
+        long size = Files.size(file);
+        if (SensorDataStore.ENCODING_COLUMNAR.equals(storageFormat)) {
+            return sensorDataStore.saveColumnar(patientId, fileName, session, size, contentHash);
+        }
+        if (SensorDataStore.ENCODING_GORILLA.equals(storageFormat)) {
+            return sensorDataStore.saveGorilla(patientId, fileName, session, size, contentHash);
+        }
+        try (InputStream content = Files.newInputStream(file)) {
+            return sensorDataStore.saveCsv(patientId, fileName, content, size, contentHash);
+        }
+    }
+
+    /**
+     * 各状态的文件数
+     */
+    public Map<String, Object> summary() {
+        Map<IngestFile.Status, Integer> counts = new EnumMap<>(IngestFile.Status.class);
+        for (IngestFile.Status s : IngestFile.Status.values()) {
+            counts.put(s, 0);
+        }
+        for (IngestFile file : files.values()) {
+            counts.merge(file.getStatus(), 1, Integer::sum);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("directory", directory.toString());
+        summary.put("settling", settling.size());
+        for (Map.Entry<IngestFile.Status, Integer> entry : counts.entrySet()) {
+            summary.put(entry.getKey().name().toLowerCase(), entry.getValue());
+        }
+        return summary;
+    }
+
+    /**
+     * 最近处理的文件，按加入队列的顺序倒序
+     * @param status 为null时返回所有状态
+     */
+    public List<Map<String, Object>> list(IngestFile.Status status, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (IngestFile file : files.values()) {
+            if (status == null || file.getStatus() == status) {
+                result.add(file.toMap());
+            }
+        }
+        result.sort(Comparator.comparing((Map<String, Object> m) -> (Long) m.get("queuedAt")).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        Iterator<IngestFile> it = files.values().iterator();
+        while (it.hasNext()) {
+            IngestFile file = it.next();
+            if (file.isFinished() && file.getFinishedAt() < cutoff) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 文件上一次观察到的大小和修改时间
+     */
+    private static final class Observation {
+        long size = -1;
+        long modified = -1;
+        long changedAt;
+    }
+
+    /**
+     * 读取时把已读字节数更新到进度中
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final IngestFile status;
+        private long count;
+
+        ProgressInputStream(InputStream in, IngestFile status) {
+            super(in);
+            this.status = status;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                status.setBytesRead(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                status.setBytesRead(count);
+            }
+            return n;
+        }
+    }
+}
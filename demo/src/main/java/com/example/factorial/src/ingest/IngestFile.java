@@ -0,0 +1,133 @@
+package com.example.factorial.src.ingest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 目录导入中一个文件的处理进度
+ * 状态由导入线程更新，查询线程通过 {@link #toMap()} 读取
+ */
+public class IngestFile {
+
+    public enum Status {
+        QUEUED,     // 等待处理
+        PARSING,    // 读取并解析中
+        ANALYZING,  // 已保存，分析中
+        DONE,       // 已保存并完成分析
+        DUPLICATE,  // 该患者已上传过相同内容，跳过
+        FAILED      // 失败
+    }
+
+    private final long id;
+    private final String fileName;
+    private final long size;
+    private final long queuedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile String patientId;
+    private volatile long bytesRead;
+    private volatile long rows;
+    private volatile long recordId;
+    private volatile String jobId;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+
+    public IngestFile(long id, String fileName, long size) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.queuedAt = System.currentTimeMillis();
+    }
+
+    /** 导入编号，同名文件多次导入时用来区分 */
+    public long getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void markParsing(String patientId) {
+        this.patientId = patientId;
+        startedAt = System.currentTimeMillis();
+        status = Status.PARSING;
+    }
+
+    /** 解析过程中更新已读取的字节数 */
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public void markAnalyzing(long recordId, long rows) {
+        this.recordId = recordId;
+        this.rows = rows;
+        status = Status.ANALYZING;
+    }
+
+    public void markDone(String jobId) {
+        this.jobId = jobId;
+        finishedAt = System.currentTimeMillis();
+        status = Status.DONE;
+    }
+
+    public void markDuplicate(long recordId, long rows) {
+        this.recordId = recordId;
+        this.rows = rows;
+        finishedAt = System.currentTimeMillis();
+        status = Status.DUPLICATE;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        Status s = status;
+        return s == Status.DONE || s == Status.DUPLICATE || s == Status.FAILED;
+    }
+
+    /**
+     * 文件的处理状态和进度，用于接口返回
+     */
+    public Map<String, Object> toMap() {
+        Status s = status;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("fileName", fileName);
+        map.put("status", s.name());
+        map.put("size", size);
+        map.put("bytesRead", s == Status.QUEUED ? 0 : s == Status.PARSING ? bytesRead : size);
+        map.put("queuedAt", queuedAt);
+        if (patientId != null) {
+            map.put("patientId", patientId);
+        }
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+        }
+        if (recordId > 0) {
+            map.put("recordId", recordId);
+            map.put("dataPoints", rows);
+        }
+        if (jobId != null) {
+            map.put("jobId", jobId);
+        }
+        if (s == Status.FAILED) {
+            map.put("error", error);
+        }
+        if (finishedAt > 0) {
+            map.put("finishedAt", finishedAt);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.factorial.src.live;
+
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.SessionPrincipal;
+import com.example.factorial.src.session.SessionTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * 实时采集连接的握手校验
+ * 浏览器的WebSocket不能设置请求头，令牌通过查询参数 token 传递 (也接受 Authorization 头)；
+ * patientId 为必填参数；与 {@link com.example.factorial.src.session.SessionInterceptor} 对 REST 接口的检查一致，
+ * 需要数据采集或数据管理权限，并且能访问该患者 (医生只能为名下的患者采集)
+ */
+@Component
+public class LiveHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String[] REQUIRED_PERMISSIONS = {AccessPolicy.DATA_COLLECTION, AccessPolicy.DATA_MANAGEMENT};
+
+    private final SessionTokenService sessionTokenService;
+    private final AccessPolicy accessPolicy;
+
+    @Value("${app.session.enforce:true}")
+    private boolean enforce;
+
+    @Autowired
+    public LiveHandshakeInterceptor(SessionTokenService sessionTokenService, AccessPolicy accessPolicy) {
+        this.sessionTokenService = sessionTokenService;
+        this.accessPolicy = accessPolicy;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        Map<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().toSingleValueMap();
+        String patientId = params.get("patientId");
+        if (patientId == null || patientId.isEmpty()) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        String token = params.get("token");
+        String header = request.getHeaders().getFirst("Authorization");
+        if (token == null && header != null && header.startsWith(BEARER_PREFIX)) {
+            token = header.substring(BEARER_PREFIX.length()).trim();
+        }
+        SessionPrincipal principal = sessionTokenService.verify(token);
+        if (principal == null && enforce) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        if (principal != null && (!accessPolicy.hasAny(principal, REQUIRED_PERMISSIONS)
+                || !accessPolicy.canAccessPatient(principal, patientId))) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+        attributes.put(LiveIngestHandler.PATIENT_ATTRIBUTE, patientId);
+        if (principal != null) {
+            attributes.put(SessionPrincipal.REQUEST_ATTRIBUTE, principal);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
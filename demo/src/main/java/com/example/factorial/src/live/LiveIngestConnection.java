@@ -0,0 +1,223 @@
+package com.example.factorial.src.live;
+
+import com.example.factorial.src.LeftSensor1;
+import com.example.factorial.src.SwitchState;
+import com.example.factorial.src.analysis.GaitStatsTracker;
+import com.example.factorial.src.sensor.ImuFrameDecoder;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个实时采集连接
+ * <p>
+ * 收到的二进制消息先放入本连接的有界队列，由共享的工作线程池串行处理，
+ * 同一时刻每个连接最多占用一个工作线程。队列超过高水位时通知客户端暂停 (pause)，
+ * 降到低水位以下时通知恢复 (resume)；客户端不理会而把队列写满时丢弃新消息并计数。
+ * <p>
+ * 每条消息由若干条定长记录组成: 1 字节传感器槽位 + 8 字节采样时间 (epoch 毫秒，大端) + 20 字节原始数据帧。
+ * 解码后的采样更新本连接的 {@link GaitStatsTracker}，槽位 0 (左腿传感器1) 的 Pitch 角
+ * 通过本连接的 {@link SwitchState} 发布给 {@link LeftSensor1}；观察者的处理任务同样在共享线程池中执行，
+ * 连接数再多也只占用共享线程池中的线程。观察者队列已满时丢弃该采样并计数。
+ * 处理消息出错时丢弃该消息并计数，每个连接只打印第一次的堆栈。
+ */
+public class LiveIngestConnection {
+
+    public static final int RECORD_LENGTH = 1 + 8 + ImuFrameDecoder.FRAME_LENGTH;
+    public static final int MAX_SLOTS = 8;
+
+    private static final int PITCH = 7;
+    private static final int MESSAGES_PER_TURN = 16;  // 每次调度最多处理的消息数，避免单个连接独占工作线程
+
+    private final String patientId;
+    private final WebSocketSession session;
+    private final ArrayBlockingQueue<byte[]> inbox;
+    private final Executor executor;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    private final String[] deviceIds = new String[MAX_SLOTS];
+    private final double[] values = new double[SensorCsvParser.CHANNELS.length];
+
+    private final GaitStatsTracker tracker = new GaitStatsTracker();
+    private final SwitchState switchState;
+    private final LeftSensor1 leftSensor;
+
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong invalidRecords = new AtomicLong();
+    private final AtomicLong processingErrors = new AtomicLong();
+
+    /**
+     * @param executor 所有连接共享的工作线程池，处理消息和观察者的任务都在其中执行
+     */
+    public LiveIngestConnection(String patientId, WebSocketSession session, int queueCapacity, Executor executor) {
+        this.patientId = patientId;
+        this.session = session;
+        this.inbox = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = executor;
+        this.switchState = new SwitchState(executor);
+        this.leftSensor = new LeftSensor1(switchState);
+        leftSensor.Register();
+        switchState.Switch();  // 连接建立即开始采集
+        this.highWatermark = Math.max(1, queueCapacity * 3 / 4);
+        this.lowWatermark = queueCapacity / 4;
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            deviceIds[i] = String.valueOf(i + 1);
+        }
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public GaitStatsTracker getTracker() {
+        return tracker;
+    }
+
+    public LeftSensor1 getLeftSensor() {
+        return leftSensor;
+    }
+
+    /**
+     * 为槽位指定设备ID，未指定时为槽位序号 (从1开始)
+     */
+    public void setDevice(int slot, String deviceId) {
+        if (slot >= 0 && slot < MAX_SLOTS && deviceId != null && !deviceId.isEmpty()) {
+            deviceIds[slot] = deviceId;
+        }
+    }
+
+    /**
+     * 在WebSocket容器线程中调用，只入队不处理
+     * @return 队列已满、消息被丢弃时返回false
+     */
+    public boolean enqueue(byte[] payload) {
+        messages.incrementAndGet();
+        boolean accepted = inbox.offer(payload);
+        if (!accepted) {
+            droppedMessages.incrementAndGet();
+        }
+        if (inbox.size() >= highWatermark && paused.compareAndSet(false, true)) {
+            sendControl("pause");
+        }
+        schedule();
+        return accepted;
+    }
+
+    private void schedule() {
+        if (!inbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < MESSAGES_PER_TURN; i++) {
+                byte[] payload = inbox.poll();
+                if (payload == null) {
+                    break;
+                }
+                try {
+                    process(payload);
+                } catch (RuntimeException e) {
+                    if (processingErrors.getAndIncrement() == 0) {
+                        System.err.println("处理实时采集消息失败，连接 " + getId() + " 之后的错误只计数: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+            }
+            if (inbox.size() <= lowWatermark && paused.compareAndSet(true, false)) {
+                sendControl("resume");
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        // 还有剩余消息时重新排队，让其他连接也能得到处理
+        schedule();
+    }
+
+    private void process(byte[] payload) {
+        int records = payload.length / RECORD_LENGTH;
+        if (payload.length % RECORD_LENGTH != 0) {
+            invalidRecords.incrementAndGet();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        for (int r = 0; r < records; r++) {
+            int offset = r * RECORD_LENGTH;
+            int slot = payload[offset] & 0xFF;
+            long timestamp = buf.getLong(offset + 1);
+            if (slot >= MAX_SLOTS || !ImuFrameDecoder.decode(payload, offset + 9, values)) {
+                invalidRecords.incrementAndGet();
+                continue;
+            }
+            samples.incrementAndGet();
+            tracker.onSample(timestamp, deviceIds[slot], values);
+            if (slot == 0 && switchState.Publish(timestamp, values[PITCH]) == 0) {
+                droppedSamples.incrementAndGet();
+            }
+        }
+    }
+
+    private void sendControl(String type) {
+        sendText("{\"type\":\"" + type + "\",\"queued\":" + inbox.size() + "}");
+    }
+
+    /**
+     * 向客户端发送文本消息，可以从任意线程调用
+     */
+    public void sendText(String text) {
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(text));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端接收过慢或已断开，由容器关闭连接
+        }
+    }
+
+    /**
+     * 连接统计和当前步态指标
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("connectionId", getId());
+        map.put("patientId", patientId);
+        map.put("messages", messages.get());
+        map.put("droppedMessages", droppedMessages.get());
+        map.put("queued", inbox.size());
+        map.put("paused", paused.get());
+        map.put("samples", samples.get());
+        map.put("droppedSamples", droppedSamples.get());
+        map.put("invalidRecords", invalidRecords.get());
+        map.put("processingErrors", processingErrors.get());
+        map.put("metrics", tracker.snapshot());
+        return map;
+    }
+
+    /**
+     * 连接关闭时丢弃尚未处理的消息并停止采集，已发布给观察者的采样仍会处理完
+     */
+    public synchronized void close() {
+        inbox.clear();
+        if (switchState.GetState()) {
+            switchState.Switch();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.factorial.src.live;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实时采集的WebSocket接入
+ * <p>
+ * 客户端发送二进制消息 (格式见 {@link LiveIngestConnection})，以及文本控制消息:
+ * {"type":"device","slot":0,"id":"设备ID"} 为槽位命名，{"type":"stats"} 查询当前统计。
+ * 服务端在队列积压时发送 {"type":"pause"}，积压消除后发送 {"type":"resume"}。
+ * <p>
+ * 所有连接共享固定大小的工作线程池，每个连接同一时刻最多占用一个线程，
+ * 向客户端发送消息有时间和缓冲上限，接收过慢的客户端会被断开而不会阻塞其他连接。
+ */
+@Component
+public class LiveIngestHandler extends AbstractWebSocketHandler {
+
+    public static final String PATIENT_ATTRIBUTE = "live.patientId";
+
+    private static final int SEND_TIME_LIMIT_MILLIS = 2000;
+    private static final int SEND_BUFFER_LIMIT = 64 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LiveIngestConnection> connections = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final int queueCapacity;
+    private final Semaphore connectionSlots;  // 建立连接时先占用一个名额，并发握手也不会超过上限
+    private final Counter receivedBytes;
+    private final Counter droppedMessages;
+
+    public LiveIngestHandler(@Value("${app.live.workers:0}") int workers,
+                             @Value("${app.live.queue-capacity:64}") int queueCapacity,
+                             @Value("${app.live.max-connections:500}") int maxConnections,
+                             MeterRegistry meterRegistry) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 每个连接及其观察者各最多排队一个处理任务，任务队列长度不会超过连接数的两倍
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "live-ingest-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.queueCapacity = queueCapacity;
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.receivedBytes = Counter.builder("live.ingest.bytes")
+                .description("实时采集收到的字节数").baseUnit("bytes").register(meterRegistry);
+        this.droppedMessages = Counter.builder("live.ingest.dropped")
+                .description("队列已满被丢弃的实时采集消息数").register(meterRegistry);
+        Gauge.builder("live.ingest.connections", connections, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        for (LiveIngestConnection connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (!connectionSlots.tryAcquire()) {
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
+        }
+        try {
+            String patientId = (String) session.getAttributes().get(PATIENT_ATTRIBUTE);
+            WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MILLIS, SEND_BUFFER_LIMIT);
+            connections.put(session.getId(), new LiveIngestConnection(patientId, concurrent, queueCapacity, workers));
+        } catch (RuntimeException e) {
+            connectionSlots.release();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        LiveIngestConnection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        receivedBytes.increment(bytes.length);
+        if (!connection.enqueue(bytes)) {
+            droppedMessages.increment();
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        LiveIngestConnection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(message.getPayload());
+        } catch (Exception e) {
+            return;  // 忽略无法解析的控制消息
+        }
+        String type = node.path("type").asText();
+        if ("device".equals(type)) {
+            connection.setDevice(node.path("slot").asInt(-1), node.path("id").asText(null));
+        } else if ("stats".equals(type)) {
+            connection.sendText(objectMapper.writeValueAsString(connection.stats()));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        LiveIngestConnection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.close();
+            connectionSlots.release();  // 超过上限被拒绝的连接没有占用名额，也不在connections中
+        }
+    }
+
+    /**
+     * 指定患者当前所有实时采集连接的统计
+     */
+    public List<Map<String, Object>> statsOf(String patientId) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (LiveIngestConnection connection : connections.values()) {
+            if (patientId.equals(connection.getPatientId())) {
+                result.add(connection.stats());
+            }
+        }
+        return result;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+}
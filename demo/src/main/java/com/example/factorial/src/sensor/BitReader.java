@@ -0,0 +1,43 @@
+package com.example.factorial.src.sensor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按位读取 {@link BitWriter} 写出的数据
+ */
+final class BitReader {
+
+    private final InputStream in;
+    private long buffer;  // 已读入未使用的位，靠低位对齐
+    private int count;
+
+    BitReader(InputStream in) {
+        this.in = in;
+    }
+
+    boolean readBit() throws IOException {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * 读取 bits 位 (0 到 64)，作为无符号数返回
+     */
+    long readBits(int bits) throws IOException {
+        if (bits > 32) {
+            long high = readBits(bits - 32);
+            return (high << 32) | readBits(32);
+        }
+        while (count < bits) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("编码数据不完整");
+            }
+            buffer = (buffer << 8) | b;
+            count += 8;
+        }
+        count -= bits;
+        return bits == 0 ? 0 : (buffer >>> count) & ((1L << bits) - 1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.factorial.src.sensor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 按位写出，高位在前；{@link #flush()} 时把最后不足一个字节的部分补0写出
+ */
+final class BitWriter {
+
+    private final OutputStream out;
+    private long buffer;   // 待写出的位，靠低位对齐
+    private int count;     // buffer中尚未写出的位数，写出后总是少于 8
+
+    BitWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeBit(boolean bit) throws IOException {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * 写出 value 的低 bits 位 (0 到 64)
+     */
+    void writeBits(long value, int bits) throws IOException {
+        if (bits > 32) {
+            writeBits(value >>> 32, bits - 32);
+            bits = 32;
+        }
+        if (bits == 0) {
+            return;
+        }
+        buffer = (buffer << bits) | (value & ((1L << bits) - 1));
+        count += bits;
+        while (count >= 8) {
+            count -= 8;
+            out.write((int) (buffer >>> count));
+        }
+    }
+
+    void flush() throws IOException {
+        if (count > 0) {
+            out.write((int) (buffer << (8 - count)));
+            count = 0;
+        }
+        buffer = 0;
+        out.flush();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.factorial.src.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 传感器采样的二进制列式编码
+ * <p>
+ * 格式: 4 字节魔数 "SSC1"，之后为 Deflate 压缩的正文:
+ * <ul>
+ *   <li>采样数、通道数、设备字典 (varint 长度 + UTF-8)</li>
+ *   <li>设备下标列 (varint)</li>
+ *   <li>时间戳列: 与同一设备上一个时间戳的差值 (zigzag varint)</li>
+ *   <li>每个数值通道: 1 字节模式 + 1 字节小数位数。前端导出的数值是固定小数位的，
+ *       能无损表示为 整数/10^k 时按定点数存储与同一设备上一个值的差值 (zigzag varint)，
+ *       否则按 IEEE 754 原始位存储</li>
+ * </ul>
+ * 解码直接生成基本类型数组，不经过文本解析。定点存储不区分 -0.0 和 0.0。
+ */
+public final class ColumnarSensorCodec {
+
+    private static final byte[] MAGIC = {'S', 'S', 'C', '1'};
+    private static final int MODE_RAW = 0;
+    private static final int MODE_SCALED = 1;
+    static final int MAX_SCALE = 6;
+    private static final long MAX_EXACT = 1L << 53;
+    static final double[] POW10 = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6};
+
+    private ColumnarSensorCodec() {
+    }
+
+    /**
+     * 判断数据是否为列式编码 (以魔数开头)
+     */
+    public static boolean isEncoded(byte[] data) {
+        if (data == null || data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(SensorSession session) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, session.size() * 8));
+        bytes.write(MAGIC, 0, MAGIC.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out = new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater, 8192), 8192)) {
+            int size = session.size();
+            String[] devices = session.getDevices();
+            int[] deviceIndexes = session.getDeviceIndexes();
+            writeVarLong(out, size);
+            writeVarLong(out, session.getChannels().length);
+            writeVarLong(out, devices.length);
+            for (String device : devices) {
+                byte[] name = (device == null ? "" : device).getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, name.length);
+                out.write(name);
+            }
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, deviceIndexes[i]);
+            }
+
+            long[] previous = new long[Math.max(1, devices.length)];
+            long[] timestamps = session.getTimestamps();
+            for (int i = 0; i < size; i++) {
+                int d = deviceIndexes[i];
+                writeVarLong(out, zigzag(timestamps[i] - previous[d]));
+                previous[d] = timestamps[i];
+            }
+
+            for (double[] column : session.getChannels()) {
+                int scale = findScale(column, size);
+                Arrays.fill(previous, 0);
+                if (scale < 0) {
+                    out.write(MODE_RAW);
+                    out.write(0);
+                    for (int i = 0; i < size; i++) {
+                        writeLong(out, Double.doubleToRawLongBits(column[i]));
+                    }
+                } else {
+                    out.write(MODE_SCALED);
+                    out.write(scale);
+                    double pow = POW10[scale];
+                    for (int i = 0; i < size; i++) {
+                        int d = deviceIndexes[i];
+                        long fixed = (long) Math.rint(column[i] * pow);
+                        writeVarLong(out, zigzag(fixed - previous[d]));
+                        previous[d] = fixed;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("内存输出流不应抛出 IOException", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SensorSession decode(byte[] data) throws IOException {
+        if (!isEncoded(data)) {
+            throw new IOException("不是列式编码的传感器数据");
+        }
+        Inflater inflater = new Inflater();
+        try (InputStream in = new BufferedInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(data, MAGIC.length, data.length - MAGIC.length), inflater, 8192))) {
+            int size = (int) readVarLong(in);
+            int channelCount = (int) readVarLong(in);
+            int deviceCount = (int) readVarLong(in);
+            String[] devices = new String[deviceCount];
+            for (int d = 0; d < deviceCount; d++) {
+                byte[] name = new byte[(int) readVarLong(in)];
+                readFully(in, name);
+                devices[d] = new String(name, StandardCharsets.UTF_8);
+            }
+            int[] deviceIndexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                deviceIndexes[i] = (int) readVarLong(in);
+                if (deviceIndexes[i] >= deviceCount) {
+                    throw new IOException("设备下标越界: " + deviceIndexes[i]);
+                }
+            }
+
+            long[] previous = new long[Math.max(1, deviceCount)];
+            long[] timestamps = new long[size];
+            for (int i = 0; i < size; i++) {
+                int d = deviceIndexes[i];
+                previous[d] += unzigzag(readVarLong(in));
+                timestamps[i] = previous[d];
+            }
+
+            double[][] channels = new double[channelCount][size];
+            for (double[] column : channels) {
+                int mode = readByte(in);
+                int scale = readByte(in);
+                if (mode == MODE_RAW) {
+                    for (int i = 0; i < size; i++) {
+                        column[i] = Double.longBitsToDouble(readLong(in));
+                    }
+                } else if (mode == MODE_SCALED && scale <= MAX_SCALE) {
+                    Arrays.fill(previous, 0);
+                    double pow = POW10[scale];
+                    for (int i = 0; i < size; i++) {
+                        int d = deviceIndexes[i];
+                        previous[d] += unzigzag(readVarLong(in));
+                        column[i] = previous[d] / pow;
+                    }
+                } else {
+                    throw new IOException("未知的通道编码模式: " + mode);
+                }
+            }
+            return new SensorSession(size, timestamps, devices, deviceIndexes, channels);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 找到能无损表示整列数值的最小小数位数，找不到返回 -1
+     */
+    static int findScale(double[] column, int size) {
+        for (int scale = 0; scale <= MAX_SCALE; scale++) {
+            double pow = POW10[scale];
+            boolean exact = true;
+            for (int i = 0; i < size && exact; i++) {
+                double scaled = Math.rint(column[i] * pow);
+                exact = Math.abs(scaled) < MAX_EXACT && scaled / pow == column[i];
+            }
+            if (exact) {
+                return scale;
+            }
+        }
+        return -1;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint 过长");
+    }
+
+    private static void writeLong(OutputStream out, long v) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (v >>> shift));
+        }
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | readByte(in);
+        }
+        return v;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("列式数据被截断");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] b) throws IOException {
+        int off = 0;
+        while (off < b.length) {
+            int n = in.read(b, off, b.length - off);
+            if (n < 0) {
+                throw new EOFException("列式数据被截断");
+            }
+            off += n;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.factorial.src.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 传感器采样的时间序列压缩编码 (Gorilla 方式)
+ * <p>
+ * 格式: 4 字节魔数 "GTS1"，采样数、通道数、设备字典、每个通道的小数位数 (-1 表示按原始值编码)，
+ * 之后是按原始顺序逐个采样的位流，每个采样依次为:
+ * <ul>
+ *   <li>设备下标，定长 ceil(log2(设备数)) 位</li>
+ *   <li>时间戳: 设备的第一个采样写 64 位原值，之后写与该设备上一个时间差的差值 (delta-of-delta):
+ *       0 为 '0'，[-64, 63] 为 '10'+7 位，[-256, 255] 为 '110'+9 位，[-2048, 2047] 为 '1110'+12 位，
+ *       其余为 '1111'+64 位。固定采样率下绝大多数采样只需 1 位</li>
+ *   <li>每个通道的数值与该设备上一个值的 IEEE 754 位异或: 相同为 '0'；有效位落在上一次的窗口内为
+ *       '10'+窗口内的位；否则为 '11'+5 位前导零数+6 位有效位数+有效位</li>
+ * </ul>
+ * 与 {@link ColumnarSensorCodec} 一样，能无损表示为 整数/10^k 的通道先乘以 10^k 再编码，
+ * 整数值的 double 尾部全为0，异或后的有效位更少。定点存储不区分 -0.0 和 0.0。
+ * <p>
+ * 解码可以逐个采样回调 {@link SensorSampleHandler}，不需要把整次采集读入内存。
+ */
+public final class GorillaSensorCodec {
+
+    private static final byte[] MAGIC = {'G', 'T', 'S', '1'};
+
+    private GorillaSensorCodec() {
+    }
+
+    /**
+     * 判断数据是否为此格式 (以魔数开头)
+     */
+    public static boolean isEncoded(byte[] data) {
+        if (data == null || data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(SensorSession session) {
+        int size = session.size();
+        String[] devices = session.getDevices();
+        int[] deviceIndexes = session.getDeviceIndexes();
+        long[] timestamps = session.getTimestamps();
+        double[][] channels = session.getChannels();
+        int channelCount = channels.length;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, size * 4));
+        try {
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.write(MAGIC);
+            header.writeInt(size);
+            header.writeByte(channelCount);
+            header.writeShort(devices.length);
+            for (String device : devices) {
+                header.writeUTF(device == null ? "" : device);
+            }
+            int[] scales = new int[channelCount];
+            for (int c = 0; c < channelCount; c++) {
+                scales[c] = ColumnarSensorCodec.findScale(channels[c], size);
+                header.writeByte(scales[c]);
+            }
+            header.flush();
+
+            BitWriter out = new BitWriter(new BufferedOutputStream(bytes, 8192));
+            int deviceBits = deviceBits(devices.length);
+            SeriesState[] states = new SeriesState[Math.max(1, devices.length)];
+            for (int i = 0; i < size; i++) {
+                int d = deviceIndexes[i];
+                SeriesState state = states[d];
+                if (state == null) {
+                    state = states[d] = new SeriesState(channelCount);
+                }
+                out.writeBits(d, deviceBits);
+                state.writeTimestamp(out, timestamps[i]);
+                for (int c = 0; c < channelCount; c++) {
+                    double value = channels[c][i];
+                    if (scales[c] >= 0) {
+                        value = Math.rint(value * ColumnarSensorCodec.POW10[scales[c]]);
+                    }
+                    state.writeValue(out, c, Double.doubleToRawLongBits(value));
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("内存输出流不应抛出 IOException", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码为完整的采样数组
+     */
+    public static SensorSession decode(byte[] data) throws IOException {
+        if (!isEncoded(data)) {
+            throw new IOException("不是时间序列压缩编码的传感器数据");
+        }
+        SensorSessionBuilder builder = new SensorSessionBuilder(readSize(data));
+        decode(new ByteArrayInputStream(data), builder);
+        return builder.build();
+    }
+
+    /**
+     * 流式解码，按原始顺序逐个采样回调
+     * @return 采样数
+     */
+    public static int decode(InputStream input, SensorSampleHandler handler) throws IOException {
+        InputStream buffered = input instanceof BufferedInputStream || input instanceof ByteArrayInputStream
+                ? input : new BufferedInputStream(input, 8192);
+        DataInputStream header = new DataInputStream(buffered);
+        byte[] magic = new byte[MAGIC.length];
+        header.readFully(magic);
+        if (!isEncoded(magic)) {
+            throw new IOException("不是时间序列压缩编码的传感器数据");
+        }
+        int size = header.readInt();
+        int channelCount = header.readUnsignedByte();
+        int deviceCount = header.readUnsignedShort();
+        if (size < 0 || channelCount != SensorCsvParser.CHANNELS.length) {
+            throw new IOException("编码数据头无效: 采样数 " + size + "，通道数 " + channelCount);
+        }
+        String[] devices = new String[deviceCount];
+        for (int d = 0; d < deviceCount; d++) {
+            devices[d] = header.readUTF();
+        }
+        double[] divisors = new double[channelCount];
+        for (int c = 0; c < channelCount; c++) {
+            int scale = header.readByte();
+            if (scale > ColumnarSensorCodec.MAX_SCALE) {
+                throw new IOException("无效的小数位数: " + scale);
+            }
+            divisors[c] = scale < 0 ? 0 : ColumnarSensorCodec.POW10[scale];
+        }
+
+        BitReader in = new BitReader(buffered);
+        int deviceBits = deviceBits(deviceCount);
+        SeriesState[] states = new SeriesState[Math.max(1, deviceCount)];
+        double[] values = new double[channelCount];
+        for (int i = 0; i < size; i++) {
+            int d = (int) in.readBits(deviceBits);
+            if (d >= deviceCount) {
+                throw new IOException("设备下标越界: " + d);
+            }
+            SeriesState state = states[d];
+            if (state == null) {
+                state = states[d] = new SeriesState(channelCount);
+            }
+            long timestamp = state.readTimestamp(in);
+            for (int c = 0; c < channelCount; c++) {
+                double value = Double.longBitsToDouble(state.readValue(in, c));
+                values[c] = divisors[c] == 0 ? value : value / divisors[c];
+            }
+            handler.onSample(timestamp, devices[d], values);
+        }
+        return size;
+    }
+
+    private static int readSize(byte[] data) {
+        if (data.length < MAGIC.length + 4) {
+            return 0;
+        }
+        int p = MAGIC.length;
+        return ((data[p] & 0xFF) << 24) | ((data[p + 1] & 0xFF) << 16) | ((data[p + 2] & 0xFF) << 8) | (data[p + 3] & 0xFF);
+    }
+
+    private static int deviceBits(int deviceCount) {
+        return deviceCount <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(deviceCount - 1);
+    }
+
+    /**
+     * 一个设备的编解码状态: 上一个时间戳、时间差，以及每个通道上一个值和异或窗口
+     */
+    private static final class SeriesState {
+        boolean started;
+        long timestamp;
+        long delta;
+        final long[] previous;
+        final int[] leading;
+        final int[] trailing;
+
+        SeriesState(int channels) {
+            previous = new long[channels];
+            leading = new int[channels];
+            trailing = new int[channels];
+            Arrays.fill(leading, -1);
+        }
+
+        void writeTimestamp(BitWriter out, long value) throws IOException {
+            if (!started) {
+                started = true;
+                out.writeBits(value, 64);
+                timestamp = value;
+                return;
+            }
+            long newDelta = value - timestamp;
+            long dod = newDelta - delta;
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (dod >= -64 && dod <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            delta = newDelta;
+            timestamp = value;
+        }
+
+        long readTimestamp(BitReader in) throws IOException {
+            if (!started) {
+                started = true;
+                timestamp = in.readBits(64);
+                return timestamp;
+            }
+            long dod;
+            if (!in.readBit()) {
+                dod = 0;
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(7), 7);
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(9), 9);
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(12), 12);
+            } else {
+                dod = in.readBits(64);
+            }
+            delta += dod;
+            timestamp += delta;
+            return timestamp;
+        }
+
+        void writeValue(BitWriter out, int channel, long bits) throws IOException {
+            long xor = bits ^ previous[channel];
+            previous[channel] = bits;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trail = Long.numberOfTrailingZeros(xor);
+            if (leading[channel] >= 0 && lead >= leading[channel] && trail >= trailing[channel]) {
+                // 有效位落在上一次的窗口内，沿用窗口
+                out.writeBit(false);
+                out.writeBits(xor >>> trailing[channel], 64 - leading[channel] - trailing[channel]);
+            } else {
+                int significant = 64 - lead - trail;
+                out.writeBit(true);
+                out.writeBits(lead, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trail, significant);
+                leading[channel] = lead;
+                trailing[channel] = trail;
+            }
+        }
+
+        long readValue(BitReader in, int channel) throws IOException {
+            if (in.readBit()) {
+                long xor;
+                if (!in.readBit()) {
+                    if (leading[channel] < 0) {
+                        throw new IOException("编码数据无效: 缺少异或窗口");
+                    }
+                    xor = in.readBits(64 - leading[channel] - trailing[channel]) << trailing[channel];
+                } else {
+                    int lead = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    int trail = 64 - lead - significant;
+                    if (trail < 0) {
+                        throw new IOException("编码数据无效: 有效位数 " + significant);
+                    }
+                    xor = in.readBits(significant) << trail;
+                    leading[channel] = lead;
+                    trailing[channel] = trail;
+                }
+                previous[channel] ^= xor;
+            }
+            return previous[channel];
+        }
+
+        private static long signExtend(long value, int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
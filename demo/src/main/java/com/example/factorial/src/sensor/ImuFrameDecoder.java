@@ -0,0 +1,40 @@
+package com.example.factorial.src.sensor;
+
+/**
+ * 解码传感器蓝牙通知中的 20 字节数据帧
+ * <p>
+ * 帧格式 (与前端 BlueTooth.vue 一致): 0x55 0x61 开头，之后 9 个小端 int16:
+ * 加速度 X/Y/Z (±16g)、角速度 X/Y/Z (±2000°/s)、Roll/Pitch/Yaw (±180°)。
+ * 解码结果的通道顺序与 {@link SensorCsvParser#CHANNELS} 一致。
+ */
+public final class ImuFrameDecoder {
+
+    public static final int FRAME_LENGTH = 20;
+
+    private static final int HEADER = 0x55;
+    private static final int FLAG = 0x61;
+    private static final double ACC_SCALE = 16.0 / 32768;
+    private static final double GYRO_SCALE = 2000.0 / 32768;
+    private static final double ANGLE_SCALE = 180.0 / 32768;
+
+    private ImuFrameDecoder() {
+    }
+
+    /**
+     * 解码 buf[offset, offset + 20) 处的一帧到 values
+     * @param values 长度至少为 9
+     * @return 帧头不匹配时返回false，values不变
+     */
+    public static boolean decode(byte[] buf, int offset, double[] values) {
+        if ((buf[offset] & 0xFF) != HEADER || (buf[offset + 1] & 0xFF) != FLAG) {
+            return false;
+        }
+        for (int c = 0; c < 9; c++) {
+            int p = offset + 2 + c * 2;
+            short raw = (short) ((buf[p] & 0xFF) | (buf[p + 1] << 8));
+            double scale = c < 3 ? ACC_SCALE : c < 6 ? GYRO_SCALE : ANGLE_SCALE;
+            values[c] = raw * scale;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.factorial.src.sensor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 增量解析蓝牙采集导出的传感器 CSV
+ * 格式: 时间戳,设备ID,设备名称,AccX(g),AccY(g),AccZ(g),GyroX(°/s),GyroY(°/s),GyroZ(°/s),Roll(°),Pitch(°),Yaw(°)
+ * 数据按字节分块送入 {@link #update(byte[], int, int)}，内部只缓存当前未结束的一行，
+ * 内存占用与文件大小无关。
+ */
+public class SensorCsvParser {
+
+    /** 数值通道名称，与 CSV 表头第 4 列起的顺序一致 */
+    public static final String[] CHANNELS = {
+            "AccX", "AccY", "AccZ", "GyroX", "GyroY", "GyroZ", "Roll", "Pitch", "Yaw"
+    };
+
+    private static final int FIRST_VALUE_COLUMN = 3;
+    private static final int MAX_LINE_BYTES = 64 * 1024; // 超过此长度的行视为格式错误
+
+    private final SensorSampleHandler handler;
+    private final double[] values = new double[CHANNELS.length];
+    private final Map<String, String> deviceIds = new HashMap<>(); // 复用设备ID字符串
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lineOverflow;
+    private boolean headerSkipped;
+
+    private long bytesRead;
+    private long rowCount;
+    private long invalidRows;
+
+    /**
+     * @param handler 采样回调，传 null 表示只统计行数
+     */
+    public SensorCsvParser(SensorSampleHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 从输入流读取并解析全部内容
+     */
+    public void parse(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            update(buffer, 0, n);
+        }
+        finish();
+    }
+
+    /**
+     * 送入一段字节
+     */
+    public void update(byte[] b, int off, int len) {
+        bytesRead += len;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte c = b[i];
+            if (c == '\n') {
+                endLine();
+            } else if (!lineOverflow) {
+                if (lineLength == line.length) {
+                    if (line.length >= MAX_LINE_BYTES) {
+                        lineOverflow = true;
+                        continue;
+                    }
+                    line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_BYTES));
+                }
+                line[lineLength++] = c;
+            }
+        }
+    }
+
+    /**
+     * 输入结束，处理最后一行 (没有换行结尾的情况)
+     */
+    public void finish() {
+        if (lineLength > 0 || lineOverflow) {
+            endLine();
+        }
+    }
+
+    private void endLine() {
+        boolean overflow = lineOverflow;
+        int len = lineLength;
+        lineLength = 0;
+        lineOverflow = false;
+        if (len > 0 && line[len - 1] == '\r') {
+            len--;
+        }
+        if (!headerSkipped) {
+            headerSkipped = true; // 第一行为表头
+            return;
+        }
+        if (overflow) {
+            invalidRows++;
+            return;
+        }
+        if (len == 0) {
+            return; // 忽略空行
+        }
+        if (parseRow(new String(line, 0, len, StandardCharsets.UTF_8))) {
+            rowCount++;
+        } else {
+            invalidRows++;
+        }
+    }
+
+    private boolean parseRow(String row) {
+        long timestamp = 0;
+        String deviceId = null;
+        int column = 0;
+        int pos = 0;
+        int length = row.length();
+        while (pos <= length && column < FIRST_VALUE_COLUMN + CHANNELS.length) {
+            int start;
+            int end;
+            int next;
+            if (pos < length && row.charAt(pos) == '"') {
+                start = pos + 1;
+                end = row.indexOf('"', start);
+                if (end < 0) {
+                    return false;
+                }
+                next = row.indexOf(',', end);
+            } else {
+                start = pos;
+                next = row.indexOf(',', pos);
+                end = next < 0 ? length : next;
+            }
+            try {
+                if (column == 0) {
+                    timestamp = parseTimestamp(row.substring(start, end).trim());
+                } else if (column == 1) {
+                    deviceId = deviceIds.computeIfAbsent(row.substring(start, end).trim(), k -> k);
+                } else if (column >= FIRST_VALUE_COLUMN) {
+                    values[column - FIRST_VALUE_COLUMN] = Double.parseDouble(row.substring(start, end));
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return false;
+            }
+            column++;
+            if (next < 0) {
+                break;
+            }
+            pos = next + 1;
+        }
+        if (column < FIRST_VALUE_COLUMN + CHANNELS.length) {
+            return false;
+        }
+        if (handler != null) {
+            handler.onSample(timestamp, deviceId, values);
+        }
+        return true;
+    }
+
+    private static long parseTimestamp(String text) {
+        if (!text.isEmpty() && Character.isDigit(text.charAt(text.length() - 1)) && text.indexOf('-') < 0) {
+            return Long.parseLong(text); // epoch 毫秒
+        }
+        return Instant.parse(text).toEpochMilli(); // 前端导出的 ISO-8601 时间
+    }
+
+    /** 已送入的字节数 */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** 成功解析的数据行数 (不含表头和空行) */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** 格式错误的数据行数 */
+    public long getInvalidRows() {
+        return invalidRows;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.factorial.src.sensor;
+
+/**
+ * 解析出的传感器采样回调
+ * values 数组在解析过程中复用，如需保留请自行复制
+ */
+@FunctionalInterface
+public interface SensorSampleHandler {
+
+    /**
+     * @param timestampMillis 采样时间 (epoch 毫秒)
+     * @param deviceId 设备ID
+     * @param values 各通道数值，顺序与 {@link SensorCsvParser#CHANNELS} 一致
+     */
+    void onSample(long timestampMillis, String deviceId, double[] values);
+}
@@ -0,0 +1,49 @@
+package com.example.factorial.src.sensor;
+
+/**
+ * 一次采集的全部采样，按列存储为基本类型数组
+ * 第 i 个采样的时间为 timestamps[i]，设备为 devices[deviceIndexes[i]]，
+ * 通道 c 的数值为 channels[c][i]，通道顺序与 {@link SensorCsvParser#CHANNELS} 一致
+ */
+public class SensorSession {
+
+    private final int size;
+    private final long[] timestamps;
+    private final String[] devices;
+    private final int[] deviceIndexes;
+    private final double[][] channels;
+
+    public SensorSession(int size, long[] timestamps, String[] devices, int[] deviceIndexes, double[][] channels) {
+        this.size = size;
+        this.timestamps = timestamps;
+        this.devices = devices;
+        this.deviceIndexes = deviceIndexes;
+        this.channels = channels;
+    }
+
+    /** 采样数 */
+    public int size() {
+        return size;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /** 设备ID字典 */
+    public String[] getDevices() {
+        return devices;
+    }
+
+    public int[] getDeviceIndexes() {
+        return deviceIndexes;
+    }
+
+    public double[][] getChannels() {
+        return channels;
+    }
+
+    public double[] getChannel(int channel) {
+        return channels[channel];
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.factorial.src.sensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把解析出的采样追加到按列增长的基本类型数组中，最后生成 {@link SensorSession}
+ */
+public class SensorSessionBuilder implements SensorSampleHandler {
+
+    private int size;
+    private long[] timestamps;
+    private int[] deviceIndexes;
+    private final double[][] channels;
+    private final Map<String, Integer> deviceIndex = new HashMap<>();
+    private final List<String> devices = new ArrayList<>();
+
+    public SensorSessionBuilder() {
+        this(1024);
+    }
+
+    public SensorSessionBuilder(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        timestamps = new long[capacity];
+        deviceIndexes = new int[capacity];
+        channels = new double[SensorCsvParser.CHANNELS.length][capacity];
+    }
+
+    @Override
+    public void onSample(long timestampMillis, String deviceId, double[] values) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        Integer device = deviceIndex.get(deviceId);
+        if (device == null) {
+            device = devices.size();
+            devices.add(deviceId);
+            deviceIndex.put(deviceId, device);
+        }
+        timestamps[size] = timestampMillis;
+        deviceIndexes[size] = device;
+        for (int c = 0; c < channels.length; c++) {
+            channels[c][size] = values[c];
+        }
+        size++;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length + (timestamps.length >> 1);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        deviceIndexes = Arrays.copyOf(deviceIndexes, capacity);
+        for (int c = 0; c < channels.length; c++) {
+            channels[c] = Arrays.copyOf(channels[c], capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 生成采样集合，数组按实际采样数截断
+     */
+    public SensorSession build() {
+        double[][] columns = new double[channels.length][];
+        for (int c = 0; c < channels.length; c++) {
+            columns[c] = Arrays.copyOf(channels[c], size);
+        }
+        return new SensorSession(size, Arrays.copyOf(timestamps, size), devices.toArray(new String[0]),
+                Arrays.copyOf(deviceIndexes, size), columns);
+    }
+}
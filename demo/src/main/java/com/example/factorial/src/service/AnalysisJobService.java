@@ -0,0 +1,209 @@
+package com.example.factorial.src.service;
+
+import com.example.factorial.src.analysis.AnalysisJob;
+import com.example.factorial.src.analysis.GaitAnalysisEngine;
+import com.example.factorial.src.analysis.GaitMetrics;
+import com.example.factorial.src.analysis.SeriesPyramid;
+import com.example.factorial.src.sensor.SensorSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上传数据的异步分析任务队列
+ * <p>
+ * 固定数量的工作线程 + 有界的等待队列：队列满时拒绝新任务，
+ * 上传接口因此不会在请求线程上等待分析，突发上传也不会占满 Tomcat 线程池或耗尽内存。
+ * 任务只记录上传记录的id，工作线程执行时才从 {@link SensorDataStore} 读取并解码采样，
+ * 排队中的任务不占用采样数据的内存。
+ * 已结束的任务保留一段时间供查询，之后由后台线程定期清理。
+ */
+@Service
+public class AnalysisJobService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorDataStore sensorDataStore;
+    private final GaitAnalysisEngine engine;
+    private final PatientReportCache reportCache;
+    private final SeriesPyramidCache seriesCache;
+    private final TransactionTemplate transaction;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService purger;
+    private final long retentionMillis;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+    // 按 outcome 缓存的任务耗时，避免每个任务结束时都构建并查找一次
+    private final ConcurrentMap<String, Timer> durations = new ConcurrentHashMap<>();
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AnalysisJobService(JdbcTemplate jdbcTemplate,
+                              SensorDataStore sensorDataStore,
+                              GaitAnalysisEngine engine,
+                              PatientReportCache reportCache,
+                              SeriesPyramidCache seriesCache,
+                              MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.analysis.workers:2}") int workers,
+                              @Value("${app.analysis.queue-capacity:50}") int queueCapacity,
+                              @Value("${app.analysis.job-retention-minutes:60}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sensorDataStore = sensorDataStore;
+        this.engine = engine;
+        this.reportCache = reportCache;
+        this.seriesCache = seriesCache;
+        this.meterRegistry = meterRegistry;
+        this.rejected = meterRegistry.counter("analysis.jobs.rejected");
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "analysis-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analysis-job-purger");
+            t.setDaemon(true);
+            return t;
+        });
+        long purgeMillis = Math.max(1000, Math.min(retentionMillis, TimeUnit.MINUTES.toMillis(1)));
+        purger.scheduleWithFixedDelay(this::purgeFinished, purgeMillis, purgeMillis, TimeUnit.MILLISECONDS);
+        Gauge.builder("analysis.jobs.backlog", executor, e -> e.getQueue().size())
+                .description("等待中的分析任务数")
+                .register(meterRegistry);
+        Gauge.builder("analysis.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行的分析任务数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+        executor.shutdown();
+    }
+
+    /**
+     * 提交一次上传的分析任务，分析完成后写入 patient_reports
+     * @param recordId 对应的 patient_csv_data 记录
+     * @throws RejectedExecutionException 等待队列已满
+     */
+    public AnalysisJob submit(String patientId, long recordId) {
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), patientId, recordId);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            rejected.increment();
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 在调用线程中执行分析，不占用等待队列，供批量导入等自带工作线程的场景使用
+     * 任务同样可以通过 {@link #get(String)} 查询
+     */
+    public AnalysisJob runNow(String patientId, long recordId) {
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), patientId, recordId);
+        jobs.put(job.getId(), job);
+        run(job);
+        return job;
+    }
+
+    private void run(AnalysisJob job) {
+        job.markRunning();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            SensorSession session = sensorDataStore.loadSession(job.getRecordId());
+            if (session == null) {
+                throw new IllegalStateException("上传记录不存在: " + job.getRecordId());
+            }
+            GaitMetrics metrics = engine.analyze(session);
+            // 报告和分析标记在同一事务中提交：只写入报告而没有标记时，相同内容的再次上传会重复分析并写入第二份报告
+            transaction.executeWithoutResult(status -> {
+                String reportSql = "INSERT INTO dsd.patient_reports (patient_id, report_date, report_type, summary, motion_range, score) VALUES (?, NOW(), '步态分析', '蓝牙测量数据上传', ?, ?)";
+                jdbcTemplate.update(reportSql, job.getPatientId(), metrics.motionRangeJson(), metrics.scoreJson());
+                sensorDataStore.markAnalyzed(job.getRecordId());
+            });
+            reportCache.invalidate(job.getPatientId());
+            // 预先计算绘图用的多分辨率降采样序列
+            seriesCache.put(job.getRecordId(), SeriesPyramid.build(session));
+            job.markDone(metrics);
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.markFailed(e.getMessage());
+            outcome = "failure";
+        } finally {
+            sample.stop(durations.computeIfAbsent(outcome, key -> Timer.builder("analysis.job.duration")
+                    .description("分析任务耗时 (计算指标并写入报告)")
+                    .tag("outcome", key)
+                    .register(meterRegistry)));
+        }
+    }
+
+    /**
+     * @return 任务不存在或已被清理时返回null
+     */
+    public AnalysisJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 查找某条上传记录排队中或执行中的任务
+     * @return 没有未结束的任务时返回null
+     */
+    public AnalysisJob findActive(long recordId) {
+        for (AnalysisJob job : jobs.values()) {
+            if (job.getRecordId() == recordId && !job.isFinished()) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /** 等待中的任务数 */
+    public int getBacklog() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 清理保留期已过的已结束任务，由后台线程定期调用
+     */
+    void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        Iterator<AnalysisJob> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            AnalysisJob job = it.next();
+            if (job.isFinished() && job.getFinishedAt() < cutoff) {
+                it.remove();
+            }
+        }
+    }
+}
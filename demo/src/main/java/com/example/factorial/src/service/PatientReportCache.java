@@ -0,0 +1,197 @@
+package com.example.factorial.src.service;
+
+import com.example.factorial.src.analysis.Lttb;
+import com.example.factorial.src.util.TtlLruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 患者报告列表的缓存
+ * 缓存序列化后的JSON，前端轮询时不再查询数据库和重建每行的data对象；
+ * 写入新报告后调用 {@link #invalidate(String)} 使该患者的缓存失效；
+ * 指定了点数的降采样结果按 患者ID/点数 分别缓存，同时失效；
+ * 点数取固定的几档 ({@link #POINT_LEVELS})，客户端传任意点数也不会产生大量缓存项
+ * <p>
+ * 查询在只读事务中执行，启用读写分离时走副本；患者刚写入新报告的一段时间内
+ * (副本允许的最大复制延迟加一个检测间隔) 改从主库读取，避免把副本上的旧数据放回缓存
+ */
+@Service
+public class PatientReportCache {
+
+    // 降采样的点数档位，请求的点数向上取到最近的一档，超过最大一档的按最大一档
+    static final int[] POINT_LEVELS = {100, 200, 500, 1000, 2000};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TtlLruCache<String, byte[]> cache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long primaryReadMillis; // 写入后改从主库读取的时长
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>(); // 患者ID -> 最近一次写入的时间
+
+    @Autowired
+    public PatientReportCache(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.report-cache.max-entries:1000}") int maxEntries,
+                              @Value("${app.report-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${app.datasource.replica.max-lag-ms:1000}") long maxReplicaLagMillis,
+                              @Value("${app.datasource.replica.check-interval-ms:1000}") long replicaCheckMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // 副本的延迟在两次检测之间还可能继续增大，再加上一个检测间隔
+        this.primaryReadMillis = Math.max(0, maxReplicaLagMillis) + replicaCheckMillis;
+        this.cache = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+        FunctionCounter.builder("report.cache.requests", cache, TtlLruCache::getHits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("report.cache.requests", cache, TtlLruCache::getMisses)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("report.cache.evictions", cache, TtlLruCache::getEvictions)
+                .tag("cause", "size").register(meterRegistry);
+        FunctionCounter.builder("report.cache.evictions", cache, TtlLruCache::getExpirations)
+                .tag("cause", "expired").register(meterRegistry);
+        Gauge.builder("report.cache.size", cache, TtlLruCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 获取患者报告列表的JSON，按报告日期倒序
+     */
+    public byte[] getReportsJson(String patientId) {
+        return getReportsJson(patientId, 0);
+    }
+
+    /**
+     * 获取患者报告列表的JSON，运动幅度和得分数组超过points个点时用LTTB降采样
+     * @param points 不大于0时返回完整数组，否则取到 {@link #POINT_LEVELS} 中的一档
+     */
+    public byte[] getReportsJson(String patientId, int points) {
+        int level = pointLevel(points);
+        String key = level > 0 ? patientId + "/" + level : patientId;
+        return cache.get(key, k -> load(patientId, level));
+    }
+
+    static int pointLevel(int points) {
+        if (points <= 0) {
+            return 0;
+        }
+        for (int level : POINT_LEVELS) {
+            if (points <= level) {
+                return level;
+            }
+        }
+        return POINT_LEVELS[POINT_LEVELS.length - 1];
+    }
+
+    private byte[] load(String patientId, int points) {
+        // 从数据库中查询患者报告
+        String sql = "SELECT report_date as date, report_type as type, summary, " +
+                     "motion_range as '运动幅度', score as '得分' " +
+                     "FROM dsd.patient_reports WHERE patient_id = ? " +
+                     "ORDER BY report_date DESC";
+
+        List<Map<String, Object>> reports = recentlyWritten(patientId)
+                ? jdbcTemplate.queryForList(sql, patientId)
+                : readOnlyTransaction.execute(status -> jdbcTemplate.queryForList(sql, patientId));
+
+        // 处理数据格式，运动幅度和得分放入data对象
+        for (Map<String, Object> report : reports) {
+            Map<String, Object> data = new HashMap<>();
+            putSeries(data, "运动幅度", report.remove("运动幅度"), points);
+            putSeries(data, "得分", report.remove("得分"), points);
+            report.put("data", data);
+        }
+
+        try {
+            return objectMapper.writeValueAsBytes(reports);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 数组列以JSON文本放入data，降采样后仍为JSON文本；无法解析的保持原样
+     * 降采样时与 /recordings/{hash}/series 一样给出每个值的横坐标: data.indices.<列名> 为保留点在原数组中的下标，
+     * data.totalPoints.<列名> 为原数组长度；没有降采样的列不出现在其中
+     */
+    @SuppressWarnings("unchecked")
+    private void putSeries(Map<String, Object> data, String name, Object json, int points) {
+        if (json == null) {
+            data.put(name, null);
+            return;
+        }
+        String text = json.toString();
+        double[] values = null;
+        if (points > 0) {
+            try {
+                values = objectMapper.readValue(text, double[].class);
+            } catch (IOException e) {
+                // 保持原样
+            }
+        }
+        if (values == null || values.length <= points) {
+            data.put(name, text);
+            return;
+        }
+        int[] selected = Lttb.select(null, values, values.length, points);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < selected.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            double v = values[selected[i]];
+            // 得分等整数数组保持整数格式
+            if (v == Math.rint(v) && !Double.isInfinite(v)) {
+                sb.append((long) v);
+            } else {
+                sb.append(v);
+            }
+        }
+        data.put(name, sb.append(']').toString());
+        ((Map<String, Object>) data.computeIfAbsent("indices", k -> new LinkedHashMap<String, Object>())).put(name, selected);
+        ((Map<String, Object>) data.computeIfAbsent("totalPoints", k -> new LinkedHashMap<String, Object>())).put(name, values.length);
+    }
+
+    /**
+     * 该患者有新报告写入时调用
+     */
+    public void invalidate(String patientId) {
+        recentWrites.put(patientId, System.currentTimeMillis());
+        String prefix = patientId + "/";
+        cache.invalidateIf(key -> key.equals(patientId) || key.startsWith(prefix));
+    }
+
+    private boolean recentlyWritten(String patientId) {
+        Long writtenAt = recentWrites.get(patientId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt <= primaryReadMillis) {
+            return true;
+        }
+        recentWrites.remove(patientId, writtenAt);
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,460 @@
+package com.example.factorial.src.service;
+
+import com.example.factorial.src.sensor.ColumnarSensorCodec;
+import com.example.factorial.src.sensor.GorillaSensorCodec;
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSampleHandler;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import com.example.factorial.src.storage.SegmentStore;
+import com.example.factorial.src.util.ByteBufferInputStream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 患者上传的传感器数据 (dsd.patient_csv_data) 的读写
+ * 支持三种存储格式: 原始 CSV 文本、二进制列式编码和时间序列压缩编码
+ * <p>
+ * 启用分段存储 ({@link SegmentStore}) 时，文件内容追加到分段文件中，数据库记录只保存
+ * segment_offset 和 segment_length，file_content 留空；否则 CSV 文本保存在 file_content，
+ * 编码后的二进制保存在 file_blob。两种记录可以共存，读取时按记录判断。
+ */
+@Service
+public class SensorDataStore {
+
+    public static final String ENCODING_CSV = "csv";
+    public static final String ENCODING_COLUMNAR = "columnar";
+    public static final String ENCODING_GORILLA = "gorilla";
+
+    private static final String SELECT_PAYLOAD =
+        "SELECT encoding, file_blob, file_content, segment_offset, segment_length FROM dsd.patient_csv_data WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SegmentStore segmentStore;
+    private final AtomicBoolean schemaReady = new AtomicBoolean(false);
+
+    @Autowired
+    public SensorDataStore(JdbcTemplate jdbcTemplate, ObjectProvider<SegmentStore> segmentStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.segmentStore = segmentStore.getIfAvailable();
+    }
+
+    /**
+     * 检查是否存在patient_csv_data表，如果不存在则创建；旧表补充列式存储需要的列
+     */
+    public void ensureSchema() {
+        if (schemaReady.get()) {
+            return;
+        }
+        String createTableSql =
+            "CREATE TABLE IF NOT EXISTS dsd.patient_csv_data (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "patient_id VARCHAR(50) NOT NULL, " +
+            "file_name VARCHAR(255) NOT NULL, " +
+            "upload_time DATETIME NOT NULL, " +
+            "file_content MEDIUMTEXT NOT NULL, " +  // 使用MEDIUMTEXT存储CSV内容，最大16MB
+            "file_size INT NOT NULL, " +
+            "encoding VARCHAR(16) NOT NULL DEFAULT 'csv', " +  // csv 或 columnar
+            "file_blob MEDIUMBLOB NULL, " +  // 列式编码的数据
+            "content_hash CHAR(64) NULL, " +  // 原始文件内容的SHA-256，用于去重
+            "segment_offset BIGINT NULL, " +  // 内容在分段存储中的位置
+            "segment_length BIGINT NULL, " +
+            "analyzed_at DATETIME NULL, " +  // 分析完成、报告写入的时间
+            "INDEX (patient_id), " +  // 添加索引以加快查询
+            "UNIQUE KEY uk_patient_content (patient_id, content_hash)" +
+            ")";
+        jdbcTemplate.execute(createTableSql);
+        addColumnIfMissing("encoding VARCHAR(16) NOT NULL DEFAULT 'csv'");
+        addColumnIfMissing("file_blob MEDIUMBLOB NULL");
+        addColumnIfMissing("content_hash CHAR(64) NULL");
+        addColumnIfMissing("segment_offset BIGINT NULL");
+        addColumnIfMissing("segment_length BIGINT NULL");
+        addColumnIfMissing("analyzed_at DATETIME NULL");
+        alterIgnoringExisting("ADD UNIQUE KEY uk_patient_content (patient_id, content_hash)");
+        schemaReady.set(true);
+    }
+
+    private void addColumnIfMissing(String columnDefinition) {
+        alterIgnoringExisting("ADD COLUMN " + columnDefinition);
+    }
+
+    /**
+     * 执行 ALTER TABLE，只忽略列或索引已存在的错误，其他错误 (权限、连接等) 照常抛出
+     */
+    private void alterIgnoringExisting(String alteration) {
+        try {
+            jdbcTemplate.execute("ALTER TABLE dsd.patient_csv_data " + alteration);
+        } catch (DataAccessException e) {
+            if (!alreadyExists(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean alreadyExists(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        if (!(cause instanceof SQLException)) {
+            return false;
+        }
+        switch (((SQLException) cause).getErrorCode()) {
+            case 1060:   // MySQL: 列已存在
+            case 1061:   // MySQL: 索引已存在
+            case 42121:  // H2: 列已存在
+            case 42111:  // H2: 索引已存在
+            case 90045:  // H2: 约束已存在
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 按内容哈希查找该患者已上传的相同文件
+     * @return 已存在记录的id，不存在返回null
+     */
+    public Long findByContentHash(String patientId, String contentHash) {
+        ensureSchema();
+        List<Long> ids = jdbcTemplate.queryForList(
+            "SELECT id FROM dsd.patient_csv_data WHERE patient_id = ? AND content_hash = ? LIMIT 1",
+            Long.class, patientId, contentHash);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * @return 记录已完成分析、报告已写入时返回true
+     */
+    public boolean isAnalyzed(long id) {
+        ensureSchema();
+        List<Integer> analyzed = jdbcTemplate.queryForList(
+            "SELECT 1 FROM dsd.patient_csv_data WHERE id = ? AND analyzed_at IS NOT NULL", Integer.class, id);
+        return !analyzed.isEmpty();
+    }
+
+    /**
+     * 记录分析完成，之后相同内容的重复上传直接去重
+     */
+    public void markAnalyzed(long id) {
+        ensureSchema();
+        jdbcTemplate.update("UPDATE dsd.patient_csv_data SET analyzed_at = NOW() WHERE id = ?", id);
+    }
+
+    /**
+     * 按内容哈希查找该患者上传的文件，只读取位置信息；内容保存在数据库中的旧记录同时读出内容
+     * @return 不存在时返回null
+     */
+    public StoredFile findStoredFile(String patientId, String contentHash) {
+        ensureSchema();
+        List<StoredFile> files = jdbcTemplate.query(
+            "SELECT id, file_name, encoding, segment_offset, segment_length, " +
+            "CASE WHEN segment_length IS NULL THEN file_blob END, " +
+            "CASE WHEN segment_length IS NULL THEN file_content END " +
+            "FROM dsd.patient_csv_data WHERE patient_id = ? AND content_hash = ? LIMIT 1",
+            (rs, rowNum) -> {
+                long segmentLength = rs.getLong(5);
+                if (!rs.wasNull()) {
+                    return new StoredFile(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4), segmentLength, null);
+                }
+                byte[] content = rs.getBytes(6);
+                if (content == null) {
+                    String text = rs.getString(7);
+                    content = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+                }
+                return new StoredFile(rs.getLong(1), rs.getString(2), rs.getString(3), -1, content.length, content);
+            }, patientId, contentHash);
+        return files.isEmpty() ? null : files.get(0);
+    }
+
+    /**
+     * 以CSV文本保存，content在写入分段文件或数据库时被流式读取
+     * 相同患者、相同内容哈希的记录已存在时抛出 DuplicateKeyException
+     * @return 新记录的id
+     */
+    public long saveCsv(String patientId, String fileName, InputStream content, long size, String contentHash) throws IOException {
+        ensureSchema();
+        if (segmentStore != null) {
+            long offset = segmentStore.append(content, size);
+            return insertSegment(patientId, fileName, ENCODING_CSV, offset, size, size, contentHash);
+        }
+        String sql =
+            "INSERT INTO dsd.patient_csv_data (patient_id, file_name, upload_time, file_content, file_size, encoding, content_hash) " +
+            "VALUES (?, ?, NOW(), ?, ?, '" + ENCODING_CSV + "', ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, patientId);
+            ps.setString(2, fileName);
+            ps.setBinaryStream(3, content, size);
+            ps.setLong(4, size);
+            ps.setString(5, contentHash);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * 以列式编码保存，file_content留空
+     * 相同患者、相同内容哈希的记录已存在时抛出 DuplicateKeyException
+     * @param originalSize 原始CSV文件的字节数
+     * @return 新记录的id
+     */
+    public long saveColumnar(String patientId, String fileName, SensorSession session, long originalSize, String contentHash) throws IOException {
+        return saveBlob(patientId, fileName, ENCODING_COLUMNAR, ColumnarSensorCodec.encode(session), originalSize, contentHash);
+    }
+
+    /**
+     * 以时间序列压缩编码保存，file_content留空
+     * 相同患者、相同内容哈希的记录已存在时抛出 DuplicateKeyException
+     * @param originalSize 原始CSV文件的字节数
+     * @return 新记录的id
+     */
+    public long saveGorilla(String patientId, String fileName, SensorSession session, long originalSize, String contentHash) throws IOException {
+        return saveBlob(patientId, fileName, ENCODING_GORILLA, GorillaSensorCodec.encode(session), originalSize, contentHash);
+    }
+
+    private long saveBlob(String patientId, String fileName, String encoding, byte[] payload, long originalSize, String contentHash) throws IOException {
+        ensureSchema();
+        if (segmentStore != null) {
+            long offset = segmentStore.append(payload);
+            return insertSegment(patientId, fileName, encoding, offset, payload.length, originalSize, contentHash);
+        }
+        String sql =
+            "INSERT INTO dsd.patient_csv_data (patient_id, file_name, upload_time, file_content, file_size, encoding, file_blob, content_hash) " +
+            "VALUES (?, ?, NOW(), '', ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, patientId);
+            ps.setString(2, fileName);
+            ps.setLong(3, originalSize);
+            ps.setString(4, encoding);
+            ps.setBytes(5, payload);
+            ps.setString(6, contentHash);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * 插入内容已写入分段存储的记录
+     */
+    private long insertSegment(String patientId, String fileName, String encoding, long offset, long length,
+                               long originalSize, String contentHash) {
+        String sql =
+            "INSERT INTO dsd.patient_csv_data (patient_id, file_name, upload_time, file_content, file_size, encoding, content_hash, segment_offset, segment_length) " +
+            "VALUES (?, ?, NOW(), '', ?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, patientId);
+            ps.setString(2, fileName);
+            ps.setLong(3, originalSize);
+            ps.setString(4, encoding);
+            ps.setString(5, contentHash);
+            ps.setLong(6, offset);
+            ps.setLong(7, length);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * 删除一条上传记录
+     * 分段存储只追加，记录在分段文件中的内容不会被回收
+     */
+    public void delete(long id) {
+        ensureSchema();
+        jdbcTemplate.update("DELETE FROM dsd.patient_csv_data WHERE id = ?", id);
+    }
+
+    /**
+     * 读取一次上传的采样数据，列式编码直接解码为基本类型数组，CSV则重新解析
+     * @return 记录不存在时返回null
+     */
+    public SensorSession loadSession(long id) throws IOException {
+        ensureSchema();
+        Object[] row;
+        try {
+            row = jdbcTemplate.queryForObject(SELECT_PAYLOAD, (rs, rowNum) -> new Object[]{
+                rs.getString(1), rs.getBytes(2), rs.getString(3), segmentOf(rs)}, id);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        String encoding = (String) row[0];
+        ByteBuffer segment = (ByteBuffer) row[3];
+        if (ENCODING_COLUMNAR.equals(encoding)) {
+            byte[] data = (byte[]) row[1];
+            if (segment != null) {
+                data = new byte[segment.remaining()];
+                segment.get(data);
+            }
+            return ColumnarSensorCodec.decode(data);
+        }
+        if (ENCODING_GORILLA.equals(encoding)) {
+            if (segment == null) {
+                return GorillaSensorCodec.decode((byte[]) row[1]);
+            }
+            SensorSessionBuilder builder = new SensorSessionBuilder();
+            GorillaSensorCodec.decode(new ByteBufferInputStream(segment), builder);
+            return builder.build();
+        }
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        new SensorCsvParser(builder).parse(segment != null
+            ? new ByteBufferInputStream(segment)
+            : new ByteArrayInputStream(((String) row[2]).getBytes(StandardCharsets.UTF_8)));
+        return builder.build();
+    }
+
+    /**
+     * 逐个采样读取一次上传的数据，不生成完整的采样数组
+     * 时间序列压缩编码和CSV边解码边回调；列式编码先整体解码再逐个回调
+     * @return 记录不存在时返回false
+     */
+    public boolean forEachSample(long id, SensorSampleHandler handler) throws IOException {
+        ensureSchema();
+        try {
+            Boolean found = jdbcTemplate.query(SELECT_PAYLOAD, rs -> {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    String encoding = rs.getString(1);
+                    try {
+                        ByteBuffer segment = segmentOf(rs);
+                        if (ENCODING_GORILLA.equals(encoding)) {
+                            try (InputStream in = segment != null ? new ByteBufferInputStream(segment) : rs.getBinaryStream(2)) {
+                                GorillaSensorCodec.decode(in, handler);
+                            }
+                        } else if (ENCODING_COLUMNAR.equals(encoding)) {
+                            byte[] data;
+                            if (segment != null) {
+                                data = new byte[segment.remaining()];
+                                segment.get(data);
+                            } else {
+                                data = rs.getBytes(2);
+                            }
+                            replay(ColumnarSensorCodec.decode(data), handler);
+                        } else {
+                            new SensorCsvParser(handler).parse(segment != null
+                                ? new ByteBufferInputStream(segment)
+                                : new ByteArrayInputStream(rs.getString(3).getBytes(StandardCharsets.UTF_8)));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return true;
+                }, id);
+            return Boolean.TRUE.equals(found);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 记录内容在分段存储中时返回其只读缓冲区，否则返回null
+     */
+    private ByteBuffer segmentOf(ResultSet rs) throws SQLException {
+        long length = rs.getLong(5);
+        if (rs.wasNull()) {
+            return null;
+        }
+        long offset = rs.getLong(4);
+        try {
+            if (segmentStore == null) {
+                throw new IOException("记录保存在分段存储中，但分段存储未启用 (app.segment-store.enabled)");
+            }
+            return segmentStore.read(offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 一条上传记录保存的文件内容: csv 格式为原始CSV，其余格式为编码后的二进制
+     * 内容在分段存储中时只有位置信息，否则为数据库中读出的内容
+     */
+    public static final class StoredFile {
+        private final long id;
+        private final String fileName;
+        private final String encoding;
+        private final long segmentOffset;
+        private final long length;
+        private final byte[] content;
+
+        StoredFile(long id, String fileName, String encoding, long segmentOffset, long length, byte[] content) {
+            this.id = id;
+            this.fileName = fileName;
+            this.encoding = encoding;
+            this.segmentOffset = segmentOffset;
+            this.length = length;
+            this.content = content;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getEncoding() {
+            return encoding;
+        }
+
+        public boolean isInSegmentStore() {
+            return content == null;
+        }
+
+        /**
+         * 在分段存储中的全局偏移量，内容在数据库中时为-1
+         */
+        public long getSegmentOffset() {
+            return segmentOffset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * 数据库中读出的内容，内容在分段存储中时为null
+         */
+        public byte[] getContent() {
+            return content;
+        }
+    }
+
+    private static void replay(SensorSession session, SensorSampleHandler handler) {
+        long[] timestamps = session.getTimestamps();
+        String[] devices = session.getDevices();
+        int[] deviceIndexes = session.getDeviceIndexes();
+        double[][] channels = session.getChannels();
+        double[] values = new double[channels.length];
+        for (int i = 0; i < session.size(); i++) {
+            for (int c = 0; c < channels.length; c++) {
+                values[c] = channels[c][i];
+            }
+            handler.onSample(timestamps[i], devices[deviceIndexes[i]], values);
+        }
+    }
+}
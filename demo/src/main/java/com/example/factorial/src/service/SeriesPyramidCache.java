@@ -0,0 +1,82 @@
+package com.example.factorial.src.service;
+
+import com.example.factorial.src.analysis.SeriesPyramid;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * 上传记录的多分辨率降采样序列
+ * <p>
+ * 分析任务完成时放入刚算好的 {@link SeriesPyramid}；缓存中没有时 (服务重启或已被淘汰)
+ * 从数据库读取采样重新计算。请求的点数超过最高一档时从原始采样降采样，不缓存。
+ */
+@Service
+public class SeriesPyramidCache {
+
+    private final SensorDataStore sensorDataStore;
+    private final TtlLruCache<Long, SeriesPyramid> cache;
+
+    @Autowired
+    public SeriesPyramidCache(SensorDataStore sensorDataStore,
+                              @Value("${app.series.cache-entries:32}") int maxEntries,
+                              @Value("${app.series.ttl-seconds:1800}") long ttlSeconds) {
+        this.sensorDataStore = sensorDataStore;
+        this.cache = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    public void put(long recordId, SeriesPyramid pyramid) {
+        cache.put(recordId, pyramid);
+    }
+
+    /**
+     * 取一条记录中某设备某通道不超过points点的序列
+     * @return 记录或设备不存在时返回null
+     */
+    public SeriesPyramid.Series getSeries(long recordId, String device, int channel, int points) {
+        SeriesPyramid pyramid = cache.get(recordId, this::load);
+        if (pyramid == null) {
+            return null;
+        }
+        SeriesPyramid.Series series = pyramid.get(device, channel, points);
+        if (series != null || pyramid.getSourceSize(device) < 0) {
+            return series;
+        }
+        SensorSession session = loadSession(recordId);
+        return session == null ? null : SeriesPyramid.downsample(session, device, channel, points);
+    }
+
+    /**
+     * @return 记录不存在时返回null
+     */
+    public SeriesPyramid getPyramid(long recordId) {
+        return cache.get(recordId, this::load);
+    }
+
+    public void invalidate(long recordId) {
+        cache.invalidate(recordId);
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    private SeriesPyramid load(long recordId) {
+        SensorSession session = loadSession(recordId);
+        return session == null ? null : SeriesPyramid.build(session);
+    }
+
+    private SensorSession loadSession(long recordId) {
+        try {
+            return sensorDataStore.loadSession(recordId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.factorial.src.session;
+
+import com.example.factorial.src.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 接口的权限码和患者数据的归属规则
+ * <p>
+ * 权限码与 PermissionEntityManagement 中权限树的叶节点一致；
+ * 拥有数据管理权限 (管理员) 可以访问所有患者，医生只能访问 dsd.patient.doctor_username
+ * 为自己的患者，患者只能访问自己 (用户名即身份证号) 的数据。
+ * <p>
+ * 医生名下的患者按医生用户名缓存，鉴权时不查询数据库；新增患者或更换主治医生后
+ * 调用 {@link #invalidateDoctor(String)}，在其他程序中直接修改 dsd.patient 的最迟在缓存过期后生效。
+ */
+@Component
+public class AccessPolicy {
+
+    public static final String DATA_MANAGEMENT = "数据管理";
+    public static final String VIEW_HISTORY = "显示历史数据";
+    public static final String COMPARE = "对比";
+    public static final String PATIENT_MANAGEMENT = "患者管理";
+    public static final String SELECT_PATIENT = "选择患者";
+    public static final String DATA_COLLECTION = "数据采集";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TtlLruCache<String, Set<String>> doctorPatients; // 医生用户名 -> 名下患者ID
+
+    @Autowired
+    public AccessPolicy(JdbcTemplate jdbcTemplate,
+                        @Value("${app.access-cache.max-entries:1000}") int maxEntries,
+                        @Value("${app.access-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.doctorPatients = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    public boolean hasAny(SessionPrincipal principal, String[] codes) {
+        for (String code : codes) {
+            if (principal.hasPermission(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前用户能否访问该患者的数据
+     */
+    public boolean canAccessPatient(SessionPrincipal principal, String patientId) {
+        if (principal.hasPermission(DATA_MANAGEMENT)) {
+            return true;
+        }
+        if (SessionTokenService.ROLE_DOCTOR.equals(principal.getRole())) {
+            return patientsOf(principal.getUsername()).contains(patientId);
+        }
+        return principal.getUsername().equals(patientId);
+    }
+
+    private Set<String> patientsOf(String doctorUsername) {
+        return doctorPatients.get(doctorUsername, doctor -> Collections.unmodifiableSet(new HashSet<>(
+                jdbcTemplate.queryForList("SELECT id_card FROM dsd.patient WHERE doctor_username = ?", String.class, doctor))));
+    }
+
+    /**
+     * 医生名下的患者有变化 (新增患者、更换主治医生) 时调用；更换医生时原医生和新医生都要调用
+     */
+    public void invalidateDoctor(String doctorUsername) {
+        doctorPatients.invalidate(doctorUsername);
+    }
+
+    /**
+     * 批量修改患者归属后清空整个缓存
+     */
+    public void invalidateAll() {
+        doctorPatients.clear();
+    }
+}
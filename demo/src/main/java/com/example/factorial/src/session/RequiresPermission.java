@@ -0,0 +1,21 @@
+package com.example.factorial.src.session;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注接口需要的权限，由 {@link SessionInterceptor} 在进入接口前检查
+ * 当前用户拥有其中任意一个权限即可访问；请求带有 patientId (路径变量或参数) 时
+ * 还会检查当前用户能否访问该患者，见 {@link AccessPolicy#canAccessPatient}
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RequiresPermission {
+
+    /** 权限码，取值见 {@link AccessPolicy} 中的常量 */
+    String[] value();
+}
@@ -0,0 +1,90 @@
+package com.example.factorial.src.session;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 校验 /api 请求携带的会话令牌，并按接口上的 {@link RequiresPermission} 检查权限
+ * 校验通过后把 {@link SessionPrincipal} 放入请求属性，接口中需要按用户过滤数据时直接读取；
+ * 请求带有 patientId 时同时检查当前用户能否访问该患者
+ */
+@Component
+public class SessionInterceptor implements HandlerInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String PATIENT_ID = "patientId";
+
+    private final SessionTokenService sessionTokenService;
+    private final AccessPolicy accessPolicy;
+
+    @Value("${app.session.enforce:true}")
+    private boolean enforce; // false 时只解析令牌，不拒绝未登录的请求，也不检查权限
+
+    @Autowired
+    public SessionInterceptor(SessionTokenService sessionTokenService, AccessPolicy accessPolicy) {
+        this.sessionTokenService = sessionTokenService;
+        this.accessPolicy = accessPolicy;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true; // CORS 预检请求不带令牌
+        }
+        String header = request.getHeader("Authorization");
+        String token = header != null && header.startsWith(BEARER_PREFIX) ? header.substring(BEARER_PREFIX.length()).trim() : null;
+        SessionPrincipal principal = sessionTokenService.verify(token);
+        if (principal == null) {
+            if (!enforce) {
+                return true;
+            }
+            reject(response, 401, "未登录或登录已过期");
+            return false;
+        }
+        request.setAttribute(SessionPrincipal.REQUEST_ATTRIBUTE, principal);
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        RequiresPermission required = method.getMethodAnnotation(RequiresPermission.class);
+        if (required == null) {
+            required = method.getBeanType().getAnnotation(RequiresPermission.class);
+        }
+        if (required != null && !accessPolicy.hasAny(principal, required.value())) {
+            reject(response, 403, "权限不足");
+            return false;
+        }
+        String patientId = patientIdOf(request);
+        if (patientId != null && !accessPolicy.canAccessPatient(principal, patientId)) {
+            reject(response, 403, "无权访问该患者的数据");
+            return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String patientIdOf(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null && variables.containsKey(PATIENT_ID)) {
+            return variables.get(PATIENT_ID);
+        }
+        return request.getParameter(PATIENT_ID);
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getOutputStream().write(("{\"code\":" + status + ",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
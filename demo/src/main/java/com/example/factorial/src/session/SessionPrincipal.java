@@ -0,0 +1,46 @@
+package com.example.factorial.src.session;
+
+import com.example.factorial.src.PermissionSet;
+
+/**
+ * 从会话令牌中还原出的当前用户
+ * 权限集合按令牌中的角色从服务端权限树取得，鉴权时不需要访问数据库
+ */
+public class SessionPrincipal {
+
+    /** 请求属性名，拦截器校验通过后把当前用户放在该属性中 */
+    public static final String REQUEST_ATTRIBUTE = "com.example.factorial.src.session.SessionPrincipal";
+
+    private final String username;
+    private final String role;
+    private final long expiresAt;
+    private final PermissionSet permissions;
+
+    public SessionPrincipal(String username, String role, long expiresAt, PermissionSet permissions) {
+        this.username = username;
+        this.role = role;
+        this.expiresAt = expiresAt;
+        this.permissions = permissions;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /** 过期时间 (epoch 秒) */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public PermissionSet getPermissions() {
+        return permissions;
+    }
+
+    public boolean hasPermission(String code) {
+        return permissions.check(code);
+    }
+}
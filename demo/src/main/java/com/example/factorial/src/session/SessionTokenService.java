@@ -0,0 +1,140 @@
+package com.example.factorial.src.session;
+
+import com.example.factorial.src.PermissionEntityManagement;
+import com.example.factorial.src.PermissionSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 签发和校验无状态会话令牌
+ * 令牌格式: base64url(载荷).base64url(HMAC-SHA256签名)
+ * 载荷包含用户名、角色和过期时间，校验只需要一次 HMAC 计算，不访问数据库；
+ * 权限集合在校验时按角色从服务端的权限树取得，令牌中不携带权限码下标
+ */
+@Service
+public class SessionTokenService {
+
+    public static final String ROLE_ADMIN = "Admin";
+    public static final String ROLE_DOCTOR = "Doctor";
+    public static final String ROLE_PATIENT = "Patient";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    // Mac 不是线程安全的，每个线程复用一个实例
+    private final ThreadLocal<Mac> macs;
+
+    public SessionTokenService(@Value("${app.session.secret:}") String secret,
+                               @Value("${app.session.ttl-seconds:43200}") long ttlSeconds) {
+        byte[] keyBytes;
+        if (secret == null || secret.isEmpty()) {
+            // 未配置密钥时每次启动随机生成，重启后需要重新登录
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        PermissionEntityManagement.GetSingleton().INTI();
+    }
+
+    /**
+     * 规范化数据库中保存的角色 (dsd.users.role)，未知或为空时按权限最少的患者处理
+     */
+    public String normalizeRole(String role) {
+        if (ROLE_ADMIN.equalsIgnoreCase(role)) {
+            return ROLE_ADMIN;
+        }
+        if (ROLE_DOCTOR.equalsIgnoreCase(role)) {
+            return ROLE_DOCTOR;
+        }
+        return ROLE_PATIENT;
+    }
+
+    /**
+     * 角色对应的编译后权限集合
+     */
+    public PermissionSet permissionsOf(String role) {
+        PermissionEntityManagement m = PermissionEntityManagement.GetSingleton();
+        PermissionSet set;
+        if (ROLE_ADMIN.equals(role)) {
+            set = m.GetAdmSet();
+        } else if (ROLE_DOCTOR.equals(role)) {
+            set = m.GetDocSet();
+        } else {
+            set = m.GetPatSet();
+        }
+        return set != null ? set : PermissionSet.Empty();
+    }
+
+    /**
+     * 为登录成功的用户签发令牌
+     * @param role 数据库中保存的角色，见 {@link #normalizeRole}
+     */
+    public String issue(String username, String role) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = username + '\n' + normalizeRole(role) + '\n' + expiresAt;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * 校验令牌，签名错误、格式错误或已过期时返回 null
+     */
+    public SessionPrincipal verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(payloadBytes))) {
+                return null;
+            }
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\n", -1);
+            if (parts.length != 3) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(parts[2]);
+            if (expiresAt < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return new SessionPrincipal(parts[0], parts[1], expiresAt, permissionsOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法初始化 " + HMAC_ALGORITHM, e);
+        }
+    }
+}
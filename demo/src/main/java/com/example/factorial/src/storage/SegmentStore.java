@@ -0,0 +1,305 @@
+package com.example.factorial.src.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 原始采集数据的追加写入分段存储
+ * <p>
+ * 数据依次追加到目录下的分段文件中，文件名为该分段第一个字节的全局偏移量 (20位十进制)，
+ * 写满 maxSegmentBytes 后开始新的分段。每条记录前有 12 字节的记录头 (魔数 + 长度)，
+ * 调用方只需保存返回的全局偏移量和长度。已写入的数据不再修改，删除记录不回收空间。
+ * <p>
+ * 读取时小记录和仍在追加的分段中的记录用一次按位置的 read 复制到堆中；已写满的分段第一次读取大记录时
+ * 整体映射一次，之后的读取都返回该映射的切片，不再为每次读取执行 mmap。
+ * 也可以用 {@link #transferTo} 从文件直接发送到网络连接。
+ * 启动时检查最后一个分段，截掉写入中断留下的不完整记录。
+ * 需要设置 app.segment-store.enabled=true 才会启用。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.segment-store", name = "enabled", havingValue = "true")
+public class SegmentStore {
+
+    private static final int MAGIC = 0x53534731; // "SSG1"
+    static final int HEADER_BYTES = 12;
+    // 不超过该长度的记录直接读入堆中，复制的开销小于映射
+    static final int HEAP_READ_LIMIT = 256 * 1024;
+    private static final String SUFFIX = ".segment";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean fsync;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment active;
+
+    public SegmentStore(@Value("${app.segment-store.dir:data/SmartStride/segments}") String directory,
+                        @Value("${app.segment-store.max-segment-mb:1024}") long maxSegmentMegabytes,
+                        @Value("${app.segment-store.fsync:true}") boolean fsync) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        // 已写满的分段整体映射到内存，不能超过 2GB
+        this.maxSegmentBytes = Math.min(Math.max(1, maxSegmentMegabytes) * 1024 * 1024, Integer.MAX_VALUE);
+        this.fsync = fsync;
+        Files.createDirectories(this.directory);
+        open();
+    }
+
+    private void open() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String base = name.substring(0, name.length() - SUFFIX.length());
+                if (base.matches("\\d{20}")) {
+                    segments.put(Long.parseLong(base), new Segment(Long.parseLong(base), file));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            active = createSegment(0);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.recover();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 追加一条记录
+     * @return 记录内容的全局偏移量
+     */
+    public long append(byte[] payload) throws IOException {
+        return append(Channels.newChannel(new ByteArrayInputStream(payload)), payload.length);
+    }
+
+    /**
+     * 从输入流追加一条长度为 length 的记录，数据从流直接写入文件
+     * @return 记录内容的全局偏移量
+     * @throws IOException 输入流提前结束时抛出，已写入的部分会被下一条记录覆盖
+     */
+    public long append(InputStream content, long length) throws IOException {
+        return append(Channels.newChannel(content), length);
+    }
+
+    private synchronized long append(ReadableByteChannel content, long length) throws IOException {
+        if (length < 0 || length > maxSegmentBytes - HEADER_BYTES) {
+            throw new IOException("记录长度超出分段大小上限: " + length);
+        }
+        if (active.size > 0 && active.size + HEADER_BYTES + length > maxSegmentBytes) {
+            active = createSegment(active.baseOffset + active.size);
+        }
+        Segment segment = active;
+        long position = segment.size;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putLong(length).flip();
+        while (header.hasRemaining()) {
+            segment.channel.write(header, position + header.position());
+        }
+        long written = 0;
+        while (written < length) {
+            long n = segment.channel.transferFrom(content, position + HEADER_BYTES + written, length - written);
+            if (n <= 0) {
+                throw new IOException("输入数据比声明的长度短: " + written + " < " + length);
+            }
+            written += n;
+        }
+        if (fsync) {
+            segment.channel.force(false);
+        }
+        segment.size = position + HEADER_BYTES + length;
+        return segment.baseOffset + position + HEADER_BYTES;
+    }
+
+    /**
+     * 读取一条记录的内容，返回只读缓冲区
+     * 已写满的分段中超过 {@link #HEAP_READ_LIMIT} 的记录返回分段映射的切片，其余读入堆中
+     */
+    public ByteBuffer read(long offset, long length) throws IOException {
+        Segment segment = segmentOf(offset, length);
+        int position = (int) (offset - segment.baseOffset);
+        if (length > HEAP_READ_LIMIT && segment != active) {
+            ByteBuffer view = segment.mapping().duplicate();
+            view.position(position).limit(position + (int) length);
+            return view.slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (segment.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("分段文件比记录短: offset=" + offset + ", length=" + length);
+            }
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 把记录内容 [offset + from, offset + from + count) 从文件直接写入目标通道
+     * 目标为套接字时由操作系统在内核中完成复制 (sendfile)
+     * @return 写入的字节数
+     */
+    public long transferTo(long offset, long length, long from, long count, WritableByteChannel target) throws IOException {
+        Segment segment = segmentOf(offset, length);
+        if (from < 0 || count < 0 || from + count > length) {
+            throw new IOException("读取范围超出记录: " + from + "+" + count + " > " + length);
+        }
+        long position = offset - segment.baseOffset + from;
+        long transferred = 0;
+        while (transferred < count) {
+            long n = segment.channel.transferTo(position + transferred, count - transferred, target);
+            if (n <= 0) {
+                break;
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    /**
+     * 记录内容所在的分段文件和文件内位置，供 Tomcat sendfile 等按文件路径发送的场景使用
+     */
+    public Location locate(long offset, long length) throws IOException {
+        Segment segment = segmentOf(offset, length);
+        return new Location(segment.file, offset - segment.baseOffset);
+    }
+
+    private Segment segmentOf(long offset, long length) throws IOException {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+        if (entry == null || length < 0 || offset - HEADER_BYTES < entry.getKey()
+                || offset + length > entry.getKey() + entry.getValue().size) {
+            throw new IOException("分段存储中不存在该记录: offset=" + offset + ", length=" + length);
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * 已创建整体映射的分段数
+     */
+    int mappedSegments() {
+        int n = 0;
+        for (Segment segment : segments.values()) {
+            if (segment.mapped != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private Segment createSegment(long baseOffset) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+        Segment segment = new Segment(baseOffset, file);
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                // 关闭时忽略
+            }
+        }
+    }
+
+    public static final class Location {
+        private final Path file;
+        private final long position;
+
+        Location(Path file, long position) {
+            this.file = file;
+            this.position = position;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * 记录内容在分段文件中的起始位置
+         */
+        public long getPosition() {
+            return position;
+        }
+    }
+
+    private static final class Segment {
+        final long baseOffset;
+        final Path file;
+        final FileChannel channel;
+        volatile long size;
+        private volatile MappedByteBuffer mapped;  // 写满后的整体只读映射，第一次读取大记录时创建
+
+        Segment(long baseOffset, Path file) throws IOException {
+            this.baseOffset = baseOffset;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        /**
+         * 已写满分段的整体只读映射，分段不再追加，映射创建后一直有效
+         */
+        MappedByteBuffer mapping() throws IOException {
+            MappedByteBuffer m = mapped;
+            if (m == null) {
+                synchronized (this) {
+                    m = mapped;
+                    if (m == null) {
+                        m = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        mapped = m;
+                    }
+                }
+            }
+            return m;
+        }
+
+        /**
+         * 从头检查记录头，截掉最后一条不完整的记录
+         */
+        void recover() throws IOException {
+            long fileSize = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (position + HEADER_BYTES <= fileSize) {
+                header.clear();
+                while (header.hasRemaining() && channel.read(header, position + header.position()) > 0) {
+                    // 读满记录头
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    break;
+                }
+                long length = header.getLong();
+                if (length < 0 || position + HEADER_BYTES + length > fileSize) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+            }
+            if (position < fileSize) {
+                channel.truncate(position);
+            }
+            size = position;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.factorial.src.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 按 RFC 4180 规则逐行写出 CSV
+ * 包含逗号、双引号或换行的字段加引号，字段内的双引号写成两个双引号
+ */
+public class CsvWriter {
+
+    private final Writer out;
+    private boolean firstField = true;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * 写出一个字段，null 写成空字段
+     */
+    public CsvWriter field(Object value) throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        firstField = false;
+        if (value == null) {
+            return this;
+        }
+        String text = value.toString();
+        if (needsQuoting(text)) {
+            out.write('"');
+            int start = 0;
+            int quote;
+            while ((quote = text.indexOf('"', start)) >= 0) {
+                out.write(text, start, quote + 1 - start);
+                out.write('"');
+                start = quote + 1;
+            }
+            out.write(text, start, text.length() - start);
+            out.write('"');
+        } else {
+            out.write(text);
+        }
+        return this;
+    }
+
+    /**
+     * 结束当前行
+     */
+    public void endRow() throws IOException {
+        out.write('\n');
+        firstField = true;
+    }
+
+    /**
+     * 写出一整行
+     */
+    public void row(Object... values) throws IOException {
+        for (Object value : values) {
+            field(value);
+        }
+        endRow();
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
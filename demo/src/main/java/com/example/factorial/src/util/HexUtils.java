@@ -0,0 +1,24 @@
+package com.example.factorial.src.util;
+
+/**
+ * 十六进制编码工具
+ */
+public final class HexUtils {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private HexUtils() {
+    }
+
+    /**
+     * 字节数组转为小写十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = DIGITS[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = DIGITS[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
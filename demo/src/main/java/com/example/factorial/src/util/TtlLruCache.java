@@ -0,0 +1,184 @@
+package com.example.factorial.src.util;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 按容量 (最近最少使用) 和存活时间淘汰的缓存
+ * <p>
+ * 加载在锁外进行；加载期间该键被失效时，加载结果只返回给调用方、不写入缓存，
+ * 避免把失效前读到的旧数据放回缓存。其他键的失效不影响正在进行的加载。
+ * 所有方法都是线程安全的。
+ */
+public class TtlLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+    private final Set<Load<K>> loading = new HashSet<>(); // 正在进行的加载，失效时标记对应键的加载
+    private long invalidations;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public TtlLruCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries必须大于0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlLruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存，未命中或已过期时调用loader加载
+     */
+    public V get(K key, Function<K, V> loader) {
+        Load<K> load = new Load<>(key);
+        synchronized (this) {
+            Entry<V> entry = map.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits++;
+                    return entry.value;
+                }
+                map.remove(key);
+                expirations++;
+            }
+            misses++;
+            loading.add(load);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } finally {
+            synchronized (this) {
+                loading.remove(load);
+            }
+        }
+        synchronized (this) {
+            if (value != null && !load.stale) {
+                map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 直接放入已经算好的值
+     */
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        map.remove(key);
+        markLoading(key::equals);
+    }
+
+    /**
+     * 使满足条件的所有键失效
+     */
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        invalidations++;
+        Iterator<K> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next())) {
+                it.remove();
+            }
+        }
+        markLoading(predicate);
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        map.clear();
+        markLoading(key -> true);
+    }
+
+    // 正在加载的键被失效时，加载结果不再写入缓存
+    private void markLoading(Predicate<K> predicate) {
+        for (Load<K> load : loading) {
+            if (predicate.test(load.key)) {
+                load.stale = true;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * 命中、未命中、容量淘汰、过期和失效的计数
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", map.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        long total = hits + misses;
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hits / total);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    /**
+     * 一次正在进行的加载，只在持有缓存的锁时访问
+     */
+    private static final class Load<K> {
+        final K key;
+        boolean stale;
+
+        Load(K key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
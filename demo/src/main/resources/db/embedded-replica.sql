@@ -0,0 +1,4 @@
+-- 本地调试用的副本：表结构与主库相同，另有一名只存在于副本上的患者
+RUNSCRIPT FROM 'classpath:db/embedded-schema.sql';
+
+MERGE INTO dsd.patient (id_card, name, gender, doctor_username) KEY (id_card) VALUES ('900000', '副本患者', '女', 'DOC001');
@@ -0,0 +1,54 @@
+-- 本地调试用的最小表结构 (H2, MySQL兼容模式)，与 create_patient_reports.sql 对应
+CREATE SCHEMA IF NOT EXISTS dsd;
+
+CREATE TABLE IF NOT EXISTS dsd.users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(100) NOT NULL,
+    role VARCHAR(20) NOT NULL DEFAULT 'Patient'
+);
+
+CREATE TABLE IF NOT EXISTS dsd.patient (
+    id_card VARCHAR(50) PRIMARY KEY,
+    name VARCHAR(50),
+    birth_date DATE,
+    gender VARCHAR(10),
+    phone VARCHAR(20),
+    address VARCHAR(255),
+    doctor_username VARCHAR(50)
+);
+-- 按医生分页查询患者 (WHERE doctor_username = ? AND id_card > ? ORDER BY id_card) 走索引范围扫描，与 add_patient_doctor_index.sql 对应
+CREATE INDEX IF NOT EXISTS idx_patient_doctor ON dsd.patient (doctor_username, id_card);
+
+CREATE TABLE IF NOT EXISTS dsd.patient_reports (
+    report_id INT AUTO_INCREMENT PRIMARY KEY,
+    patient_id VARCHAR(50) NOT NULL,
+    report_date DATE NOT NULL,
+    report_type VARCHAR(50) NOT NULL,
+    summary VARCHAR(255),
+    motion_range JSON,
+    score JSON,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS dsd.sentiment_data (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    date VARCHAR(20),
+    type VARCHAR(50),
+    summary VARCHAR(255),
+    motion_range TEXT,
+    score TEXT
+);
+
+CREATE TABLE IF NOT EXISTS dsd.data_upload_log (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    patient_id VARCHAR(50) NOT NULL,
+    file_name VARCHAR(255),
+    upload_time DATETIME,
+    status VARCHAR(20)
+);
+
+MERGE INTO dsd.users (username, password, role) KEY (username) VALUES ('Admin', 'admin', 'Admin');
+MERGE INTO dsd.users (username, password, role) KEY (username) VALUES ('DOC001', 'DOC001', 'Doctor');
+MERGE INTO dsd.users (username, password, role) KEY (username) VALUES ('123456', '123456', 'Patient');
+MERGE INTO dsd.patient (id_card, name, gender, doctor_username) KEY (id_card) VALUES ('123456', '张三', '男', 'DOC001');
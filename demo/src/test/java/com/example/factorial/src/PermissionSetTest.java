@@ -0,0 +1,108 @@
+package com.example.factorial.src;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 权限树编译为位图后的检查结果与递归检查一致
+ */
+class PermissionSetTest {
+
+    private static final PermissionEntityManagement roles = PermissionEntityManagement.GetSingleton();
+    private static final PermissionCodeTable table = PermissionCodeTable.GetSingleton();
+
+    @BeforeAll
+    static void init() {
+        roles.INTI();
+    }
+
+    @Test
+    void compiledRolesMatchRecursiveCheck() {
+        for (PermissionNode role : Arrays.asList(roles.GetDoc(), roles.GetPat(), roles.GetAdm(), roles.GetAll())) {
+            PermissionSet set = roles.Compiled(role);
+            assertNotNull(set);
+            for (int i = 0; i < table.Size(); i++) {
+                String code = table.CodeAt(i);
+                assertEquals(role.check(code), set.check(i), code);
+                assertEquals(role.check(code), set.check(code), code);
+            }
+        }
+    }
+
+    @Test
+    void rolesHoldTheirOwnAndInheritedCodes() {
+        // 医生包含患者的权限，管理员只有数据管理，all包含全部
+        assertTrue(roles.GetDocSet().check("对比"));
+        assertTrue(roles.GetDocSet().check("显示历史数据"));
+        assertFalse(roles.GetDocSet().check("数据管理"));
+        assertTrue(roles.GetPatSet().check("显示历史数据"));
+        assertFalse(roles.GetPatSet().check("数据采集"));
+        assertTrue(roles.GetAdmSet().check("数据管理"));
+        assertFalse(roles.GetAdmSet().check("对比"));
+        for (String code : Arrays.asList("数据管理", "显示历史数据", "对比", "患者管理", "选择患者", "数据采集")) {
+            assertTrue(roles.GetAllSet().check(code), code);
+        }
+    }
+
+    @Test
+    void unknownCodesAreDenied() {
+        PermissionSet all = roles.GetAllSet();
+        assertFalse(all.check("没有注册的权限码"));
+        assertFalse(all.check((String) null));
+        assertFalse(all.check(-1));
+        assertFalse(all.check(Integer.MIN_VALUE));
+        assertFalse(all.check(Integer.MAX_VALUE));
+        assertFalse(all.check(table.Size() + 64));
+        assertEquals(-1, table.IndexOf("没有注册的权限码"));
+    }
+
+    @Test
+    void emptySetDeniesEverything() {
+        PermissionSet empty = PermissionSet.Empty();
+        for (int i = 0; i < table.Size(); i++) {
+            assertFalse(empty.check(i));
+        }
+        assertFalse(empty.check(-1));
+    }
+
+    @Test
+    void setsSpanMoreThanOneWord() {
+        // 超过64个权限码时位图跨多个long
+        PermissionNode node = new PermissionNode();
+        List<Integer> granted = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            PermissionLeaf leaf = new PermissionLeaf("PermissionSetTest-" + i);
+            if (i % 3 == 0) {
+                node.add(leaf);
+                granted.add(table.IndexOf(leaf.getpCode()));
+            }
+        }
+        PermissionSet set = PermissionSet.Compile(node);
+        for (int i = 0; i < 130; i++) {
+            String code = "PermissionSetTest-" + i;
+            assertEquals(i % 3 == 0, set.check(code), code);
+        }
+        for (int index : granted) {
+            assertTrue(set.check(index));
+        }
+    }
+
+    @Test
+    void repeatedInitKeepsCompiledSets() {
+        PermissionSet doctor = roles.GetDocSet();
+        roles.INTI();
+        assertSame(doctor, roles.GetDocSet());
+        assertNull(roles.Compiled(new PermissionNode()));
+    }
+}
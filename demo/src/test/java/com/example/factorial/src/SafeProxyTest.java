@@ -0,0 +1,76 @@
+package com.example.factorial.src;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 安全代理只接受已注册的权限码，未设置权限时没有任何权限
+ */
+class SafeProxyTest {
+
+    private static final PermissionEntityManagement roles = PermissionEntityManagement.GetSingleton();
+
+    private final DataBase dataBase = mock(DataBase.class);
+    private final SafeProxy proxy = new SafeProxy(dataBase);
+
+    @BeforeAll
+    static void init() {
+        roles.INTI();
+    }
+
+    @Test
+    void knownCodeIsCheckedAgainstCompiledRoles() {
+        when(dataBase.GETDATE()).thenReturn(42);
+        proxy.setPermission("对比");
+
+        assertTrue(proxy.Check(roles.GetDoc()));
+        assertTrue(proxy.Check(roles.GetAll()));
+        assertFalse(proxy.Check(roles.GetPat()));
+        assertFalse(proxy.Check(roles.GetAdm()));
+        assertEquals(42, proxy.GET(roles.GetDoc()));
+        assertEquals(0, proxy.GET(roles.GetAdm()));
+    }
+
+    @Test
+    void unknownCodeIsRejectedAndNotRegistered() {
+        int size = PermissionCodeTable.GetSingleton().Size();
+        proxy.setPermission("数据管理");
+
+        assertThrows(IllegalArgumentException.class, () -> proxy.setPermission("不存在的权限"));
+        assertThrows(IllegalArgumentException.class, () -> proxy.setPermission(null));
+        assertEquals(size, PermissionCodeTable.GetSingleton().Size());
+        assertEquals(-1, PermissionCodeTable.GetSingleton().IndexOf("不存在的权限"));
+        // 之前设置的权限保持不变
+        assertTrue(proxy.Check(roles.GetAdm()));
+        assertFalse(proxy.Check(roles.GetDoc()));
+    }
+
+    @Test
+    void noPermissionBeforeSet() {
+        // 未设置时下标为-1，所有角色都检查不通过
+        assertFalse(proxy.Check(roles.GetAll()));
+        assertFalse(proxy.Check(roles.GetDoc()));
+        assertFalse(proxy.Check(roles.GetPat()));
+        assertFalse(proxy.Check(roles.GetAdm()));
+        assertEquals(0, proxy.GET(roles.GetAll()));
+        verifyNoInteractions(dataBase);
+    }
+
+    @Test
+    void uncompiledNodeFallsBackToRecursiveCheck() {
+        PermissionNode node = new PermissionNode();
+        node.add(new PermissionLeaf("选择患者"));
+        proxy.setPermission("选择患者");
+        assertTrue(proxy.Check(node));
+        proxy.setPermission("对比");
+        assertFalse(proxy.Check(node));
+    }
+}
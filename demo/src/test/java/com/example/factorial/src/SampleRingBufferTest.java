@@ -0,0 +1,123 @@
+package com.example.factorial.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 窗口统计与逐个重新计算的结果对比
+ */
+class SampleRingBufferTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void windowStatisticsMatchNaiveComputation() {
+        Random random = new Random(42);
+        for (int capacity : new int[]{1, 2, 3, 7, 64}) {
+            SampleRingBuffer buffer = new SampleRingBuffer(capacity);
+            double[] all = new double[capacity * 5];
+            for (int n = 0; n < all.length; n++) {
+                // 取少量不同的值，覆盖最大/最小值相等的情况
+                all[n] = random.nextInt(5) - 2 + (random.nextBoolean() ? 0.5 : 0);
+                buffer.add(all[n]);
+                assertWindow(buffer, all, n + 1, capacity);
+            }
+        }
+    }
+
+    @Test
+    void monotonicInputKeepsExtremesInWindow() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+            assertEquals(i, buffer.max(), EPS);
+            assertEquals(Math.max(0, i - 2), buffer.min(), EPS);
+        }
+        for (int i = 10; i > 0; i--) {
+            buffer.add(i);
+        }
+        assertEquals(3, buffer.max(), EPS);
+        assertEquals(1, buffer.min(), EPS);
+    }
+
+    @Test
+    void oldestSampleIsOverwrittenWhenFull() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(i);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(5, buffer.totalCount());
+        assertArrayEquals(new double[]{3, 4, 5}, buffer.toArray(), EPS);
+        assertEquals(3, buffer.get(0), EPS);
+        assertEquals(5, buffer.last(), EPS);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+    }
+
+    @Test
+    void singleSample() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.add(-0.0);
+        assertEquals(1, buffer.size());
+        assertEquals(0.0, buffer.max(), EPS);
+        assertEquals(0.0, buffer.min(), EPS);
+        assertEquals(0.0, buffer.mean(), EPS);
+        assertEquals(0.0, buffer.variance(), EPS);
+    }
+
+    @Test
+    void clearResetsStatistics() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        buffer.add(100);
+        buffer.add(200);
+        buffer.add(300);
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertThrows(IllegalStateException.class, buffer::max);
+        buffer.add(1);
+        assertEquals(1, buffer.max(), EPS);
+        assertEquals(1, buffer.min(), EPS);
+        assertEquals(1, buffer.mean(), EPS);
+    }
+
+    @Test
+    void emptyBufferAndInvalidCapacity() {
+        SampleRingBuffer buffer = new SampleRingBuffer(1);
+        assertThrows(IllegalStateException.class, buffer::last);
+        assertThrows(IllegalStateException.class, buffer::mean);
+        assertThrows(IllegalArgumentException.class, () -> new SampleRingBuffer(0));
+    }
+
+    private static void assertWindow(SampleRingBuffer buffer, double[] all, int written, int capacity) {
+        int from = Math.max(0, written - capacity);
+        int size = written - from;
+        double max = Double.NEGATIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        double sum = 0;
+        double[] window = new double[size];
+        for (int i = from; i < written; i++) {
+            max = Math.max(max, all[i]);
+            min = Math.min(min, all[i]);
+            sum += all[i];
+            window[i - from] = all[i];
+        }
+        double mean = sum / size;
+        double squares = 0;
+        for (double v : window) {
+            squares += (v - mean) * (v - mean);
+        }
+        String at = "capacity=" + capacity + ", written=" + written;
+        assertEquals(size, buffer.size(), at);
+        assertArrayEquals(window, buffer.toArray(), EPS, at);
+        assertEquals(max, buffer.max(), EPS, at);
+        assertEquals(min, buffer.min(), EPS, at);
+        assertEquals(mean, buffer.mean(), 1e-6, at);
+        assertEquals(squares / size, buffer.variance(), 1e-6, at);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.factorial.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 采集开关的状态通知，以及采样在共享线程池中以短任务的形式送达各Observer
+ */
+class SwitchStateTest {
+
+    private final ManualExecutor executor = new ManualExecutor();
+    private final SwitchState switchState = new SwitchState(executor);
+
+    @Test
+    void idleObserverWaitsWithoutATask() {
+        RecordingObserver observer = register();
+        switchState.Switch();
+
+        // 开始采集但没有数据：不提交任务，也不调用 OnData
+        assertTrue(observer.GetState());
+        assertEquals(0, executor.tasks.size());
+        assertFalse(observer.IsRunning());
+        assertEquals(0, executor.runAll());
+        assertTrue(observer.received.isEmpty());
+
+        switchState.Publish(100, 1.5);
+        switchState.Publish(110, 2.5);
+        assertEquals(1, executor.tasks.size());
+        assertTrue(observer.IsRunning());
+        assertEquals(1, executor.runAll());
+        assertEquals(Arrays.asList("100:1.5", "110:2.5"), observer.received);
+
+        // 处理完后又回到空闲，不再占用任务
+        assertFalse(observer.IsRunning());
+        assertEquals(0, executor.tasks.size());
+    }
+
+    @Test
+    void startAndStopReachEveryObserver() {
+        List<RecordingObserver> observers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            observers.add(register());
+        }
+
+        switchState.Switch();
+        for (RecordingObserver observer : observers) {
+            assertTrue(observer.GetState());
+        }
+        assertEquals(3, switchState.Publish(1, 1.0));
+        assertEquals(3, executor.runAll());
+
+        switchState.Switch();
+        for (RecordingObserver observer : observers) {
+            assertFalse(observer.GetState());
+            assertEquals(Arrays.asList("1:1.0"), observer.received);
+        }
+        assertEquals(0, switchState.Publish(2, 2.0));
+        assertEquals(0, executor.tasks.size());
+    }
+
+    @Test
+    void observerRegisteredWhileRunningIsStarted() {
+        switchState.Switch();
+        RecordingObserver late = register();
+        assertTrue(late.GetState());
+        assertEquals(1, switchState.Publish(5, 5.0));
+        executor.runAll();
+        assertEquals(Arrays.asList("5:5.0"), late.received);
+    }
+
+    @Test
+    void samplesPublishedBeforeStopAreStillDelivered() {
+        RecordingObserver observer = register();
+        switchState.Switch();
+        switchState.Publish(1, 1.0);
+        switchState.Switch();
+
+        assertEquals(1, executor.runAll());
+        assertEquals(Arrays.asList("1:1.0"), observer.received);
+    }
+
+    @Test
+    void sampleArrivingDuringDrainIsPickedUpByANewTask() {
+        RecordingObserver observer = register();
+        switchState.Switch();
+        observer.onFirst = () -> switchState.Publish(2, 2.0);
+        switchState.Publish(1, 1.0);
+
+        // 第一个任务处理时新到的采样由下一个任务处理，同一时刻只有一个任务
+        assertEquals(2, executor.runAll());
+        assertEquals(Arrays.asList("1:1.0", "2:2.0"), observer.received);
+    }
+
+    @Test
+    void fullInboxRejectsSamples() {
+        RecordingObserver observer = register();
+        RecordingObserver other = register();
+        switchState.Switch();
+        for (int i = 0; i < Observer.DEFAULT_INBOX_CAPACITY; i++) {
+            assertEquals(2, switchState.Publish(i, i));
+        }
+        assertEquals(0, switchState.Publish(-1, -1));
+
+        executor.runOne();  // 先注册的Observer排在前面，只处理它的队列
+        assertEquals(Observer.DEFAULT_INBOX_CAPACITY, observer.received.size());
+        assertEquals(1, switchState.Publish(-2, -2));
+
+        executor.runAll();
+        assertEquals(Observer.DEFAULT_INBOX_CAPACITY + 1, observer.received.size());
+        assertEquals("-2:-2.0", observer.received.get(Observer.DEFAULT_INBOX_CAPACITY));
+        assertEquals(Observer.DEFAULT_INBOX_CAPACITY, other.received.size());
+    }
+
+    private RecordingObserver register() {
+        RecordingObserver observer = new RecordingObserver(switchState);
+        observer.Register();
+        return observer;
+    }
+
+    private static class RecordingObserver extends Observer {
+        final List<String> received = new ArrayList<>();
+        Runnable onFirst;
+
+        RecordingObserver(SwitchState s) {
+            super(s);
+        }
+
+        @Override
+        protected void OnData(long timestampMillis, double value) {
+            received.add(timestampMillis + ":" + value);
+            if (onFirst != null) {
+                Runnable action = onFirst;
+                onFirst = null;
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * 由测试线程逐个执行提交的任务
+     */
+    private static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runOne() {
+            tasks.poll().run();
+        }
+
+        int runAll() {
+            int n = 0;
+            while (!tasks.isEmpty()) {
+                runOne();
+                n++;
+            }
+            return n;
+        }
+    }
+}
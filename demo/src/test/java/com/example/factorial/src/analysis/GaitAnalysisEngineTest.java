@@ -0,0 +1,118 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 用合成的正弦步态信号检查周期检测、运动幅度和得分
+ */
+class GaitAnalysisEngineTest {
+
+    private static final int ROLL = 6;
+    private static final int PITCH = 7;
+
+    private final GaitAnalysisEngine engine = new GaitAnalysisEngine(4);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void regularGaitGivesFullScoreAndPeakToPeakRange() {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        // 两个设备交替采样，100Hz，步频 1Hz，持续 10 秒
+        for (int i = 0; i < 2000; i++) {
+            long t = i / 2 * 10L;
+            double phase = 2 * Math.PI * t / 1000.0;
+            builder.onSample(t, i % 2 == 0 ? "R" : "L", angles(10 * Math.cos(phase), 20 * Math.sin(phase)));
+        }
+        GaitMetrics metrics = engine.analyze(builder.build());
+
+        assertArrayEquals(new String[]{"L/Roll", "L/Pitch", "R/Roll", "R/Pitch"}, metrics.getLabels());
+        for (int e = 0; e < metrics.size(); e++) {
+            assertEquals(e % 2 == 0 ? 20 : 40, metrics.getMotionRange()[e], 0.1, metrics.getLabels()[e]);
+            assertEquals(10, metrics.getScore()[e], metrics.getLabels()[e]);
+            // 信号从0开始上升，t=0 不算上穿，第一个周期从 1 秒处开始
+            assertEquals(8, metrics.getCycles()[e], metrics.getLabels()[e]);
+        }
+    }
+
+    @Test
+    void manyCyclesAreSplitAcrossTasks() {
+        // 超过 CYCLES_PER_TASK 个周期，幅度逐个周期变化
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < 30000; i++) {
+            long t = i * 10L;
+            double amplitude = 10 + (t / 1000) % 3;
+            builder.onSample(t, "d", angles(0, amplitude * Math.sin(2 * Math.PI * t / 1000.0)));
+        }
+        GaitMetrics metrics = engine.analyze(builder.build());
+        assertEquals(298, metrics.getCycles()[1]);
+        // 幅度 10、11、12 各约三分之一，峰峰值的中位数约为 22
+        assertEquals(22, metrics.getMotionRange()[1], 1.0);
+    }
+
+    @Test
+    void emptySessionHasNoEntries() {
+        GaitMetrics metrics = engine.analyze(new SensorSessionBuilder().build());
+        assertEquals(0, metrics.size());
+    }
+
+    @Test
+    void singleSampleIsOneCycleWithZeroRange() {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        builder.onSample(0, "d", angles(1, 2));
+        GaitMetrics metrics = engine.analyze(builder.build());
+        assertEquals(1, metrics.getCycles()[1]);
+        assertEquals(0, metrics.getMotionRange()[1], 0.0);
+    }
+
+    @Test
+    void pausesAndNoiseAreNotCycles() {
+        // 1Hz 步态，第 3 秒后停顿 5 秒；停顿中的小抖动低于回差
+        int n = 1100;
+        double[] signal = new double[n];
+        long[] timestamps = new long[n];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = i * 10L;
+            boolean paused = timestamps[i] >= 3000 && timestamps[i] < 8000;
+            signal[i] = paused ? (i % 2 == 0 ? 0.01 : -0.01) : 20 * Math.sin(2 * Math.PI * timestamps[i] / 1000.0);
+        }
+        int[] cycles = GaitAnalysisEngine.detectCycles(signal, timestamps);
+        for (int k = 0; k < cycles.length; k += 2) {
+            long length = timestamps[cycles[k + 1]] - timestamps[cycles[k]];
+            assertEquals(1000, length, 20, "cycle " + k / 2);
+        }
+        // 上穿点约在 1、2、8、9、10 秒，跨过停顿的 2-8 秒不计入
+        assertEquals(6, cycles.length);
+    }
+
+    @Test
+    void flatOrShortSignalIsOneCycle() {
+        assertArrayEquals(new int[0], GaitAnalysisEngine.detectCycles(new double[0], new long[0]));
+        assertArrayEquals(new int[]{0, 1}, GaitAnalysisEngine.detectCycles(new double[]{5}, new long[]{0}));
+        assertArrayEquals(new int[]{0, 3}, GaitAnalysisEngine.detectCycles(new double[]{5, 5, 5}, new long[]{0, 10, 20}));
+    }
+
+    @Test
+    void scoreFallsWithVariation() {
+        assertEquals(10, GaitAnalysisEngine.score(40, 0));
+        assertEquals(8, GaitAnalysisEngine.score(40, 4));
+        assertEquals(0, GaitAnalysisEngine.score(40, 20));
+        assertEquals(0, GaitAnalysisEngine.score(0, 0));
+    }
+
+    private static double[] angles(double roll, double pitch) {
+        double[] values = new double[SensorCsvParser.CHANNELS.length];
+        values[ROLL] = roll;
+        values[PITCH] = pitch;
+        return values;
+    }
+}
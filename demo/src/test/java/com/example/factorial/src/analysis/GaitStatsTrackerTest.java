@@ -0,0 +1,57 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 按设备和角度通道分发采样
+ */
+class GaitStatsTrackerTest {
+
+    private static final int ROLL = 6;
+    private static final int PITCH = 7;
+
+    @Test
+    void samplesAreRoutedByDeviceAndChannel() {
+        GaitStatsTracker tracker = new GaitStatsTracker();
+        double[] values = new double[SensorCsvParser.CHANNELS.length];
+        for (int i = 0; i < 100; i++) {
+            values[ROLL] = i;
+            values[PITCH] = -i;
+            values[0] = 1000;  // 非角度通道不参与统计
+            tracker.onSample(i * 10L, i % 2 == 0 ? "R" : "L", values);
+        }
+
+        OnlineGaitStats leftRoll = tracker.get("L", "Roll");
+        OnlineGaitStats rightPitch = tracker.get("R", "Pitch");
+        assertEquals(50, leftRoll.getCount());
+        assertEquals(1, leftRoll.getMin(), 0.0);
+        assertEquals(99, leftRoll.getMax(), 0.0);
+        assertEquals(-49, rightPitch.getMean(), 1e-9);
+        assertEquals(98, rightPitch.getRangeOfMotion(), 0.0);
+        assertNull(tracker.get("L", "AccX"));
+        assertNull(tracker.get("X", "Roll"));
+    }
+
+    @Test
+    void snapshotKeysMatchBatchLabels() {
+        GaitStatsTracker tracker = new GaitStatsTracker();
+        double[] values = new double[SensorCsvParser.CHANNELS.length];
+        tracker.onSample(0, "R", values);
+        tracker.onSample(0, "L", values);
+
+        Map<String, Map<String, Object>> snapshot = tracker.snapshot();
+        assertEquals(Arrays.asList("L/Roll", "L/Pitch", "R/Roll", "R/Pitch"), new ArrayList<>(snapshot.keySet()));
+        assertEquals(1L, snapshot.get("L/Pitch").get("samples"));
+
+        tracker.clear();
+        assertEquals(0, tracker.snapshot().size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.factorial.src.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LTTB 选点的基本性质
+ */
+class LttbTest {
+
+    @Test
+    void keepsEndpointsAndReturnsIncreasingIndexes() {
+        double[] y = new double[1000];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = Math.sin(i / 20.0);
+        }
+        for (int threshold : new int[]{3, 10, 99, 999}) {
+            int[] selected = Lttb.select(null, y, y.length, threshold);
+            assertEquals(threshold, selected.length);
+            assertEquals(0, selected[0]);
+            assertEquals(y.length - 1, selected[threshold - 1]);
+            for (int i = 1; i < selected.length; i++) {
+                assertTrue(selected[i] > selected[i - 1], "threshold " + threshold + " at " + i);
+            }
+        }
+    }
+
+    @Test
+    void keepsIsolatedSpike() {
+        double[] y = new double[500];
+        y[237] = 100;
+        y[411] = -50;
+        double[] sampled = Lttb.downsample(y, 20);
+        assertEquals(20, sampled.length);
+        double max = Double.NEGATIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        for (double v : sampled) {
+            max = Math.max(max, v);
+            min = Math.min(min, v);
+        }
+        assertEquals(100, max, 0.0);
+        assertEquals(-50, min, 0.0);
+    }
+
+    @Test
+    void shortSeriesOrSmallThresholdIsReturnedWhole() {
+        double[] y = {1, 2, 3};
+        assertSame(y, Lttb.downsample(y, 3));
+        assertSame(y, Lttb.downsample(y, 2));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.select(null, new double[]{4, 3, 2, 1}, 4, 2));
+        assertArrayEquals(new int[]{0}, Lttb.select(new long[]{7}, new double[]{1}, 1, 1000));
+        assertArrayEquals(new int[0], Lttb.select(null, new double[0], 0, 10));
+    }
+
+    @Test
+    void onlyFirstSizeSamplesAreUsed() {
+        double[] y = new double[100];
+        int[] selected = Lttb.select(null, y, 50, 10);
+        assertEquals(49, selected[selected.length - 1]);
+    }
+
+    @Test
+    void irregularTimestampsWeightSelection() {
+        // 等值序列中间有一段较长的时间空档，空档后的突变点应当被选中
+        long[] x = new long[200];
+        double[] y = new double[200];
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < x.length; i++) {
+            t += i == 100 ? 60_000 : 10;
+            x[i] = t;
+            y[i] = i == 100 ? 5 : 0;
+        }
+        int[] selected = Lttb.select(x, y, x.length, 12);
+        boolean found = false;
+        for (int index : selected) {
+            found |= index == 100;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    void nanValuesDoNotBreakSelection() {
+        double[] y = new double[100];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = i % 7 == 0 ? Double.NaN : i;
+        }
+        int[] selected = Lttb.select(null, y, y.length, 10);
+        assertEquals(10, selected.length);
+        for (int i = 1; i < selected.length; i++) {
+            assertTrue(selected[i] > selected[i - 1]);
+        }
+    }
+}
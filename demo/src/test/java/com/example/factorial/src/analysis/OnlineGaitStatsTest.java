@@ -0,0 +1,125 @@
+package com.example.factorial.src.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在线统计量与对同一批采样重新计算的结果对比
+ */
+class OnlineGaitStatsTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void welfordStatisticsMatchNaiveComputation() {
+        Random random = new Random(5);
+        OnlineGaitStats stats = new OnlineGaitStats();
+        double[] all = new double[2000];
+        for (int n = 0; n < all.length; n++) {
+            // 较大的偏移量检查数值稳定性
+            all[n] = 1e6 + random.nextGaussian() * 15;
+            stats.add(n * 10L, all[n]);
+            if (n % 97 == 0 || n == all.length - 1) {
+                assertSamples(stats, all, n + 1);
+            }
+        }
+    }
+
+    @Test
+    void cadenceAndCycleRangeMatchBatchDetection() {
+        // 1.2Hz 步态 (72 步/分钟)，峰峰值 40 度，100Hz 采样 30 秒
+        int n = 3000;
+        double[] signal = new double[n];
+        long[] timestamps = new long[n];
+        OnlineGaitStats stats = new OnlineGaitStats();
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = i * 10L;
+            signal[i] = 20 * Math.sin(2 * Math.PI * 1.2 * timestamps[i] / 1000.0);
+            stats.add(timestamps[i], signal[i]);
+        }
+
+        int[] cycles = GaitAnalysisEngine.detectCycles(signal, timestamps);
+        long batchMillis = 0;
+        double batchRange = 0;
+        for (int k = 0; k < cycles.length; k += 2) {
+            batchMillis += timestamps[cycles[k + 1]] - timestamps[cycles[k]];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = cycles[k]; i < cycles[k + 1]; i++) {
+                min = Math.min(min, signal[i]);
+                max = Math.max(max, signal[i]);
+            }
+            batchRange += max - min;
+        }
+        int batchCycles = cycles.length / 2;
+
+        // 在线检测使用到目前为止的均值，开头的周期可能与批量检测相差一个
+        assertTrue(Math.abs(stats.getCycles() - batchCycles) <= 1, stats.getCycles() + " vs " + batchCycles);
+        assertEquals(batchCycles * 60000.0 / batchMillis, stats.getCadence(), 1.0);
+        assertEquals(72, stats.getCadence(), 1.0);
+        assertEquals(batchRange / batchCycles, stats.getCycleRangeMean(), 0.5);
+        assertEquals(10, stats.getScore());
+        assertEquals(40, stats.getRangeOfMotion(), 0.01);
+    }
+
+    @Test
+    void pauseIsNotCountedInCadence() {
+        OnlineGaitStats stats = new OnlineGaitStats();
+        long t = 0;
+        for (int segment = 0; segment < 2; segment++) {
+            for (int i = 0; i < 1000; i++, t += 10) {
+                stats.add(t, 20 * Math.sin(2 * Math.PI * i / 100.0));
+            }
+            t += 10_000;  // 停顿 10 秒，没有采样
+        }
+        // 每段 10 秒 1Hz，跨过停顿的间隔不计入
+        assertEquals(60, stats.getCadence(), 1.0);
+        assertTrue(stats.getCycles() >= 16 && stats.getCycles() <= 19, "cycles " + stats.getCycles());
+    }
+
+    @Test
+    void emptyAndResetStats() {
+        OnlineGaitStats stats = new OnlineGaitStats();
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getVariance()));
+        assertEquals(0, stats.getRangeOfMotion(), 0.0);
+        assertEquals(0, stats.getCadence(), 0.0);
+        assertEquals(0, stats.getScore());
+
+        stats.add(0, 3);
+        assertEquals(3, stats.getMean(), 0.0);
+        assertEquals(0, stats.getVariance(), 0.0);
+        assertEquals(0, stats.getRangeOfMotion(), 0.0);
+
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMax()));
+    }
+
+    private static void assertSamples(OnlineGaitStats stats, double[] all, int count) {
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            sum += all[i];
+            min = Math.min(min, all[i]);
+            max = Math.max(max, all[i]);
+        }
+        double mean = sum / count;
+        double squares = 0;
+        for (int i = 0; i < count; i++) {
+            squares += (all[i] - mean) * (all[i] - mean);
+        }
+        String at = "count=" + count;
+        assertEquals(count, stats.getCount(), at);
+        assertEquals(mean, stats.getMean(), 1e-6, at);
+        assertEquals(squares / count, stats.getVariance(), 1e-6, at);
+        assertEquals(min, stats.getMin(), EPS, at);
+        assertEquals(max, stats.getMax(), EPS, at);
+        assertEquals(max - min, stats.getRangeOfMotion(), EPS, at);
+    }
+}
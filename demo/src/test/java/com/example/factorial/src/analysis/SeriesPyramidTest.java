@@ -0,0 +1,86 @@
+package com.example.factorial.src.analysis;
+
+import com.example.factorial.src.sensor.SensorCsvParser;
+import com.example.factorial.src.sensor.SensorSession;
+import com.example.factorial.src.sensor.SensorSessionBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按档位取降采样序列
+ */
+class SeriesPyramidTest {
+
+    private static final int PITCH = 7;
+
+    @Test
+    void requestedPointsAreServedFromSmallestSufficientLevel() {
+        SeriesPyramid pyramid = SeriesPyramid.build(session(5000, 2), new int[]{1000, 100});
+        assertEquals(2500, pyramid.getSourceSize("L"));
+        for (int points : new int[]{3, 50, 100, 101, 1000}) {
+            SeriesPyramid.Series series = pyramid.get("L", PITCH, points);
+            assertEquals(points, series.size(), "points " + points);
+            assertIncreasing(series.getTimestamps());
+        }
+        // 超过最高一档、又少于原始采样数，由调用方从原始数据计算
+        assertNull(pyramid.get("L", PITCH, 1001));
+        assertEquals(1001, SeriesPyramid.downsample(session(5000, 2), "L", PITCH, 1001).size());
+    }
+
+    @Test
+    void shortSeriesIsReturnedWhole() {
+        SeriesPyramid pyramid = SeriesPyramid.build(session(40, 2), new int[]{1000, 100});
+        SeriesPyramid.Series series = pyramid.get("R", PITCH, 5000);
+        assertEquals(20, series.size());
+        assertEquals(20, pyramid.getSourceSize("R"));
+    }
+
+    @Test
+    void devicesAreSeparated() {
+        SeriesPyramid pyramid = SeriesPyramid.build(session(10, 2));
+        assertArrayEquals(new String[]{"L", "R"}, pyramid.getDevices());
+        long[] left = pyramid.get("L", PITCH, 100).getTimestamps();
+        long[] right = pyramid.get("R", PITCH, 100).getTimestamps();
+        assertArrayEquals(new long[]{0, 20, 40, 60, 80}, left);
+        assertArrayEquals(new long[]{10, 30, 50, 70, 90}, right);
+    }
+
+    @Test
+    void singleSampleAndUnknownDevice() {
+        SeriesPyramid pyramid = SeriesPyramid.build(session(1, 1));
+        SeriesPyramid.Series series = pyramid.get("L", PITCH, 1000);
+        assertEquals(1, series.size());
+        assertEquals(0f, series.getValues()[0], 0f);
+        assertNull(pyramid.get("X", PITCH, 1000));
+        assertEquals(-1, pyramid.getSourceSize("X"));
+        assertNull(SeriesPyramid.downsample(session(1, 1), "X", PITCH, 10));
+    }
+
+    @Test
+    void emptySessionHasNoDevices() {
+        SeriesPyramid pyramid = SeriesPyramid.build(new SensorSessionBuilder().build());
+        assertEquals(0, pyramid.getDevices().length);
+        assertNull(pyramid.get("L", PITCH, 10));
+    }
+
+    // size 个采样，按 devices 个设备轮流，间隔 10 毫秒
+    private static SensorSession session(int size, int devices) {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        double[] values = new double[SensorCsvParser.CHANNELS.length];
+        for (int i = 0; i < size; i++) {
+            values[PITCH] = Math.sin(i / 50.0) * 30;
+            builder.onSample(i * 10L, i % devices == 0 ? "L" : "R", values);
+        }
+        return builder.build();
+    }
+
+    private static void assertIncreasing(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i] > values[i - 1]);
+        }
+    }
+}
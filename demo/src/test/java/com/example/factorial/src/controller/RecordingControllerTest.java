@@ -0,0 +1,222 @@
+package com.example.factorial.src.controller;
+
+import com.example.factorial.src.service.SensorDataStore;
+import com.example.factorial.src.storage.SegmentStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 原始采样下载的 Range / If-Range 处理
+ */
+class RecordingControllerTest {
+
+    private static final String PATIENT = "123456";
+    private static final String HASH = "abc123";
+    private static final String ETAG = "\"" + HASH + "\"";
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RecordingController controller = new RecordingController();
+    private SegmentStore segmentStore;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        segmentStore = new SegmentStore(directory.toString(), 1, false);
+        ObjectProvider<SegmentStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(segmentStore);
+        ReflectionTestUtils.setField(controller, "sensorDataStore", new SensorDataStore(jdbcTemplate, provider));
+        ReflectionTestUtils.setField(controller, "segmentStore", segmentStore);
+        storedInDatabase();
+    }
+
+    @AfterEach
+    void tearDown() {
+        segmentStore.close();
+    }
+
+    @Test
+    void noRangeReturnsWholeContent() throws Exception {
+        MockHttpServletResponse response = download(null, null);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void closedRangeIsClippedToContent() throws Exception {
+        assertPartial(download("bytes=2-4", null), "234", "bytes 2-4/10");
+        assertPartial(download("bytes=8-100", null), "89", "bytes 8-9/10");
+    }
+
+    @Test
+    void suffixRangeReturnsLastBytes() throws Exception {
+        assertPartial(download("bytes=-4", null), "6789", "bytes 6-9/10");
+        assertPartial(download("bytes=-20", null), "0123456789", "bytes 0-9/10");
+    }
+
+    @Test
+    void openRangeReturnsToEnd() throws Exception {
+        assertPartial(download("bytes=3-", null), "3456789", "bytes 3-9/10");
+        assertPartial(download("bytes=9-", null), "9", "bytes 9-9/10");
+    }
+
+    @Test
+    void rangePastEndIsNotSatisfiable() throws Exception {
+        MockHttpServletRequest request = request("bytes=10-20", null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<Map<String, Object>> entity = controller.downloadRecording(PATIENT, HASH, request, response);
+
+        assertEquals(416, entity.getStatusCodeValue());
+        assertEquals(416, entity.getBody().get("code"));
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        entity = controller.downloadRecording(PATIENT, HASH, request("bytes=100-", null), new MockHttpServletResponse());
+        assertEquals(416, entity.getStatusCodeValue());
+    }
+
+    @Test
+    void malformedOrMultipleRangesFallBackToWholeContent() throws Exception {
+        for (String range : new String[]{"bytes=abc", "bytes=5-2", "items=0-1", "bytes", "bytes=0-1,4-5"}) {
+            MockHttpServletResponse response = download(range, null);
+            assertEquals(200, response.getStatus(), range);
+            assertEquals("0123456789", response.getContentAsString(), range);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        }
+    }
+
+    @Test
+    void ifRangeMustMatchCurrentEtag() throws Exception {
+        assertPartial(download("bytes=0-1", ETAG), "01", "bytes 0-1/10");
+
+        // ETag 不同或为日期时内容可能已变化，返回完整内容
+        for (String ifRange : new String[]{"\"other\"", HASH, "W/" + ETAG, "Wed, 21 Oct 2015 07:28:00 GMT"}) {
+            MockHttpServletResponse response = download("bytes=0-1", ifRange);
+            assertEquals(200, response.getStatus(), ifRange);
+            assertEquals("0123456789", response.getContentAsString(), ifRange);
+        }
+    }
+
+    @Test
+    void segmentStoreRangeIsTransferredOrSentByTomcat() throws Exception {
+        segmentStore.append("xxxx".getBytes(StandardCharsets.US_ASCII));
+        long offset = segmentStore.append(CONTENT);
+        storedInSegmentStore(offset);
+
+        assertPartial(download("bytes=2-5", null), "2345", "bytes 2-5/10");
+        assertPartial(download("bytes=-3", null), "789", "bytes 7-9/10");
+
+        // 连接器支持 sendfile 时只设置文件位置，不写响应体
+        MockHttpServletRequest request = request("bytes=2-5", null);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(controller.downloadRecording(PATIENT, HASH, request, response));
+        long position = segmentStore.locate(offset, CONTENT.length).getPosition();
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(position + 2, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(position + 6, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void headReturnsHeadersOnly() throws Exception {
+        MockHttpServletRequest request = request("bytes=-4", null);
+        request.setMethod("HEAD");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadRecording(PATIENT, HASH, request, response);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 6-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("4", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private static void assertPartial(MockHttpServletResponse response, String body, String contentRange) throws Exception {
+        assertEquals(206, response.getStatus());
+        assertEquals(body, response.getContentAsString());
+        assertEquals(contentRange, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(body.length(), response.getContentLengthLong());
+    }
+
+    private MockHttpServletResponse download(String range, String ifRange) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(controller.downloadRecording(PATIENT, HASH, request(range, ifRange), response));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String range, String ifRange) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/patient/" + PATIENT + "/recordings/" + HASH);
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        return request;
+    }
+
+    /**
+     * 内容保存在数据库中的旧记录
+     */
+    private void storedInDatabase() throws Exception {
+        ResultSet rs = row();
+        when(rs.getLong(5)).thenReturn(0L);
+        when(rs.wasNull()).thenReturn(true);
+        when(rs.getBytes(6)).thenReturn(CONTENT);
+        stubQuery(rs);
+    }
+
+    private void storedInSegmentStore(long offset) throws Exception {
+        ResultSet rs = row();
+        when(rs.getLong(4)).thenReturn(offset);
+        when(rs.getLong(5)).thenReturn((long) CONTENT.length);
+        when(rs.wasNull()).thenReturn(false);
+        stubQuery(rs);
+    }
+
+    private static ResultSet row() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(1L);
+        when(rs.getString(2)).thenReturn("walk.csv");
+        when(rs.getString(3)).thenReturn(SensorDataStore.ENCODING_CSV);
+        return rs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubQuery(ResultSet rs) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(PATIENT), eq(HASH)))
+                .thenAnswer(invocation -> {
+                    RowMapper<Object> mapper = invocation.getArgument(1);
+                    return Collections.singletonList(mapper.mapRow(rs, 0));
+                });
+    }
+}
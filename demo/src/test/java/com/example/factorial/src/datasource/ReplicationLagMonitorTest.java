@@ -0,0 +1,133 @@
+package com.example.factorial.src.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用模拟的主库和副本检测复制延迟：主库记录每次写入的心跳，
+ * 副本只能看到 delay 毫秒之前写入的心跳
+ */
+class ReplicationLagMonitorTest {
+
+    private static final long INTERVAL = 1000;
+    private static final long MAX_LAG = 1000;
+    // scheduleWithFixedDelay 的两次检测之间还要加上检测本身的耗时
+    private static final long STEP = INTERVAL + 5;
+
+    private final TreeSet<Long> heartbeats = new TreeSet<>();
+    private long clock;
+
+    @BeforeEach
+    void setUp() {
+        heartbeats.clear();
+        clock = 1_000_000;
+    }
+
+    @Test
+    void replicaWithinReplicationDelayStaysHealthyAtDefaultMaxLag() throws SQLException {
+        // 复制本身需要几十毫秒，写入后立即读取时副本还是上一次的心跳
+        ReplicationLagMonitor monitor = monitor(Collections.singletonMap("r0", replica(new AtomicLong(20))));
+        monitor.check(clock);
+        for (int i = 0; i < 10; i++) {
+            clock += STEP;
+            monitor.check(clock);
+            assertEquals(Collections.singletonList("r0"), monitor.getHealthyReplicas());
+            assertEquals(0, monitor.getLagMillis("r0"));
+        }
+    }
+
+    @Test
+    void delayedReplicaIsExcludedUntilItCatchesUp() throws SQLException {
+        AtomicLong delay = new AtomicLong(3000);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("fast", replica(new AtomicLong(20)));
+        replicas.put("slow", replica(delay));
+        ReplicationLagMonitor monitor = monitor(replicas);
+        for (int i = 0; i < 10; i++) {
+            monitor.check(clock);
+            clock += STEP;
+        }
+        assertEquals(Collections.singletonList("fast"), monitor.getHealthyReplicas());
+        assertTrue(monitor.getLagMillis("slow") > MAX_LAG, "lag=" + monitor.getLagMillis("slow"));
+        assertEquals("fast", monitor.nextReplica());
+
+        // 副本追上后下一次检测重新接收读请求
+        delay.set(20);
+        monitor.check(clock);
+        clock += STEP;
+        monitor.check(clock);
+        assertEquals(Arrays.asList("fast", "slow"), monitor.getHealthyReplicas());
+    }
+
+    @Test
+    void replicaWithoutHeartbeatIsUnhealthy() throws SQLException {
+        ReplicationLagMonitor monitor = monitor(Collections.singletonMap("r0", replica(new AtomicLong(60_000))));
+        monitor.check(clock);
+        clock += STEP;
+        monitor.check(clock);
+        assertTrue(monitor.getHealthyReplicas().isEmpty());
+        assertEquals(Long.MAX_VALUE, monitor.getLagMillis("r0"));
+        assertEquals(null, monitor.nextReplica());
+    }
+
+    private ReplicationLagMonitor monitor(Map<String, DataSource> replicas) throws SQLException {
+        return new ReplicationLagMonitor(primary(), replicas, MAX_LAG, INTERVAL);
+    }
+
+    private DataSource primary() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement update = mock(PreparedStatement.class);
+        long[] value = new long[1];
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(update);
+        doAnswer(inv -> {
+            value[0] = inv.getArgument(1);
+            return null;
+        }).when(update).setLong(eq(1), anyLong());
+        when(update.executeUpdate()).thenAnswer(inv -> {
+            heartbeats.add(value[0]);
+            return 1;
+        });
+        return dataSource;
+    }
+
+    private DataSource replica(AtomicLong delayMillis) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        Long[] visible = new Long[1];
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenAnswer(inv -> {
+            visible[0] = heartbeats.floor(clock - delayMillis.get());
+            return resultSet;
+        });
+        when(resultSet.next()).thenAnswer(inv -> visible[0] != null);
+        when(resultSet.getLong(1)).thenAnswer(inv -> visible[0]);
+        return dataSource;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.factorial.src.live;
+
+import com.example.factorial.src.session.AccessPolicy;
+import com.example.factorial.src.session.SessionPrincipal;
+import com.example.factorial.src.session.SessionTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 实时采集握手的令牌、权限和患者归属检查
+ */
+class LiveHandshakeInterceptorTest {
+
+    private final SessionTokenService tokens = new SessionTokenService("test-secret", 3600);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final LiveHandshakeInterceptor interceptor =
+            new LiveHandshakeInterceptor(tokens, new AccessPolicy(jdbcTemplate, 100, 3600));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interceptor, "enforce", true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("DOC001")))
+                .thenReturn(Collections.singletonList("123456"));
+    }
+
+    @Test
+    void doctorCannotStreamForAnotherDoctorsPatient() {
+        Handshake handshake = handshake("patientId=654321&token=" + tokens.issue("DOC001", SessionTokenService.ROLE_DOCTOR));
+        assertFalse(handshake.accepted);
+        assertEquals(403, handshake.status);
+        assertTrue(handshake.attributes.isEmpty());
+    }
+
+    @Test
+    void doctorCanStreamForOwnPatient() {
+        String token = tokens.issue("DOC001", SessionTokenService.ROLE_DOCTOR);
+        Handshake handshake = handshake("patientId=123456&token=" + token);
+        assertTrue(handshake.accepted);
+        assertEquals("123456", handshake.attributes.get(LiveIngestHandler.PATIENT_ATTRIBUTE));
+        SessionPrincipal principal = (SessionPrincipal) handshake.attributes.get(SessionPrincipal.REQUEST_ATTRIBUTE);
+        assertEquals("DOC001", principal.getUsername());
+    }
+
+    @Test
+    void adminCanStreamForAnyPatient() {
+        assertTrue(handshake("patientId=654321&token=" + tokens.issue("Admin", SessionTokenService.ROLE_ADMIN)).accepted);
+    }
+
+    @Test
+    void roleWithoutDataCollectionIsRejected() {
+        // 患者没有数据采集权限，即使是自己的数据也不能建立采集连接
+        Handshake handshake = handshake("patientId=123456&token=" + tokens.issue("123456", SessionTokenService.ROLE_PATIENT));
+        assertFalse(handshake.accepted);
+        assertEquals(403, handshake.status);
+    }
+
+    @Test
+    void missingTokenOrPatientIsRejected() {
+        assertEquals(401, handshake("patientId=123456").status);
+        assertEquals(401, handshake("patientId=123456&token=forged").status);
+        assertEquals(400, handshake("token=" + tokens.issue("Admin", SessionTokenService.ROLE_ADMIN)).status);
+    }
+
+    private Handshake handshake(String query) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/live/ingest");
+        servletRequest.setQueryString(query);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+        Handshake handshake = new Handshake();
+        handshake.accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(servletRequest), response,
+                null, handshake.attributes);
+        handshake.status = servletResponse.getStatus();
+        return handshake;
+    }
+
+    private static class Handshake {
+        final Map<String, Object> attributes = new HashMap<>();
+        boolean accepted;
+        int status;
+    }
+}
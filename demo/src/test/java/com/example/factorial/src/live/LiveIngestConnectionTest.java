@@ -0,0 +1,186 @@
+package com.example.factorial.src.live;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 实时采集连接的背压 (pause/resume)、丢弃计数和连接间的公平调度
+ */
+class LiveIngestConnectionTest {
+
+    private final ManualExecutor executor = new ManualExecutor();
+    private final List<String> sent = new ArrayList<>();
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        session = session("s1", sent);
+    }
+
+    @Test
+    void pausesAtHighWatermarkAndResumesAtLowWatermark() {
+        // 容量64: 高水位48，低水位16
+        LiveIngestConnection connection = new LiveIngestConnection("p1", session, 64, executor);
+        for (int i = 0; i < 47; i++) {
+            assertTrue(connection.enqueue(message(1, i, 0)));
+        }
+        assertTrue(sent.isEmpty());
+        connection.enqueue(message(1, 47, 0));
+        assertEquals(Collections.singletonList("{\"type\":\"pause\",\"queued\":48}"), sent);
+        assertEquals(Boolean.TRUE, connection.stats().get("paused"));
+
+        // 只有一个处理任务，每次最多处理16条消息
+        assertEquals(1, executor.tasks.size());
+        executor.runOne();
+        assertEquals(32, connection.stats().get("queued"));
+        assertEquals(1, sent.size());
+
+        executor.runOne();
+        assertEquals(16, connection.stats().get("queued"));
+        assertEquals("{\"type\":\"resume\",\"queued\":16}", sent.get(1));
+        assertEquals(Boolean.FALSE, connection.stats().get("paused"));
+
+        executor.runAll();
+        assertEquals(2, sent.size());
+        assertEquals(48L, connection.stats().get("samples"));
+    }
+
+    @Test
+    void messagesBeyondCapacityAreDroppedAndCounted() {
+        LiveIngestConnection connection = new LiveIngestConnection("p1", session, 4, executor);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(connection.enqueue(message(1, i, 0)));
+        }
+        assertFalse(connection.enqueue(message(1, 4, 0)));
+        assertFalse(connection.enqueue(message(1, 5, 0)));
+
+        Map<String, Object> stats = connection.stats();
+        assertEquals(6L, stats.get("messages"));
+        assertEquals(2L, stats.get("droppedMessages"));
+        assertEquals(4, stats.get("queued"));
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(4L, connection.stats().get("samples"));
+        assertEquals(0, connection.stats().get("queued"));
+    }
+
+    @Test
+    void busyConnectionDoesNotStarveAnother() throws IOException {
+        LiveIngestConnection busy = new LiveIngestConnection("p1", session, 256, executor);
+        LiveIngestConnection quiet = new LiveIngestConnection("p2", session("s2", new ArrayList<>()), 256, executor);
+        for (int i = 0; i < 100; i++) {
+            busy.enqueue(message(1, i, 0));
+        }
+        quiet.enqueue(message(1, 0, 0));
+
+        // 繁忙连接处理16条后让出线程，排到安静连接之后
+        executor.runOne();
+        assertEquals(84, busy.stats().get("queued"));
+        assertEquals(0L, quiet.stats().get("samples"));
+        executor.runOne();
+        assertEquals(1L, quiet.stats().get("samples"));
+        assertEquals(84, busy.stats().get("queued"));
+
+        executor.runAll();
+        assertEquals(100L, busy.stats().get("samples"));
+    }
+
+    @Test
+    void leftPitchReachesLeftSensorThroughObserverTask() {
+        LiveIngestConnection connection = new LiveIngestConnection("p1", session, 16, executor);
+        connection.enqueue(message(0, 1000, 45));
+        connection.enqueue(message(1, 1010, 10));  // 其他槽位不发布给LeftSensor1
+
+        executor.runOne();  // 处理消息，发布采样并提交观察者的处理任务
+        assertEquals(0, connection.getLeftSensor().getData().length);
+        executor.runAll();
+        assertArrayEquals(new double[]{45}, connection.getLeftSensor().getData(), 0.01);
+        assertEquals(0L, connection.stats().get("droppedSamples"));
+    }
+
+    @Test
+    void invalidRecordsAreCountedAndSkipped() {
+        LiveIngestConnection connection = new LiveIngestConnection("p1", session, 16, executor);
+        byte[] payload = message(1, 0, 0);
+        payload[9] = 0;  // 帧头错误
+        connection.enqueue(payload);
+        connection.enqueue(Arrays.copyOf(message(1, 0, 0), LiveIngestConnection.RECORD_LENGTH + 3));
+        executor.runAll();
+
+        assertEquals(2L, connection.stats().get("invalidRecords"));
+        assertEquals(1L, connection.stats().get("samples"));
+    }
+
+    /**
+     * 一条记录的消息，Pitch 角为 pitch 度
+     */
+    private static byte[] message(int slot, long timestamp, double pitch) {
+        ByteBuffer buf = ByteBuffer.allocate(LiveIngestConnection.RECORD_LENGTH);
+        buf.put((byte) slot).putLong(timestamp);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte) 0x55).put((byte) 0x61);
+        for (int c = 0; c < 9; c++) {
+            buf.putShort(c == 7 ? (short) Math.round(pitch * 32768 / 180) : 0);
+        }
+        return buf.array();
+    }
+
+    private static WebSocketSession session(String id, List<String> sent) throws IOException {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            sent.add(((TextMessage) message).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    /**
+     * 由测试线程逐个执行提交的任务
+     */
+    private static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runOne() {
+            tasks.poll().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runOne();
+            }
+        }
+    }
+}
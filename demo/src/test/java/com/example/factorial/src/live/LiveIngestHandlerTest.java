@@ -0,0 +1,111 @@
+package com.example.factorial.src.live;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 并发建立连接时不超过连接数上限，关闭后名额可以再次使用
+ */
+class LiveIngestHandlerTest {
+
+    private static final int MAX_CONNECTIONS = 5;
+
+    private final LiveIngestHandler handler = new LiveIngestHandler(1, 16, MAX_CONNECTIONS, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void concurrentHandshakesStayWithinLimit() throws Exception {
+        int attempts = 40;
+        List<WebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            sessions.add(session("s" + i));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (WebSocketSession session : sessions) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    handler.afterConnectionEstablished(session);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(MAX_CONNECTIONS, handler.getConnectionCount());
+        int rejected = 0;
+        for (WebSocketSession session : sessions) {
+            if (mockingDetails(session).getInvocations().stream()
+                    .anyMatch(invocation -> invocation.getMethod().getName().equals("close"))) {
+                rejected++;
+            }
+        }
+        assertEquals(attempts - MAX_CONNECTIONS, rejected);
+    }
+
+    @Test
+    void closedConnectionFreesItsSlot() throws Exception {
+        List<WebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < MAX_CONNECTIONS; i++) {
+            WebSocketSession session = session("s" + i);
+            handler.afterConnectionEstablished(session);
+            sessions.add(session);
+        }
+        WebSocketSession overflow = session("overflow");
+        handler.afterConnectionEstablished(overflow);
+        verify(overflow).close(CloseStatus.SERVICE_OVERLOAD);
+
+        // 被拒绝的连接关闭时不释放名额
+        handler.afterConnectionClosed(overflow, CloseStatus.SERVICE_OVERLOAD);
+        WebSocketSession stillFull = session("still-full");
+        handler.afterConnectionEstablished(stillFull);
+        verify(stillFull).close(CloseStatus.SERVICE_OVERLOAD);
+
+        handler.afterConnectionClosed(sessions.get(0), CloseStatus.NORMAL);
+        WebSocketSession next = session("next");
+        handler.afterConnectionEstablished(next);
+        verify(next, never()).close(CloseStatus.SERVICE_OVERLOAD);
+        assertEquals(MAX_CONNECTIONS, handler.getConnectionCount());
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(LiveIngestHandler.PATIENT_ATTRIBUTE, "123456");
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.factorial.src.sensor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link BitWriter} 写出、{@link BitReader} 读回
+ */
+class BitWriterTest {
+
+    @Test
+    void bitsAreWrittenHighFirstAndPaddedWithZeros() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter out = new BitWriter(bytes);
+        out.writeBit(true);
+        out.writeBits(0b01, 2);
+        out.writeBits(0xFF, 4);  // 只写低 4 位
+        out.flush();
+        assertArrayEquals(new byte[]{(byte) 0b1011_1110}, bytes.toByteArray());
+    }
+
+    @Test
+    void randomWidthsRoundTrip() throws IOException {
+        Random random = new Random(3);
+        int[] widths = new int[5000];
+        long[] values = new long[widths.length];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter out = new BitWriter(bytes);
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = random.nextInt(65);
+            long v = random.nextLong();
+            values[i] = widths[i] == 64 ? v : v & ((1L << widths[i]) - 1);
+            out.writeBits(v, widths[i]);
+        }
+        out.flush();
+
+        BitReader in = new BitReader(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < widths.length; i++) {
+            assertEquals(values[i], in.readBits(widths[i]), "value " + i + ", " + widths[i] + " bits");
+        }
+    }
+
+    @Test
+    void fullWidthValuesKeepSignBit() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter out = new BitWriter(bytes);
+        out.writeBit(true);  // 错开字节边界
+        out.writeBits(Long.MIN_VALUE, 64);
+        out.writeBits(-1L, 64);
+        out.writeBits(Double.doubleToRawLongBits(-0.0), 64);
+        out.flush();
+        assertEquals(25, bytes.size());
+
+        BitReader in = new BitReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(in.readBit());
+        assertEquals(Long.MIN_VALUE, in.readBits(64));
+        assertEquals(-1L, in.readBits(64));
+        assertEquals(Double.doubleToRawLongBits(-0.0), in.readBits(64));
+        // 补齐的位为0
+        for (int i = 0; i < 7; i++) {
+            assertFalse(in.readBit());
+        }
+        assertThrows(EOFException.class, in::readBit);
+    }
+
+    @Test
+    void zeroWidthWritesNothing() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter out = new BitWriter(bytes);
+        out.writeBits(-1L, 0);
+        out.flush();
+        assertEquals(0, bytes.size());
+        assertEquals(0, new BitReader(new ByteArrayInputStream(new byte[0])).readBits(0));
+    }
+}
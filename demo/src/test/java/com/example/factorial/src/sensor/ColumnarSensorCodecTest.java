@@ -0,0 +1,134 @@
+package com.example.factorial.src.sensor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 列式编码的往返和边界情况
+ */
+class ColumnarSensorCodecTest {
+
+    private static final int CHANNELS = SensorCsvParser.CHANNELS.length;
+
+    @Test
+    void fixedPointSamplesRoundTrip() throws IOException {
+        // 前端导出的数值为固定小数位，两个设备交替，采样间隔不规则
+        Random random = new Random(7);
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < 500; i++) {
+            t += 5 + random.nextInt(40);
+            double[] values = new double[CHANNELS];
+            for (int c = 0; c < CHANNELS; c++) {
+                values[c] = Math.round((random.nextDouble() - 0.5) * 36000) / 100.0;
+            }
+            builder.onSample(t, i % 3 == 0 ? "WT901-L" : "WT901-R", values);
+        }
+        SensorSession session = builder.build();
+        assertSameSession(session, ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(session)));
+    }
+
+    @Test
+    void nonFixedPointValuesKeepExactBits() throws IOException {
+        double[] special = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Math.PI, Double.MIN_VALUE, -Double.MAX_VALUE, 1e300};
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < special.length; i++) {
+            double[] values = new double[CHANNELS];
+            for (int c = 0; c < CHANNELS; c++) {
+                values[c] = special[(i + c) % special.length];
+            }
+            builder.onSample(1000L * i, "d", values);
+        }
+        SensorSession session = builder.build();
+        SensorSession decoded = ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(session));
+        for (int c = 0; c < CHANNELS; c++) {
+            for (int i = 0; i < session.size(); i++) {
+                assertEquals(Double.doubleToRawLongBits(session.getChannel(c)[i]),
+                        Double.doubleToRawLongBits(decoded.getChannel(c)[i]), "channel " + c + ", sample " + i);
+            }
+        }
+    }
+
+    @Test
+    void negativeZeroInFixedPointColumnDecodesAsZero() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        builder.onSample(0, "d", filled(-0.0));
+        builder.onSample(10, "d", filled(1.5));
+        SensorSession decoded = ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(builder.build()));
+        // 定点存储不区分 -0.0 和 0.0
+        assertEquals(0.0, decoded.getChannel(0)[0], 0.0);
+        assertEquals(1.5, decoded.getChannel(0)[1], 0.0);
+    }
+
+    @Test
+    void singleSampleRoundTrip() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        builder.onSample(-42, "only", filled(12.345));
+        SensorSession session = builder.build();
+        assertSameSession(session, ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(session)));
+    }
+
+    @Test
+    void emptySessionRoundTrip() throws IOException {
+        SensorSession session = new SensorSessionBuilder().build();
+        SensorSession decoded = ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(session));
+        assertEquals(0, decoded.size());
+        assertEquals(0, decoded.getDevices().length);
+    }
+
+    @Test
+    void irregularTimestampsRoundTrip() throws IOException {
+        long[] times = {Long.MIN_VALUE / 2, 0, -1, 1, 1, Long.MAX_VALUE / 2, 17, 1_700_000_000_000L};
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (long t : times) {
+            builder.onSample(t, "d", filled(1));
+        }
+        SensorSession decoded = ColumnarSensorCodec.decode(ColumnarSensorCodec.encode(builder.build()));
+        assertArrayEquals(times, decoded.getTimestamps());
+    }
+
+    @Test
+    void findScaleUsesFewestDecimals() {
+        assertEquals(0, ColumnarSensorCodec.findScale(new double[]{1, -2, 0}, 3));
+        assertEquals(2, ColumnarSensorCodec.findScale(new double[]{1.25, -0.5}, 2));
+        assertEquals(-1, ColumnarSensorCodec.findScale(new double[]{Math.PI}, 1));
+        assertEquals(-1, ColumnarSensorCodec.findScale(new double[]{Double.NaN}, 1));
+        // 只检查前 size 个
+        assertEquals(0, ColumnarSensorCodec.findScale(new double[]{3, Math.PI}, 1));
+    }
+
+    @Test
+    void rejectsOtherData() {
+        assertFalse(ColumnarSensorCodec.isEncoded("AccX,AccY".getBytes()));
+        assertFalse(ColumnarSensorCodec.isEncoded(new byte[]{'S', 'S'}));
+        assertTrue(ColumnarSensorCodec.isEncoded(ColumnarSensorCodec.encode(new SensorSessionBuilder().build())));
+        assertThrows(IOException.class, () -> ColumnarSensorCodec.decode("AccX,AccY".getBytes()));
+    }
+
+    private static double[] filled(double value) {
+        double[] values = new double[CHANNELS];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    static void assertSameSession(SensorSession expected, SensorSession actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.getDevices(), actual.getDevices());
+        assertArrayEquals(expected.getDeviceIndexes(), actual.getDeviceIndexes());
+        assertArrayEquals(expected.getTimestamps(), actual.getTimestamps());
+        assertEquals(expected.getChannels().length, actual.getChannels().length);
+        for (int c = 0; c < expected.getChannels().length; c++) {
+            assertArrayEquals(expected.getChannel(c), actual.getChannel(c), 0.0, "channel " + c);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.factorial.src.sensor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间序列压缩编码的往返和边界情况
+ */
+class GorillaSensorCodecTest {
+
+    private static final int CHANNELS = SensorCsvParser.CHANNELS.length;
+
+    @Test
+    void fixedRateSamplesRoundTripAndCompress() throws IOException {
+        Random random = new Random(11);
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        double[] values = new double[CHANNELS];
+        for (int i = 0; i < 2000; i++) {
+            for (int c = 0; c < CHANNELS; c++) {
+                // 缓慢变化的两位小数
+                values[c] = Math.round(values[c] * 100 + random.nextInt(21) - 10) / 100.0;
+            }
+            builder.onSample(1_700_000_000_000L + 10L * (i / 2), i % 2 == 0 ? "L" : "R", values);
+        }
+        SensorSession session = builder.build();
+        byte[] encoded = GorillaSensorCodec.encode(session);
+        ColumnarSensorCodecTest.assertSameSession(session, GorillaSensorCodec.decode(encoded));
+        // 每个采样 9 个通道加时间戳，原始数组为 80 字节
+        assertTrue(encoded.length < session.size() * 40, "encoded " + encoded.length + " bytes");
+    }
+
+    @Test
+    void specialValuesKeepExactBits() throws IOException {
+        double[] special = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Math.PI, Double.MIN_VALUE, -Double.MAX_VALUE, Double.longBitsToDouble(0x7ff8000000000001L)};
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < special.length * 2; i++) {
+            double[] values = new double[CHANNELS];
+            for (int c = 0; c < CHANNELS; c++) {
+                values[c] = special[(i * 5 + c) % special.length];
+            }
+            builder.onSample(i, "d", values);
+        }
+        SensorSession session = builder.build();
+        SensorSession decoded = GorillaSensorCodec.decode(GorillaSensorCodec.encode(session));
+        for (int c = 0; c < CHANNELS; c++) {
+            for (int i = 0; i < session.size(); i++) {
+                assertEquals(Double.doubleToRawLongBits(session.getChannel(c)[i]),
+                        Double.doubleToRawLongBits(decoded.getChannel(c)[i]), "channel " + c + ", sample " + i);
+            }
+        }
+    }
+
+    @Test
+    void signedZeroInFixedPointColumn() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        builder.onSample(0, "d", filled(-0.0));
+        builder.onSample(10, "d", filled(0.25));
+        builder.onSample(20, "d", filled(0.0));
+        SensorSession decoded = GorillaSensorCodec.decode(GorillaSensorCodec.encode(builder.build()));
+        assertEquals(0.0, decoded.getChannel(0)[0], 0.0);
+        assertEquals(0.25, decoded.getChannel(0)[1], 0.0);
+        assertEquals(0.0, decoded.getChannel(0)[2], 0.0);
+    }
+
+    @Test
+    void singleSampleRoundTrip() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        builder.onSample(Long.MIN_VALUE, "only", filled(-7.5));
+        SensorSession session = builder.build();
+        ColumnarSensorCodecTest.assertSameSession(session, GorillaSensorCodec.decode(GorillaSensorCodec.encode(session)));
+    }
+
+    @Test
+    void emptySessionRoundTrip() throws IOException {
+        SensorSession decoded = GorillaSensorCodec.decode(GorillaSensorCodec.encode(new SensorSessionBuilder().build()));
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    void irregularTimestampsUseEveryDeltaOfDeltaWidth() throws IOException {
+        // 依次落在 0、7 位、9 位、12 位、64 位的区间，以及时间倒退
+        long[] times = {1000, 1010, 1020, 1020 + 10 + 63, 1093 + 73 - 64, 1102 + 9 + 255, 1366 + 264 - 2048,
+                1366 + 264 + 2047 * 3, 0, Long.MAX_VALUE, Long.MIN_VALUE, 5, 5, 5};
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < times.length; i++) {
+            builder.onSample(times[i], "d", filled(i));
+        }
+        SensorSession decoded = GorillaSensorCodec.decode(GorillaSensorCodec.encode(builder.build()));
+        assertArrayEquals(times, decoded.getTimestamps());
+    }
+
+    @Test
+    void manyDevicesRoundTrip() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < 300; i++) {
+            builder.onSample(i * 3L, "dev" + (i * 7 % 37), filled(i % 11 * 0.1));
+        }
+        SensorSession session = builder.build();
+        ColumnarSensorCodecTest.assertSameSession(session, GorillaSensorCodec.decode(GorillaSensorCodec.encode(session)));
+    }
+
+    @Test
+    void streamingDecodeMatchesArrays() throws IOException {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.onSample(i * 10L, i % 2 == 0 ? "a" : "b", filled(i / 4.0));
+        }
+        byte[] encoded = GorillaSensorCodec.encode(builder.build());
+        List<String> seen = new ArrayList<>();
+        int count = GorillaSensorCodec.decode(new ByteArrayInputStream(encoded),
+                (t, d, v) -> seen.add(t + "/" + d + "/" + v[CHANNELS - 1]));
+        assertEquals(20, count);
+        assertEquals("0/a/0.0", seen.get(0));
+        assertEquals("190/b/4.75", seen.get(19));
+    }
+
+    @Test
+    void rejectsTruncatedAndForeignData() {
+        SensorSessionBuilder builder = new SensorSessionBuilder();
+        for (int i = 0; i < 10; i++) {
+            builder.onSample(i, "d", filled(Math.PI * i));
+        }
+        byte[] encoded = GorillaSensorCodec.encode(builder.build());
+        assertThrows(IOException.class, () -> GorillaSensorCodec.decode(Arrays.copyOf(encoded, encoded.length - 8)));
+        assertThrows(IOException.class, () -> GorillaSensorCodec.decode("Time,Device".getBytes()));
+        assertFalse(GorillaSensorCodec.isEncoded(ColumnarSensorCodec.encode(builder.build())));
+    }
+
+    private static double[] filled(double value) {
+        double[] values = new double[CHANNELS];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
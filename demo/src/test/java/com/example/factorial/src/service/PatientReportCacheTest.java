@@ -0,0 +1,102 @@
+package com.example.factorial.src.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 客户端传入的点数取到固定的档位，缓存键的数量有上限；降采样后的数组带有每个点在原数组中的下标
+ */
+class PatientReportCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void nonPositivePointsMeanFullArrays() {
+        assertEquals(0, PatientReportCache.pointLevel(0));
+        assertEquals(0, PatientReportCache.pointLevel(-5));
+    }
+
+    @Test
+    void pointsRoundUpToNextLevel() {
+        assertEquals(100, PatientReportCache.pointLevel(1));
+        assertEquals(100, PatientReportCache.pointLevel(100));
+        assertEquals(200, PatientReportCache.pointLevel(101));
+        assertEquals(1000, PatientReportCache.pointLevel(999));
+    }
+
+    @Test
+    void pointsAboveLargestLevelAreCapped() {
+        assertEquals(2000, PatientReportCache.pointLevel(2001));
+        assertEquals(2000, PatientReportCache.pointLevel(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void downsampledArraysCarryOriginalIndices() throws Exception {
+        StringBuilder motion = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            motion.append(i > 0 ? ", " : "").append(Math.sin(i / 20.0) * 45);
+        }
+        String score = "[8, 9, 10]";
+        JsonNode data = reports(motion.append(']').toString(), score, 150).get(0).get("data");
+
+        // 150 取到 200 一档
+        JsonNode values = objectMapper.readTree(data.get("运动幅度").asText());
+        JsonNode indices = data.get("indices").get("运动幅度");
+        assertEquals(200, values.size());
+        assertEquals(200, indices.size());
+        assertEquals(1000, data.get("totalPoints").get("运动幅度").asInt());
+        assertEquals(0, indices.get(0).asInt());
+        assertEquals(999, indices.get(199).asInt());
+        for (int i = 0; i < indices.size(); i++) {
+            int index = indices.get(i).asInt();
+            if (i > 0) {
+                assertTrue(index > indices.get(i - 1).asInt());
+            }
+            assertEquals(Math.sin(index / 20.0) * 45, values.get(i).asDouble(), 1e-9);
+        }
+
+        // 没有超过点数的数组保持原样，不带下标
+        assertEquals(score, data.get("得分").asText());
+        assertFalse(data.get("indices").has("得分"));
+        assertFalse(data.get("totalPoints").has("得分"));
+    }
+
+    @Test
+    void fullArraysHaveNoIndices() throws Exception {
+        JsonNode data = reports("[1, 2, 3, 4, 5]", "[8, 9]", 0).get(0).get("data");
+        assertEquals("[1, 2, 3, 4, 5]", data.get("运动幅度").asText());
+        assertFalse(data.has("indices"));
+        assertFalse(data.has("totalPoints"));
+    }
+
+    private JsonNode reports(String motionRange, String score, int points) throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<String, Object> row = new HashMap<>();
+        row.put("date", "2024-01-01");
+        row.put("运动幅度", motionRange);
+        row.put("得分", score);
+        rows.add(row);
+        when(jdbcTemplate.queryForList(anyString(), eq("123456"))).thenReturn(rows);
+        PatientReportCache cache = new PatientReportCache(jdbcTemplate, objectMapper, new SimpleMeterRegistry(),
+                mock(PlatformTransactionManager.class), 10, 60, 1000, 1000);
+        return objectMapper.readTree(cache.getReportsJson("123456", points));
+    }
+}
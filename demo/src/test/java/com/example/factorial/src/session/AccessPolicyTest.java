@@ -0,0 +1,64 @@
+package com.example.factorial.src.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 患者数据的归属判断，医生名下的患者只在缓存失效后重新查询
+ */
+class AccessPolicyTest {
+
+    private final SessionTokenService tokens = new SessionTokenService("test-secret", 3600);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AccessPolicy policy = new AccessPolicy(jdbcTemplate, 100, 3600);
+
+    @Test
+    void doctorPatientsAreQueriedOnce() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("DOC001")))
+                .thenReturn(Arrays.asList("123456", "654321"));
+        SessionPrincipal doctor = principal("DOC001", SessionTokenService.ROLE_DOCTOR);
+
+        assertTrue(policy.canAccessPatient(doctor, "123456"));
+        assertTrue(policy.canAccessPatient(doctor, "654321"));
+        assertFalse(policy.canAccessPatient(doctor, "999999"));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(String.class), eq("DOC001"));
+    }
+
+    @Test
+    void invalidationPicksUpReassignedPatient() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("DOC001")))
+                .thenReturn(Collections.singletonList("123456"))
+                .thenReturn(Arrays.asList("123456", "777777"));
+        SessionPrincipal doctor = principal("DOC001", SessionTokenService.ROLE_DOCTOR);
+
+        assertFalse(policy.canAccessPatient(doctor, "777777"));
+        policy.invalidateDoctor("DOC001");
+        assertTrue(policy.canAccessPatient(doctor, "777777"));
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(String.class), eq("DOC001"));
+    }
+
+    @Test
+    void adminAndPatientNeedNoQuery() {
+        assertTrue(policy.canAccessPatient(principal("Admin", SessionTokenService.ROLE_ADMIN), "123456"));
+        assertTrue(policy.canAccessPatient(principal("123456", SessionTokenService.ROLE_PATIENT), "123456"));
+        assertFalse(policy.canAccessPatient(principal("123456", SessionTokenService.ROLE_PATIENT), "654321"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private SessionPrincipal principal(String username, String role) {
+        return new SessionPrincipal(username, role, Long.MAX_VALUE, tokens.permissionsOf(role));
+    }
+}
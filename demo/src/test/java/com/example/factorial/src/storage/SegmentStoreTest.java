@@ -0,0 +1,230 @@
+package com.example.factorial.src.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段存储的写入、跨分段读取和启动时的恢复
+ */
+class SegmentStoreTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private SegmentStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void recordsRollOverIntoNewSegments() throws IOException {
+        store = open();
+        byte[][] payloads = new byte[5][];
+        long[] offsets = new long[payloads.length];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = random(i, 400 * 1024);
+            offsets[i] = store.append(payloads[i]);
+        }
+        // 1MB 的分段放得下两条 400KB 的记录
+        assertEquals(3, segmentFiles());
+        for (int i = 0; i < payloads.length; i++) {
+            assertArrayEquals(payloads[i], bytes(store.read(offsets[i], payloads[i].length)), "record " + i);
+        }
+    }
+
+    @Test
+    void largeSealedRecordsAreSlicesOfOneMapping() throws IOException {
+        store = open();
+        byte[] first = random(1, 300 * 1024);
+        byte[] second = random(2, 300 * 1024);
+        byte[] third = random(3, 600 * 1024);
+        long firstOffset = store.append(first);
+        long secondOffset = store.append(second);
+        long thirdOffset = store.append(third);  // 第一个分段写满
+
+        ByteBuffer a = store.read(firstOffset, first.length);
+        ByteBuffer b = store.read(secondOffset, second.length);
+        assertTrue(a.isDirect());
+        assertTrue(b.isDirect());
+        assertTrue(a.isReadOnly());
+        assertEquals(first.length, a.capacity());
+        assertArrayEquals(first, bytes(a));
+        assertArrayEquals(second, bytes(b));
+        // 多次读取共用同一个分段映射
+        assertArrayEquals(first, bytes(store.read(firstOffset, first.length)));
+        assertEquals(1, store.mappedSegments());
+
+        // 仍在追加的分段读入堆中
+        ByteBuffer active = store.read(thirdOffset, third.length);
+        assertFalse(active.isDirect());
+        assertTrue(active.isReadOnly());
+        assertArrayEquals(third, bytes(active));
+        assertEquals(1, store.mappedSegments());
+    }
+
+    @Test
+    void smallRecordsAreReadIntoHeap() throws IOException {
+        store = open();
+        byte[] small = random(12, 1000);
+        long smallOffset = store.append(small);
+        store.append(random(13, 900 * 1024));  // 第一个分段写满
+        store.append(random(14, 100));
+
+        ByteBuffer buffer = store.read(smallOffset, small.length);
+        assertFalse(buffer.isDirect());
+        assertTrue(buffer.isReadOnly());
+        assertEquals(small.length, buffer.remaining());
+        assertArrayEquals(small, bytes(buffer));
+        assertEquals(0, store.mappedSegments());
+    }
+
+    @Test
+    void activeSegmentSeesLaterAppends() throws IOException {
+        store = open();
+        byte[] a = random(3, 1000);
+        long aOffset = store.append(a);
+        assertArrayEquals(a, bytes(store.read(aOffset, a.length)));
+        byte[] b = random(4, 2000);
+        long bOffset = store.append(b);
+        assertEquals(aOffset + a.length + SegmentStore.HEADER_BYTES, bOffset);
+        assertArrayEquals(b, bytes(store.read(bOffset, b.length)));
+        assertArrayEquals(a, bytes(store.read(aOffset, a.length)));
+    }
+
+    @Test
+    void transferToAndLocateCoverRequestedRange() throws IOException {
+        store = open();
+        byte[] payload = random(5, 10_000);
+        long offset = store.append(payload);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, store.transferTo(offset, payload.length, 250, 100, Channels.newChannel(out)));
+        assertArrayEquals(Arrays.copyOfRange(payload, 250, 350), out.toByteArray());
+        assertThrows(IOException.class, () -> store.transferTo(offset, payload.length, 9_950, 100, Channels.newChannel(out)));
+
+        SegmentStore.Location location = store.locate(offset, payload.length);
+        byte[] fromFile = Files.readAllBytes(location.getFile());
+        assertArrayEquals(payload, Arrays.copyOfRange(fromFile, (int) location.getPosition(),
+                (int) location.getPosition() + payload.length));
+    }
+
+    @Test
+    void emptyRecordAndInvalidReads() throws IOException {
+        store = open();
+        long offset = store.append(new byte[0]);
+        assertEquals(0, store.read(offset, 0).remaining());
+        assertThrows(IOException.class, () -> store.read(offset, 1));
+        assertThrows(IOException.class, () -> store.read(offset + 10 * MB, 1));
+        assertThrows(IOException.class, () -> store.append(new byte[MB]));
+    }
+
+    @Test
+    void shortInputStreamIsRejectedAndOverwritten() throws IOException {
+        store = open();
+        assertThrows(IOException.class, () -> store.append(new ByteArrayInputStream(new byte[10]), 20));
+        byte[] payload = random(6, 30);
+        long offset = store.append(new ByteArrayInputStream(payload), payload.length);
+        assertEquals(SegmentStore.HEADER_BYTES, offset);
+        assertArrayEquals(payload, bytes(store.read(offset, payload.length)));
+    }
+
+    @Test
+    void reopeningTruncatesTornTail() throws IOException {
+        store = open();
+        byte[] first = random(7, 500 * 1024);
+        byte[] second = random(8, 500 * 1024);
+        byte[] third = random(9, 1000);
+        long firstOffset = store.append(first);
+        store.append(second);
+        long thirdOffset = store.append(third);
+        store.close();
+
+        // 模拟写入中断: 最后一个分段末尾只有记录头和部分内容
+        Path last = lastSegment();
+        long intact = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(SegmentStore.HEADER_BYTES + 10);
+            torn.putInt(0x53534731).putLong(5000).put(new byte[10]).flip();
+            channel.write(torn);
+        }
+
+        store = open();
+        assertEquals(intact, Files.size(last));
+        assertArrayEquals(first, bytes(store.read(firstOffset, first.length)));
+        assertArrayEquals(third, bytes(store.read(thirdOffset, third.length)));
+        byte[] fourth = random(10, 100);
+        long fourthOffset = store.append(fourth);
+        assertEquals(thirdOffset + third.length + SegmentStore.HEADER_BYTES, fourthOffset);
+        assertArrayEquals(fourth, bytes(store.read(fourthOffset, fourth.length)));
+    }
+
+    @Test
+    void reopeningDropsGarbageAfterLastRecord() throws IOException {
+        store = open();
+        byte[] payload = random(11, 64);
+        long offset = store.append(payload);
+        store.close();
+
+        Path last = lastSegment();
+        Files.write(last, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13}, StandardOpenOption.APPEND);
+
+        store = open();
+        assertEquals(SegmentStore.HEADER_BYTES + payload.length, Files.size(last));
+        assertArrayEquals(payload, bytes(store.read(offset, payload.length)));
+    }
+
+    private SegmentStore open() throws IOException {
+        return new SegmentStore(directory.toString(), 1, false);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".segment")).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".segment"))
+                    .max(Path::compareTo).orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
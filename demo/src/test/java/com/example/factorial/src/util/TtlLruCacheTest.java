@@ -0,0 +1,107 @@
+package com.example.factorial.src.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 容量淘汰、过期和加载期间失效的处理
+ */
+class TtlLruCacheTest {
+
+    private static final long HOUR = 3600_000;
+
+    @Test
+    void hitDoesNotCallLoader() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("a!", cache.get("a", k -> { loads.incrementAndGet(); return k + "!"; }));
+        assertEquals("a!", cache.get("a", k -> { loads.incrementAndGet(); return k + "?"; }));
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(2, HOUR);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a", k -> "reloaded");  // a 变为最近使用
+        cache.put("c", "3");              // 淘汰 b
+
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.getEvictions());
+        assertEquals("1", cache.get("a", k -> "reloaded"));
+        assertEquals("3", cache.get("c", k -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", k -> "reloaded"));
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, 0);
+        cache.put("a", "old");
+        assertEquals("new", cache.get("a", k -> "new"));
+        assertEquals(1L, cache.getExpirations());
+        assertEquals(0L, cache.getHits());
+    }
+
+    @Test
+    void nullIsNotCached() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        assertNull(cache.get("a", k -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loaderExceptionLeavesNothingBehind() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        assertThrows(IllegalStateException.class, () -> cache.get("a", k -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("ok", cache.get("a", k -> "ok"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void invalidatingKeyDuringLoadDiscardsResult() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        String value = cache.get("p1", k -> {
+            cache.invalidate("p1");  // 加载期间写入了新数据
+            return "stale";
+        });
+        assertEquals("stale", value);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidatingOtherKeyDuringLoadKeepsResult() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        cache.get("p1", k -> {
+            cache.invalidateIf(key -> key.startsWith("p2"));
+            cache.invalidate("p3");
+            return "fresh";
+        });
+        assertEquals(1, cache.size());
+        assertEquals("fresh", cache.get("p1", k -> "reloaded"));
+    }
+
+    @Test
+    void clearDuringLoadDiscardsResult() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10, HOUR);
+        cache.get("p1", k -> {
+            cache.clear();
+            return "stale";
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TtlLruCache<String, String>(0, HOUR));
+    }
+}
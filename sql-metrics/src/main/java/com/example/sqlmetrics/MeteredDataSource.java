@@ -0,0 +1,151 @@
+package com.example.sqlmetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 为每条SQL的执行计时的DataSource包装
+ * <p>
+ * JdbcTemplate 和 JPA 的语句都经过这里，计时记录到 jdbc.query 指标，
+ * 按 {@link SqlClassifier} 得到的 operation (select/insert/...) 和 table 打标签。
+ * 指标注册表在第一次执行SQL时才获取：注册表本身依赖数据源 (连接池指标)，创建数据源时还不能取用。
+ * 每种 operation/table 组合的 Timer 只注册一次，之后从缓存中取用。
+ * 指定 {@link SqlStatementLog} 时，每条语句的耗时同时交给它记录慢SQL和按请求计数。
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+
+    public static final String METRIC_NAME = "jdbc.query";
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final SqlStatementLog statementLog;
+    private volatile MeterRegistry registry;
+    // operation -> table -> Timer
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public MeteredDataSource(DataSource target, MeterRegistry registry) {
+        this(target, () -> registry, null);
+    }
+
+    /**
+     * @param statementLog 可以为null
+     */
+    public MeteredDataSource(DataSource target, Supplier<MeterRegistry> registrySupplier, SqlStatementLog statementLog) {
+        super(target);
+        this.registrySupplier = registrySupplier;
+        this.statementLog = statementLog;
+    }
+
+    private MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            current = registrySupplier.get();
+            registry = current;
+        }
+        return current;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private Timer timer(String sql) {
+        String[] kind = SqlClassifier.classify(sql);
+        return timers.computeIfAbsent(kind[0], operation -> new ConcurrentHashMap<>())
+                .computeIfAbsent(kind[1], table -> Timer.builder(METRIC_NAME)
+                        .description("SQL语句执行耗时")
+                        .tag("operation", kind[0])
+                        .tag("table", table)
+                        .register(registry()));
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String name = method.getName();
+            if (result instanceof Statement && (name.startsWith("prepare") || name.equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                        new Class<?>[]{type}, new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private String batchSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length == 1 && batchSql == null) {
+                batchSql = (String) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : preparedSql != null ? preparedSql : batchSql;
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                timer(sql).record(elapsed, TimeUnit.NANOSECONDS);
+                if (statementLog != null) {
+                    statementLog.record(sql, elapsed);
+                }
+            }
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.sqlmetrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把SQL语句归类为 操作 + 主表，作为指标标签
+ * 只取语句类型和第一个表名，参数和条件不同的同类语句归为一类，标签取值数量有限
+ */
+public final class SqlClassifier {
+
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:from|into|update|table(?:\\s+if\\s+(?:not\\s+)?exists)?)\\s+`?([\\w.]+)`?",
+            Pattern.CASE_INSENSITIVE);
+    private static final int MAX_CACHED = 2048;
+    private static final Map<String, String[]> CACHE = new ConcurrentHashMap<>();
+
+    private SqlClassifier() {
+    }
+
+    /**
+     * @return {操作, 表名}，如 {"select", "dsd.patient"}；无法识别时为 "other" / "none"
+     */
+    public static String[] classify(String sql) {
+        if (sql == null) {
+            return new String[]{"other", "none"};
+        }
+        String[] cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String trimmed = sql.trim();
+        int space = 0;
+        while (space < trimmed.length() && !Character.isWhitespace(trimmed.charAt(space))) {
+            space++;
+        }
+        String operation = trimmed.substring(0, space).toLowerCase(Locale.ROOT);
+        switch (operation) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+            case "create":
+            case "alter":
+                break;
+            default:
+                operation = "other";
+        }
+        Matcher m = TABLE.matcher(trimmed);
+        String table = m.find() ? m.group(1).toLowerCase(Locale.ROOT) : "none";
+        String[] result = {operation, table};
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(sql, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sqlmetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 记录每个HTTP请求执行的SQL条数，由各应用的 SqlBudgetFilter 在请求结束时调用
+ * (demo 使用 javax.servlet，Violesa 使用 jakarta.servlet，过滤器本身不能共用)
+ * <p>
+ * 条数记录到 http.server.requests.sql 指标 (按接口路径打标签)；超过预算的请求以 WARN 记录，
+ * 并给出执行次数最多的语句，通常是逐条加载关联数据的N+1查询。
+ * 每个接口路径的指标只注册一次，之后从缓存中取用。
+ */
+public class SqlRequestBudget {
+
+    public static final String METRIC_NAME = "http.server.requests.sql";
+
+    private static final Logger log = LoggerFactory.getLogger("sql.statements");
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry registry;
+    private final int budget;
+    private final ConcurrentMap<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> overBudget = new ConcurrentHashMap<>();
+
+    /**
+     * @param budget 单个请求的SQL条数预算，0 表示不检查
+     */
+    public SqlRequestBudget(MeterRegistry registry, int budget) {
+        this.registry = registry;
+        this.budget = budget;
+    }
+
+    /**
+     * @param pattern 请求匹配到的接口路径模板，没有匹配到接口时为null
+     */
+    public void record(String method, String requestUri, String pattern, SqlStatementLog.RequestStats stats) {
+        if (stats.getCount() == 0) {
+            return;
+        }
+        String uri = pattern != null ? pattern : UNKNOWN_URI;
+        summaries.computeIfAbsent(uri, key -> DistributionSummary.builder(METRIC_NAME)
+                .description("单个HTTP请求执行的SQL条数")
+                .tag("uri", key)
+                .register(registry))
+                .record(stats.getCount());
+        if (budget > 0 && stats.getCount() > budget) {
+            overBudget.computeIfAbsent(uri, key -> registry.counter(METRIC_NAME + ".over.budget", "uri", key)).increment();
+            Map.Entry<String, Integer> top = stats.mostRepeated();
+            log.warn("请求 {} {} 执行了 {} 条SQL (预算 {})，共 {} ms；执行最多的语句 ({} 次): {}",
+                    method, requestUri, stats.getCount(), budget, stats.getMillis(),
+                    top.getValue(), SqlStatementLog.compact(top.getKey()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.sqlmetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL语句日志，以及按请求统计的SQL条数；代替 show-sql 逐条打印语句和参数
+ * <p>
+ * 耗时超过阈值的语句以 WARN 记录，其余按比例抽样以 INFO 记录，只记录SQL文本，不记录参数。
+ * 日志记录器为 sql.statements，可以用 logging.level.sql.statements 调整。
+ * <p>
+ * 同一线程在 {@link #beginRequest()} 和 {@link #endRequest()} 之间执行的语句计入该请求，
+ * 由各应用的 SqlBudgetFilter 在每个HTTP请求前后调用；后台线程执行的语句不计入任何请求。
+ */
+public class SqlStatementLog {
+
+    private static final Logger log = LoggerFactory.getLogger("sql.statements");
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+    private static final int MAX_LOGGED_LENGTH = 1000;
+
+    private final long slowNanos;
+    private final double sampleRate;
+
+    /**
+     * @param slowThresholdMillis 慢SQL阈值，小于0时不记录慢SQL
+     * @param sampleRate 其余语句的抽样比例，0 到 1
+     */
+    public SqlStatementLog(long slowThresholdMillis, double sampleRate) {
+        this.slowNanos = slowThresholdMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.sampleRate = sampleRate;
+    }
+
+    public void record(String sql, long nanos) {
+        RequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.add(sql, nanos);
+        }
+        if (nanos >= slowNanos) {
+            log.warn("慢SQL {} ms: {}", nanos / 1000000, compact(sql));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && log.isInfoEnabled()) {
+            log.info("SQL {} ms (抽样): {}", nanos / 1000000.0, compact(sql));
+        }
+    }
+
+    /**
+     * 开始统计当前线程的请求
+     */
+    public static RequestStats beginRequest() {
+        RequestStats stats = new RequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * 结束统计当前线程的请求
+     */
+    public static void endRequest() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 合并空白并截断过长的语句
+     */
+    public static String compact(String sql) {
+        if (sql == null) {
+            return "(未知语句)";
+        }
+        String text = sql.replaceAll("\\s+", " ").trim();
+        return text.length() > MAX_LOGGED_LENGTH ? text.substring(0, MAX_LOGGED_LENGTH) + "..." : text;
+    }
+
+    /**
+     * 一个请求执行的SQL条数、总耗时，以及每种语句的执行次数 (同一语句执行多次常见于N+1查询)
+     */
+    public static final class RequestStats {
+        private int count;
+        private long nanos;
+        private final Map<String, Integer> statements = new HashMap<>();
+
+        void add(String sql, long elapsed) {
+            count++;
+            nanos += elapsed;
+            statements.merge(sql == null ? "" : sql, 1, Integer::sum);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getMillis() {
+            return nanos / 1000000;
+        }
+
+        /**
+         * 执行次数最多的语句，没有执行过语句时返回null
+         */
+        public Map.Entry<String, Integer> mostRepeated() {
+            Map.Entry<String, Integer> top = null;
+            for (Map.Entry<String, Integer> entry : statements.entrySet()) {
+                if (top == null || entry.getValue() > top.getValue()) {
+                    top = entry;
+                }
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.sqlmetrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 逐条SQL的计时按 operation/table 记录，并交给 SqlStatementLog 按请求计数
+ */
+class MeteredDataSourceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void preparedAndPlainStatementsAreTimed() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        SqlStatementLog.RequestStats stats = SqlStatementLog.beginRequest();
+        try {
+            MeteredDataSource dataSource = new MeteredDataSource(target, () -> registry, new SqlStatementLog(-1, 0));
+            try (Connection c = dataSource.getConnection()) {
+                PreparedStatement select = c.prepareStatement("SELECT * FROM dsd.patient WHERE id = ?");
+                select.executeQuery();
+                select.executeQuery();
+                c.createStatement().executeUpdate("DELETE FROM dsd.patient_reports WHERE id = 1");
+            }
+        } finally {
+            SqlStatementLog.endRequest();
+        }
+
+        assertEquals(2, timer("select", "dsd.patient").count());
+        assertEquals(1, timer("delete", "dsd.patient_reports").count());
+        assertEquals(3, stats.getCount());
+    }
+
+    @Test
+    void failedStatementIsStillTimed() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeUpdate()).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        MeteredDataSource dataSource = new MeteredDataSource(target, registry);
+        PreparedStatement insert = dataSource.getConnection().prepareStatement("INSERT INTO `user` (username) VALUES (?)");
+        SQLException e = assertThrows(SQLException.class, insert::executeUpdate);
+        assertEquals(1062, e.getErrorCode());
+        assertEquals(1, timer("insert", "user").count());
+    }
+
+    @Test
+    void registryIsResolvedOnFirstStatement() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        SimpleMeterRegistry[] resolved = new SimpleMeterRegistry[1];
+
+        MeteredDataSource dataSource = new MeteredDataSource(target, () -> resolved[0], null);
+        Connection c = dataSource.getConnection();
+        resolved[0] = registry;  // 创建数据源时注册表还不存在
+        c.createStatement().execute("SELECT 1");
+        assertEquals(1, timer("select", "none").count());
+        assertNull(registry.find(MeteredDataSource.METRIC_NAME).tag("operation", "insert").timer());
+    }
+
+    private Timer timer(String operation, String table) {
+        return registry.get(MeteredDataSource.METRIC_NAME).tag("operation", operation).tag("table", table).timer();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sqlmetrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * SQL语句的 操作 + 主表 归类
+ */
+class SqlClassifierTest {
+
+    @Test
+    void operationAndFirstTable() {
+        assertArrayEquals(new String[]{"select", "dsd.patient"},
+                SqlClassifier.classify("SELECT id, name FROM dsd.patient WHERE id = ?"));
+        assertArrayEquals(new String[]{"insert", "dsd.patient_reports"},
+                SqlClassifier.classify("insert into dsd.patient_reports (patient_id) values (?)"));
+        assertArrayEquals(new String[]{"update", "user"},
+                SqlClassifier.classify("UPDATE `user` SET password = ? WHERE username = ?"));
+        assertArrayEquals(new String[]{"delete", "rawdata"},
+                SqlClassifier.classify("DELETE FROM RawData WHERE hash_pk = ?"));
+    }
+
+    @Test
+    void leadingWhitespaceAndLineBreaks() {
+        assertArrayEquals(new String[]{"select", "dsd.doctor"},
+                SqlClassifier.classify("\n   select d.id\n   from\n   dsd.doctor d"));
+    }
+
+    @Test
+    void ddlTableNames() {
+        assertArrayEquals(new String[]{"create", "dsd.patient_csv_data"},
+                SqlClassifier.classify("CREATE TABLE IF NOT EXISTS dsd.patient_csv_data (id INT)"));
+        assertArrayEquals(new String[]{"alter", "dsd.patient_csv_data"},
+                SqlClassifier.classify("ALTER TABLE dsd.patient_csv_data ADD COLUMN x INT"));
+    }
+
+    @Test
+    void unknownStatementsAndNull() {
+        assertArrayEquals(new String[]{"other", "none"}, SqlClassifier.classify(null));
+        assertArrayEquals(new String[]{"other", "none"}, SqlClassifier.classify("SHOW TABLES"));
+        assertArrayEquals(new String[]{"other", "none"}, SqlClassifier.classify(""));
+        assertArrayEquals(new String[]{"select", "none"}, SqlClassifier.classify("SELECT 1"));
+        assertArrayEquals(new String[]{"other", "dsd.patient"},
+                SqlClassifier.classify("{call refresh(?)} from dsd.patient"));
+    }
+
+    @Test
+    void repeatedStatementsAreCached() {
+        String sql = "SELECT * FROM dsd.heartbeat WHERE id = 1";
+        assertSame(SqlClassifier.classify(sql), SqlClassifier.classify(sql));
+    }
+}
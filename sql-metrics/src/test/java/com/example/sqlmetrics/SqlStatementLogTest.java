@@ -0,0 +1,68 @@
+package com.example.sqlmetrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 按请求统计的SQL条数、耗时和执行最多的语句
+ */
+class SqlStatementLogTest {
+
+    private final SqlStatementLog statementLog = new SqlStatementLog(-1, 0);
+
+    @AfterEach
+    void tearDown() {
+        SqlStatementLog.endRequest();
+    }
+
+    @Test
+    void requestStatsCountAndMostRepeated() {
+        SqlStatementLog.RequestStats stats = new SqlStatementLog.RequestStats();
+        assertEquals(0, stats.getCount());
+        assertNull(stats.mostRepeated());
+
+        stats.add("SELECT * FROM dsd.patient", TimeUnit.MILLISECONDS.toNanos(3));
+        for (int i = 0; i < 3; i++) {
+            stats.add("SELECT * FROM dsd.patient_reports WHERE patient_id = ?", TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        stats.add(null, TimeUnit.MICROSECONDS.toNanos(500));
+
+        assertEquals(5, stats.getCount());
+        assertEquals(9, stats.getMillis());
+        Map.Entry<String, Integer> top = stats.mostRepeated();
+        assertEquals("SELECT * FROM dsd.patient_reports WHERE patient_id = ?", top.getKey());
+        assertEquals(3, top.getValue());
+    }
+
+    @Test
+    void onlyStatementsInsideRequestAreCounted() {
+        statementLog.record("SELECT 1", 1000);
+        SqlStatementLog.RequestStats stats = SqlStatementLog.beginRequest();
+        statementLog.record("SELECT 2", 1000);
+        statementLog.record("SELECT 2", 1000);
+        SqlStatementLog.endRequest();
+        statementLog.record("SELECT 3", 1000);
+
+        assertEquals(2, stats.getCount());
+        assertEquals("SELECT 2", stats.mostRepeated().getKey());
+    }
+
+    @Test
+    void compactCollapsesWhitespaceAndTruncates() {
+        assertEquals("SELECT a FROM b WHERE c = ?", SqlStatementLog.compact("  SELECT a\n\tFROM   b\r\n WHERE c = ?  "));
+        assertEquals("(未知语句)", SqlStatementLog.compact(null));
+        StringBuilder longSql = new StringBuilder("SELECT ");
+        while (longSql.length() < 1500) {
+            longSql.append("col, ");
+        }
+        String compacted = SqlStatementLog.compact(longSql.toString());
+        assertEquals(1003, compacted.length());
+        assertEquals("...", compacted.substring(1000));
+    }
+}